@@ -0,0 +1,55 @@
+package pt.edequinox.api.aot;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import pt.edequinox.api.logging.RequestTraceSampler;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.api.serialization.OperationRequestDeserializer;
+import pt.edequinox.api.serialization.OperationRequestSerializer;
+import pt.edequinox.api.serialization.OperationResultDeserializer;
+import pt.edequinox.api.serialization.OperationResultSerializer;
+import pt.edequinox.api.serialization.RequestIdDeserializer;
+import pt.edequinox.api.serialization.RequestIdSerializer;
+
+import java.util.List;
+
+/**
+ * Reflection a native image of either service needs for this module, registered through
+ * {@code META-INF/spring/aot.factories} for every application that has it on its classpath.
+ * <ul>
+ *     <li>Models: bound by Jackson in HTTP bodies, {@code /stream} messages and the {@code json} wire format. Lombok
+ *     generates getters but no setters, so Jackson writes the fields directly.</li>
+ *     <li>Kafka (de)serializers: Kafka instantiates them from the class names in the producer and consumer
+ *     properties.</li>
+ *     <li>{@link RequestTraceSampler}: Logback instantiates it from {@code logback-spring.xml} and calls its
+ *     setters.</li>
+ * </ul>
+ */
+public class ApiRuntimeHints implements RuntimeHintsRegistrar {
+
+    static final List<Class<?>> MODELS = List.of(OperationRequest.class, OperationResult.class, OperationType.class);
+
+    static final List<Class<?>> KAFKA_SERIALIZERS = List.of(
+            OperationRequestSerializer.class, OperationRequestDeserializer.class,
+            OperationResultSerializer.class, OperationResultDeserializer.class,
+            RequestIdSerializer.class, RequestIdDeserializer.class);
+
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        bindingRegistrar.registerReflectionHints(hints.reflection(), MODELS.toArray(Class<?>[]::new));
+        for (Class<?> model : MODELS) {
+            hints.reflection().registerType(model, MemberCategory.DECLARED_FIELDS);
+        }
+        for (Class<?> serializer : KAFKA_SERIALIZERS) {
+            hints.reflection().registerType(serializer, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        }
+        hints.reflection().registerType(RequestTraceSampler.class,
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+    }
+}
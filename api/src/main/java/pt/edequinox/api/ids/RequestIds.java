@@ -0,0 +1,128 @@
+package pt.edequinox.api.ids;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Request ids generated by the services, in the layout of a version 7 UUID: a millisecond timestamp, a 12-bit node
+ * id and 62 random bits from {@link ThreadLocalRandom}, so generating one takes no lock. Any other string is still a
+ * valid request id; only canonical ids (as {@link UUID#toString()} writes them) have a binary form ({@link #toBytes}).
+ */
+public final class RequestIds {
+
+    public static final int MAX_NODE = 0xFFF;
+    public static final int BINARY_LENGTH = 16;
+
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+    private static final long RANDOM_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+
+    private RequestIds() {
+    }
+
+    /**
+     * @param node The id of this instance, 0 to {@value #MAX_NODE}.
+     * @return A new id, as its canonical string.
+     */
+    public static String generate(int node) {
+        return new UUID(mostSignificantBits(System.currentTimeMillis(), node), leastSignificantBits()).toString();
+    }
+
+    static long mostSignificantBits(long epochMillis, int node) {
+        return epochMillis << 16 | VERSION_7 | (node & MAX_NODE);
+    }
+
+    static long leastSignificantBits() {
+        return VARIANT | ThreadLocalRandom.current().nextLong() & RANDOM_MASK;
+    }
+
+    /**
+     * @return {@code true} for a UUID in the form {@link UUID#toString()} writes (36 characters, lowercase hex).
+     */
+    public static boolean isCanonical(String requestId) {
+        if (requestId == null || requestId.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = requestId.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (hexValue(c) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A 64-bit key for maps correlating replies with pending requests: the lower half of a canonical id, which is
+     * random for generated ones, or a 64-bit hash of any other string. Distinct ids can share a key, so a map keyed
+     * by it must still compare the ids.
+     */
+    public static long correlationKey(String requestId) {
+        if (isCanonical(requestId)) {
+            return parseHex(requestId, 19, 23) << 48 | parseHex(requestId, 24, 36);
+        }
+        // FNV-1a, then the murmur3 finalizer to spread short ids
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < requestId.length(); i++) {
+            hash = (hash ^ requestId.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ hash >>> 33;
+    }
+
+    /**
+     * @return The 16 bytes of a canonical id, big-endian.
+     * @throws IllegalArgumentException If the id is not canonical.
+     */
+    public static byte[] toBytes(String requestId) {
+        if (!isCanonical(requestId)) {
+            throw new IllegalArgumentException("Not a canonical request id: " + requestId);
+        }
+        long most = parseHex(requestId, 0, 8) << 32 | parseHex(requestId, 9, 13) << 16 | parseHex(requestId, 14, 18);
+        long least = parseHex(requestId, 19, 23) << 48 | parseHex(requestId, 24, 36);
+        byte[] bytes = new byte[BINARY_LENGTH];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (most >>> (56 - 8 * i));
+            bytes[8 + i] = (byte) (least >>> (56 - 8 * i));
+        }
+        return bytes;
+    }
+
+    /**
+     * @return The canonical id of {@link #BINARY_LENGTH} bytes at {@code offset}.
+     */
+    public static String fromBytes(byte[] bytes, int offset) {
+        long most = 0;
+        long least = 0;
+        for (int i = 0; i < 8; i++) {
+            most = most << 8 | (bytes[offset + i] & 0xFF);
+            least = least << 8 | (bytes[offset + 8 + i] & 0xFF);
+        }
+        return new UUID(most, least).toString();
+    }
+
+    private static long parseHex(String s, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = value << 4 | hexValue(s.charAt(i));
+        }
+        return value;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+}
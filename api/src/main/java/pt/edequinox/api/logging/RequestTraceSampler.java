@@ -0,0 +1,55 @@
+package pt.edequinox.api.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+import pt.edequinox.api.filters.FiltersContext;
+
+/**
+ * Logback turbo filter that turns on DEBUG logging for a sample of requests, so full request traces are
+ * available in production without paying for DEBUG on every request.
+ * The decision is a hash of the MDC {@code request_id}, so a sampled request is traced in every service it
+ * crosses. Configured in {@code logback-spring.xml}:
+ * <pre>
+ * &lt;turboFilter class="pt.edequinox.api.logging.RequestTraceSampler"&gt;
+ *     &lt;sampleRate&gt;0.01&lt;/sampleRate&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ */
+public class RequestTraceSampler extends TurboFilter {
+
+    private static final int BUCKETS = 10_000;
+
+    private int sampledBuckets;
+    private String loggerPrefix = "pt.edequinox";
+
+    /**
+     * @param sampleRate Fraction of requests to trace, from 0 (off) to 1 (every request).
+     */
+    public void setSampleRate(double sampleRate) {
+        this.sampledBuckets = (int) Math.round(Math.max(0, Math.min(1, sampleRate)) * BUCKETS);
+    }
+
+    /**
+     * @param loggerPrefix Only loggers whose name starts with this prefix are sampled.
+     */
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (sampledBuckets == 0 || level != Level.DEBUG || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        String requestId = FiltersContext.get();
+        return requestId != null && isSampled(requestId) ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
+    }
+
+    boolean isSampled(String requestId) {
+        int hash = requestId.hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), BUCKETS) < sampledBuckets;
+    }
+}
@@ -0,0 +1,56 @@
+package pt.edequinox.api.metrics;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Wall-clock timestamps carried in Kafka headers, so the latency of each leg of the round trip can be measured by
+ * the service that receives it. Values are epoch microseconds encoded as 8 big-endian bytes; cross-service
+ * latencies are only as accurate as the clock synchronisation between the hosts.
+ */
+public class TimestampHeaders {
+
+    /** Set by rest when it publishes the request; copied by the calculator onto the result. */
+    public static final String REQUEST_SENT_AT = "x-request-sent-at";
+    /** Set by rest when it publishes the request: the time after which it no longer waits for the reply. */
+    public static final String REQUEST_DEADLINE = "x-request-deadline";
+    /** Set by the calculator when it publishes the result. */
+    public static final String RESULT_SENT_AT = "x-result-sent-at";
+
+    public static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+    }
+
+    public static void put(Headers headers, String name, long epochMicros) {
+        headers.remove(name);
+        headers.add(name, ByteBuffer.allocate(Long.BYTES).putLong(epochMicros).array());
+    }
+
+    /**
+     * @return The timestamp in epoch microseconds, or {@code null} if the header is absent or malformed.
+     */
+    public static Long get(Headers headers, String name) {
+        Header header = headers.lastHeader(name);
+        if (header == null || header.value() == null || header.value().length != Long.BYTES) {
+            return null;
+        }
+        return ByteBuffer.wrap(header.value()).getLong();
+    }
+
+    /**
+     * @return Time elapsed since the timestamp in the header, or {@code null} if there is none. Negative values
+     *         (clock skew) are clamped to zero.
+     */
+    public static Duration elapsedSince(Headers headers, String name) {
+        Long sentAt = get(headers, name);
+        if (sentAt == null) {
+            return null;
+        }
+        return Duration.ofNanos(Math.max(0, nowMicros() - sentAt) * 1_000);
+    }
+}
@@ -1,11 +1,15 @@
 package pt.edequinox.api.models;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
 
 @Getter
 @AllArgsConstructor
@@ -15,4 +19,40 @@ public class OperationRequest {
     private OperationType operationType;
     private BigDecimal operand1;
     private BigDecimal operand2;
+    // Only set on BATCH envelopes: the operations to evaluate, in order
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<OperationRequest> items;
+    // Only set on EXPRESSION requests: the expression text and the values of its variables
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String expression;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, BigDecimal> variables;
+    // MathContext of an EXPRESSION evaluation: significant digits (0 = exact) and rounding; null = calculator default
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer precision;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private RoundingMode roundingMode;
+
+    // Convenience constructor for a single binary operation
+    public OperationRequest(OperationType operationType, BigDecimal operand1, BigDecimal operand2) {
+        this.operationType = operationType;
+        this.operand1 = operand1;
+        this.operand2 = operand2;
+    }
+
+    // Convenience constructor for a batch envelope
+    public OperationRequest(List<OperationRequest> items) {
+        this.operationType = OperationType.BATCH;
+        this.items = items;
+    }
+
+    // Convenience constructor for an expression evaluated in a single message
+    public OperationRequest(String expression, Map<String, BigDecimal> variables, Integer precision,
+                            RoundingMode roundingMode) {
+        this.operationType = OperationType.EXPRESSION;
+        this.expression = expression;
+        this.variables = variables;
+        this.precision = precision;
+        this.roundingMode = roundingMode;
+    }
 }
@@ -1,11 +1,13 @@
 package pt.edequinox.api.models;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Getter
 @AllArgsConstructor
@@ -16,6 +18,9 @@ public class OperationResult {
     private OperationType operationType;
     private BigDecimal result;
     private String error;
+    // Only set on BATCH replies: one result or error per request item, in request order
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<OperationResult> items;
 
     // Convenience constructor for successful result
     public OperationResult(String requestId, OperationType operationType, BigDecimal result) {
@@ -30,4 +35,11 @@ public class OperationResult {
         this.requestId = requestId;
         this.error = error;
     }
+
+    // Convenience constructor for batch result
+    public OperationResult(String requestId, List<OperationResult> items) {
+        this.requestId = requestId;
+        this.operationType = OperationType.BATCH;
+        this.items = items;
+    }
 }
\ No newline at end of file
@@ -4,5 +4,7 @@ public enum OperationType {
     ADDITION,
     SUBTRACTION,
     MULTIPLICATION,
-    DIVISION
+    DIVISION,
+    BATCH,
+    EXPRESSION
 }
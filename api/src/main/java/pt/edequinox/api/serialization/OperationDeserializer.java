@@ -0,0 +1,50 @@
+package pt.edequinox.api.serialization;
+
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.JacksonUtils;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * Kafka value deserializer for the operation models that accepts both wire formats: messages starting with a
+ * binary version byte ({@link OperationWireFormat#isBinary}) are decoded as binary, anything else as JSON. This lets JSON and binary
+ * producers coexist on a topic during a rollout.
+ * @param <T> The model type.
+ */
+public abstract class OperationDeserializer<T> implements Deserializer<T> {
+
+    private final Class<T> type;
+    private final Function<byte[], T> binaryDecoder;
+    private final ObjectMapper objectMapper = JacksonUtils.enhancedObjectMapper();
+
+    {
+        // Results of large operands exceed Jackson's 1000-digit default; the message size is the bound here
+        objectMapper.getFactory().setStreamReadConstraints(StreamReadConstraints.builder()
+                .maxNumberLength(Integer.MAX_VALUE)
+                .build());
+    }
+
+    protected OperationDeserializer(Class<T> type, Function<byte[], T> binaryDecoder) {
+        this.type = type;
+        this.binaryDecoder = binaryDecoder;
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            if (OperationWireFormat.isBinary(data)) {
+                return binaryDecoder.apply(data);
+            }
+            return objectMapper.readValue(data, type);
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Can't deserialize data from topic [" + topic + "]", e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package pt.edequinox.api.serialization;
+
+import pt.edequinox.api.models.OperationRequest;
+
+public class OperationRequestDeserializer extends OperationDeserializer<OperationRequest> {
+
+    public OperationRequestDeserializer() {
+        super(OperationRequest.class, OperationWireFormat::decodeRequest);
+    }
+}
@@ -0,0 +1,10 @@
+package pt.edequinox.api.serialization;
+
+import pt.edequinox.api.models.OperationRequest;
+
+public class OperationRequestSerializer extends OperationSerializer<OperationRequest> {
+
+    public OperationRequestSerializer() {
+        super(OperationWireFormat::encode);
+    }
+}
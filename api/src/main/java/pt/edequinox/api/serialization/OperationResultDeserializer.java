@@ -0,0 +1,10 @@
+package pt.edequinox.api.serialization;
+
+import pt.edequinox.api.models.OperationResult;
+
+public class OperationResultDeserializer extends OperationDeserializer<OperationResult> {
+
+    public OperationResultDeserializer() {
+        super(OperationResult.class, OperationWireFormat::decodeResult);
+    }
+}
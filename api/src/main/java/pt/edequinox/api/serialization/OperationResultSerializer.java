@@ -0,0 +1,10 @@
+package pt.edequinox.api.serialization;
+
+import pt.edequinox.api.models.OperationResult;
+
+public class OperationResultSerializer extends OperationSerializer<OperationResult> {
+
+    public OperationResultSerializer() {
+        super(OperationWireFormat::encode);
+    }
+}
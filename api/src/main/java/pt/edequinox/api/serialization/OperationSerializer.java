@@ -0,0 +1,55 @@
+package pt.edequinox.api.serialization;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.JacksonUtils;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Kafka value serializer for the operation models. The format is chosen with the {@value #WIRE_FORMAT_CONFIG}
+ * producer property: {@code json} (default), which produces the same documents as Spring's {@code JsonSerializer}
+ * and can be read by consumers that predate the binary format, or {@code binary} (see {@link OperationWireFormat}).
+ * @param <T> The model type.
+ */
+public abstract class OperationSerializer<T> implements Serializer<T> {
+
+    public static final String WIRE_FORMAT_CONFIG = "operation.wire.format";
+    public static final String BINARY = "binary";
+    public static final String JSON = "json";
+
+    private final Function<T, byte[]> binaryEncoder;
+    private final ObjectMapper objectMapper = JacksonUtils.enhancedObjectMapper();
+    private boolean binary;
+
+    protected OperationSerializer(Function<T, byte[]> binaryEncoder) {
+        this.binaryEncoder = binaryEncoder;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object format = configs.get(WIRE_FORMAT_CONFIG);
+        if (format != null && !BINARY.equals(format) && !JSON.equals(format)) {
+            throw new IllegalArgumentException("Unknown " + WIRE_FORMAT_CONFIG + ": " + format);
+        }
+        binary = BINARY.equals(format);
+    }
+
+    @Override
+    public byte[] serialize(String topic, T data) {
+        if (data == null) {
+            return null;
+        }
+        if (binary) {
+            return binaryEncoder.apply(data);
+        }
+        try {
+            return objectMapper.writeValueAsBytes(data);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Can't serialize data [" + data + "] for topic [" + topic + "]", e);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package pt.edequinox.api.serialization;
+
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of {@link OperationRequest} and {@link OperationResult}. A message starts with a version
+ * byte, which can never start a JSON document ({@link #isBinary(byte[])}), then the fields in declaration order:
+ * types as {@code ordinal + 1}, {@link BigDecimal}s as a tag, a zig-zag varint scale and the unscaled value (a varint
+ * when it fits a long), strings and lists as varint {@code length + 1}; {@code 0} is null throughout.
+ * Version 2 requests add the expression fields and are only written for requests that have them.
+ */
+public final class OperationWireFormat {
+
+    public static final byte VERSION_1 = 0x01;
+    public static final byte VERSION_2 = 0x02;
+
+    private static final OperationType[] TYPES = OperationType.values();
+    private static final RoundingMode[] ROUNDING_MODES = RoundingMode.values();
+    private static final int DECIMAL_NULL = 0;
+    private static final int DECIMAL_LONG = 1;
+    private static final int DECIMAL_BIG = 2;
+
+    private OperationWireFormat() {
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data.length > 0 && (data[0] == VERSION_1 || data[0] == VERSION_2);
+    }
+
+    public static byte[] encode(OperationRequest request) {
+        boolean expressions = hasExpressionFields(request);
+        Writer writer = new Writer();
+        writer.writeByte(expressions ? VERSION_2 : VERSION_1);
+        writeRequest(writer, request, expressions);
+        return writer.toByteArray();
+    }
+
+    public static byte[] encode(OperationResult result) {
+        Writer writer = new Writer();
+        writer.writeByte(VERSION_1);
+        writeResult(writer, result);
+        return writer.toByteArray();
+    }
+
+    public static OperationRequest decodeRequest(byte[] data) {
+        ByteBuffer buffer = versioned(data, VERSION_2);
+        return readRequest(buffer, data[0] == VERSION_2);
+    }
+
+    public static OperationResult decodeResult(byte[] data) {
+        ByteBuffer buffer = versioned(data, VERSION_1);
+        return readResult(buffer);
+    }
+
+    private static ByteBuffer versioned(byte[] data, byte maxVersion) {
+        if (data.length == 0 || data[0] < VERSION_1 || data[0] > maxVersion) {
+            throw new IllegalArgumentException("Unsupported wire format version: " + (data.length == 0 ? "empty" : data[0]));
+        }
+        return ByteBuffer.wrap(data, 1, data.length - 1);
+    }
+
+    private static boolean hasExpressionFields(OperationRequest request) {
+        if (request.getExpression() != null || request.getVariables() != null || request.getPrecision() != null
+                || request.getRoundingMode() != null) {
+            return true;
+        }
+        if (request.getItems() != null) {
+            for (OperationRequest item : request.getItems()) {
+                if (hasExpressionFields(item)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void writeRequest(Writer writer, OperationRequest request, boolean expressions) {
+        writeType(writer, request.getOperationType());
+        writeDecimal(writer, request.getOperand1());
+        writeDecimal(writer, request.getOperand2());
+        List<OperationRequest> items = request.getItems();
+        writer.writeVarInt(items == null ? 0 : items.size() + 1);
+        if (items != null) {
+            for (OperationRequest item : items) {
+                writeRequest(writer, item, expressions);
+            }
+        }
+        if (expressions) {
+            writeString(writer, request.getExpression());
+            writeVariables(writer, request.getVariables());
+            writer.writeVarLong(request.getPrecision() == null ? 0 : zigZag(request.getPrecision()) + 1);
+            writer.writeByte(request.getRoundingMode() == null ? 0 : request.getRoundingMode().ordinal() + 1);
+        }
+    }
+
+    private static OperationRequest readRequest(ByteBuffer buffer, boolean expressions) {
+        OperationType type = readType(buffer);
+        BigDecimal operand1 = readDecimal(buffer);
+        BigDecimal operand2 = readDecimal(buffer);
+        int size = readSize(buffer) - 1;
+        List<OperationRequest> items = null;
+        if (size >= 0) {
+            items = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                items.add(readRequest(buffer, expressions));
+            }
+        }
+        if (!expressions) {
+            return new OperationRequest(type, operand1, operand2, items, null, null, null, null);
+        }
+        String expression = readString(buffer);
+        Map<String, BigDecimal> variables = readVariables(buffer);
+        long precision = readVarLong(buffer);
+        int roundingMode = buffer.get() & 0xFF;
+        if (roundingMode > ROUNDING_MODES.length) {
+            throw new IllegalArgumentException("Unknown rounding mode " + roundingMode);
+        }
+        return new OperationRequest(type, operand1, operand2, items, expression, variables,
+                precision == 0 ? null : (int) unZigZag(precision - 1),
+                roundingMode == 0 ? null : ROUNDING_MODES[roundingMode - 1]);
+    }
+
+    private static void writeVariables(Writer writer, Map<String, BigDecimal> variables) {
+        writer.writeVarInt(variables == null ? 0 : variables.size() + 1);
+        if (variables != null) {
+            for (Map.Entry<String, BigDecimal> variable : variables.entrySet()) {
+                writeString(writer, variable.getKey());
+                writeDecimal(writer, variable.getValue());
+            }
+        }
+    }
+
+    private static Map<String, BigDecimal> readVariables(ByteBuffer buffer) {
+        int size = readSize(buffer) - 1;
+        if (size < 0) {
+            return null;
+        }
+        Map<String, BigDecimal> variables = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            variables.put(readString(buffer), readDecimal(buffer));
+        }
+        return variables;
+    }
+
+    private static void writeResult(Writer writer, OperationResult result) {
+        writeString(writer, result.getRequestId());
+        writeType(writer, result.getOperationType());
+        writeDecimal(writer, result.getResult());
+        writeString(writer, result.getError());
+        List<OperationResult> items = result.getItems();
+        writer.writeVarInt(items == null ? 0 : items.size() + 1);
+        if (items != null) {
+            for (OperationResult item : items) {
+                writeResult(writer, item);
+            }
+        }
+    }
+
+    private static OperationResult readResult(ByteBuffer buffer) {
+        String requestId = readString(buffer);
+        OperationType type = readType(buffer);
+        BigDecimal value = readDecimal(buffer);
+        String error = readString(buffer);
+        int size = readSize(buffer) - 1;
+        List<OperationResult> items = null;
+        if (size >= 0) {
+            items = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                items.add(readResult(buffer));
+            }
+        }
+        return new OperationResult(requestId, type, value, error, items);
+    }
+
+    private static void writeType(Writer writer, OperationType type) {
+        writer.writeByte(type == null ? 0 : type.ordinal() + 1);
+    }
+
+    private static OperationType readType(ByteBuffer buffer) {
+        int value = buffer.get() & 0xFF;
+        if (value > TYPES.length) {
+            throw new IllegalArgumentException("Unknown operation type " + value);
+        }
+        return value == 0 ? null : TYPES[value - 1];
+    }
+
+    private static void writeDecimal(Writer writer, BigDecimal value) {
+        if (value == null) {
+            writer.writeVarInt(DECIMAL_NULL);
+            return;
+        }
+        if (value.precision() <= 18) {
+            writer.writeVarInt(DECIMAL_LONG);
+            writer.writeVarLong(zigZag(value.scale()));
+            writer.writeVarLong(zigZag(value.unscaledValue().longValue()));
+        } else {
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            writer.writeVarInt(DECIMAL_BIG);
+            writer.writeVarLong(zigZag(value.scale()));
+            writer.writeVarInt(unscaled.length);
+            writer.writeBytes(unscaled);
+        }
+    }
+
+    private static BigDecimal readDecimal(ByteBuffer buffer) {
+        int tag = readVarInt(buffer);
+        if (tag == DECIMAL_NULL) {
+            return null;
+        }
+        int scale = (int) unZigZag(readVarLong(buffer));
+        if (tag == DECIMAL_LONG) {
+            return BigDecimal.valueOf(unZigZag(readVarLong(buffer)), scale);
+        }
+        int length = readVarInt(buffer);
+        checkSize(length, buffer);
+        byte[] unscaled = new byte[length];
+        buffer.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    private static void writeString(Writer writer, String value) {
+        if (value == null) {
+            writer.writeVarInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writer.writeVarInt(bytes.length + 1);
+        writer.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readSize(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads a length or element count ({@code + 1}, {@code 0} for null). Every element takes at least one byte, so a
+     * size beyond the remaining bytes is rejected before anything is allocated for it.
+     */
+    private static int readSize(ByteBuffer buffer) {
+        int size = readVarInt(buffer);
+        if (size != 0) {
+            checkSize(size - 1, buffer);
+        }
+        return size;
+    }
+
+    private static void checkSize(int size, ByteBuffer buffer) {
+        if (size < 0 || size > buffer.remaining()) {
+            throw new IllegalArgumentException("Malformed message: size " + (size & 0xFFFFFFFFL) + " exceeds the "
+                    + buffer.remaining() + " remaining bytes");
+        }
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        return (int) readVarLong(buffer);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /** Minimal growable byte sink; messages are small, so the initial capacity is rarely exceeded. */
+    private static final class Writer {
+        private byte[] bytes = new byte[32];
+        private int size;
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeBytes(byte[] values) {
+            ensureCapacity(values.length);
+            System.arraycopy(values, 0, bytes, size, values.length);
+            size += values.length;
+        }
+
+        void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
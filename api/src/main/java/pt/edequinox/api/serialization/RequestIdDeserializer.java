@@ -0,0 +1,25 @@
+package pt.edequinox.api.serialization;
+
+import pt.edequinox.api.ids.RequestIds;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Kafka key deserializer for request ids written by {@link RequestIdSerializer}: the binary form is turned back into
+ * the canonical id string, anything else is read as UTF-8 like {@code StringDeserializer} does, so keys of older
+ * producers are still read.
+ */
+public class RequestIdDeserializer implements Deserializer<String> {
+
+    @Override
+    public String deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length == 1 + RequestIds.BINARY_LENGTH && data[0] == RequestIdSerializer.BINARY_MARKER) {
+            return RequestIds.fromBytes(data, 1);
+        }
+        return new String(data, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,39 @@
+package pt.edequinox.api.serialization;
+
+import pt.edequinox.api.ids.RequestIds;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Kafka key serializer for request ids. Every id is written as UTF-8, exactly as {@code StringSerializer} does,
+ * unless {@code operation.wire.format=binary} is set: then a canonical id ({@link RequestIds#isCanonical}) is written
+ * in 17 bytes, {@link #BINARY_MARKER} followed by its 16 bytes, which only {@link RequestIdDeserializer} can read.
+ */
+public class RequestIdSerializer implements Serializer<String> {
+
+    // Never the first byte of an id sent as text: HTTP header values and JSON strings cannot contain NUL
+    public static final byte BINARY_MARKER = 0x00;
+
+    private boolean binary;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        binary = OperationSerializer.BINARY.equals(configs.get(OperationSerializer.WIRE_FORMAT_CONFIG));
+    }
+
+    @Override
+    public byte[] serialize(String topic, String requestId) {
+        if (requestId == null) {
+            return null;
+        }
+        if (binary && RequestIds.isCanonical(requestId)) {
+            byte[] bytes = new byte[1 + RequestIds.BINARY_LENGTH];
+            bytes[0] = BINARY_MARKER;
+            System.arraycopy(RequestIds.toBytes(requestId), 0, bytes, 1, RequestIds.BINARY_LENGTH);
+            return bytes;
+        }
+        return requestId.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,46 @@
+package pt.edequinox.api.aot;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.beans.factory.aot.AotServices;
+import pt.edequinox.api.logging.RequestTraceSampler;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiRuntimeHintsTest {
+
+    @Test
+    void hints_CoverJacksonBindingOfTheModels() throws Exception {
+        RuntimeHints hints = new RuntimeHints();
+        new ApiRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onConstructor(OperationRequest.class.getConstructor()).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(OperationResult.class, "getItems").test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onField(OperationRequest.class, "operand1").test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onField(OperationResult.class, "requestId").test(hints));
+    }
+
+    @Test
+    void hints_CoverClassesInstantiatedByName() throws Exception {
+        RuntimeHints hints = new RuntimeHints();
+        new ApiRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        for (Class<?> serializer : ApiRuntimeHints.KAFKA_SERIALIZERS) {
+            assertTrue(RuntimeHintsPredicates.reflection().onConstructor(serializer.getConstructor()).test(hints),
+                    serializer.getName());
+        }
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onMethod(RequestTraceSampler.class, "setSampleRate").test(hints));
+    }
+
+    @Test
+    void registrar_IsListedInAotFactories() {
+        assertTrue(AotServices.factories().load(RuntimeHintsRegistrar.class).stream()
+                .anyMatch(ApiRuntimeHints.class::isInstance));
+    }
+}
@@ -0,0 +1,107 @@
+package pt.edequinox.api.ids;
+
+import org.junit.jupiter.api.Test;
+import pt.edequinox.api.serialization.RequestIdDeserializer;
+import pt.edequinox.api.serialization.RequestIdSerializer;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestIdsTest {
+
+    private static final String TOPIC = "operation-requests";
+
+    @Test
+    void generate_IsAVersion7UuidWithTheNodeAndTime() {
+        long before = System.currentTimeMillis();
+        String id = RequestIds.generate(0xABC);
+        long after = System.currentTimeMillis();
+
+        UUID uuid = UUID.fromString(id);
+        assertEquals(id, uuid.toString());
+        assertTrue(RequestIds.isCanonical(id));
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertEquals(0xABC, uuid.getMostSignificantBits() & RequestIds.MAX_NODE);
+        long millis = uuid.getMostSignificantBits() >>> 16;
+        assertTrue(millis >= before && millis <= after);
+    }
+
+    @Test
+    void generate_IsUniqueAndSortsByTime() {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(ids.add(RequestIds.generate(1)));
+        }
+
+        String older = new UUID(RequestIds.mostSignificantBits(1_700_000_000_000L, 1),
+                RequestIds.leastSignificantBits()).toString();
+        String newer = new UUID(RequestIds.mostSignificantBits(1_700_000_000_001L, 0),
+                RequestIds.leastSignificantBits()).toString();
+        assertTrue(older.compareTo(newer) < 0);
+    }
+
+    @Test
+    void bytes_RoundTrip() {
+        String id = RequestIds.generate(42);
+
+        byte[] bytes = RequestIds.toBytes(id);
+
+        assertEquals(RequestIds.BINARY_LENGTH, bytes.length);
+        assertEquals(id, RequestIds.fromBytes(bytes, 0));
+        assertThrows(IllegalArgumentException.class, () -> RequestIds.toBytes("req-1"));
+        assertThrows(IllegalArgumentException.class, () -> RequestIds.toBytes(id.toUpperCase()));
+    }
+
+    @Test
+    void correlationKey_IsTheRandomHalfOfCanonicalIdsAndAHashOfOthers() {
+        String id = RequestIds.generate(7);
+
+        assertEquals(UUID.fromString(id).getLeastSignificantBits(), RequestIds.correlationKey(id));
+        assertEquals(RequestIds.correlationKey("client-id-1"), RequestIds.correlationKey("client-id-1"));
+        assertNotEquals(RequestIds.correlationKey("client-id-1"), RequestIds.correlationKey("client-id-2"));
+    }
+
+    @Test
+    void keySerde_WritesGeneratedIdsInBinaryAndOtherIdsAsText() {
+        RequestIdSerializer serializer = new RequestIdSerializer();
+        serializer.configure(Map.of("operation.wire.format", "binary"), true);
+        RequestIdDeserializer deserializer = new RequestIdDeserializer();
+        String generated = RequestIds.generate(3);
+
+        byte[] binary = serializer.serialize(TOPIC, generated);
+        byte[] text = serializer.serialize(TOPIC, "client-id-1");
+
+        assertEquals(1 + RequestIds.BINARY_LENGTH, binary.length);
+        assertEquals(generated, deserializer.deserialize(TOPIC, binary));
+        assertArrayEquals("client-id-1".getBytes(), text);
+        assertEquals("client-id-1", deserializer.deserialize(TOPIC, text));
+        assertNull(deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, null)));
+    }
+
+    @Test
+    void keySerde_JsonWireFormatWritesEveryIdAsText() {
+        RequestIdSerializer serializer = new RequestIdSerializer();
+        serializer.configure(Map.of("operation.wire.format", "json"), true);
+        String generated = RequestIds.generate(3);
+
+        byte[] text = serializer.serialize(TOPIC, generated);
+
+        assertArrayEquals(generated.getBytes(), text);
+        assertEquals(generated, new RequestIdDeserializer().deserialize(TOPIC, text));
+    }
+
+    @Test
+    void keySerde_WritesTextUnlessTheBinaryWireFormatIsSet() {
+        RequestIdSerializer serializer = new RequestIdSerializer();
+        serializer.configure(Map.of(), true);
+        String generated = RequestIds.generate(3);
+
+        assertArrayEquals(generated.getBytes(), serializer.serialize(TOPIC, generated));
+        assertArrayEquals(generated.getBytes(), new RequestIdSerializer().serialize(TOPIC, generated));
+    }
+}
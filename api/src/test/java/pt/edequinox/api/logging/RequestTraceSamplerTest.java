@@ -0,0 +1,63 @@
+package pt.edequinox.api.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pt.edequinox.api.filters.FiltersContext;
+
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTraceSamplerTest {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+    private final Logger appLogger = loggerContext.getLogger("pt.edequinox.calculator.services.CalculatorService");
+    private final RequestTraceSampler sampler = new RequestTraceSampler();
+
+    @AfterEach
+    void tearDown() {
+        FiltersContext.remove();
+    }
+
+    @Test
+    void disabledByDefault() {
+        FiltersContext.put("req-1");
+        assertEquals(FilterReply.NEUTRAL, sampler.decide(null, appLogger, Level.DEBUG, "msg", null, null));
+    }
+
+    @Test
+    void sampledRequest_AcceptsDebugOfApplicationLoggersOnly() {
+        sampler.setSampleRate(1);
+        FiltersContext.put("req-1");
+
+        assertEquals(FilterReply.ACCEPT, sampler.decide(null, appLogger, Level.DEBUG, "msg", null, null));
+        assertEquals(FilterReply.NEUTRAL, sampler.decide(null, appLogger, Level.TRACE, "msg", null, null));
+        assertEquals(FilterReply.NEUTRAL,
+                sampler.decide(null, loggerContext.getLogger("org.apache.kafka"), Level.DEBUG, "msg", null, null));
+
+        FiltersContext.remove();
+        assertEquals(FilterReply.NEUTRAL, sampler.decide(null, appLogger, Level.DEBUG, "msg", null, null));
+    }
+
+    @Test
+    void sampleRate_IsHonouredAndStablePerRequestId() {
+        sampler.setSampleRate(0.1);
+        Random random = new Random(42);
+        int sampled = 0;
+        int requests = 100_000;
+        for (int i = 0; i < requests; i++) {
+            String requestId = new UUID(random.nextLong(), random.nextLong()).toString();
+            boolean decision = sampler.isSampled(requestId);
+            assertEquals(decision, sampler.isSampled(requestId));
+            if (decision) {
+                sampled++;
+            }
+        }
+        assertEquals(0.1, sampled / (double) requests, 0.01);
+    }
+}
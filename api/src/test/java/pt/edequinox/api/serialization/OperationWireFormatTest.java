@@ -0,0 +1,173 @@
+package pt.edequinox.api.serialization;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationWireFormatTest {
+
+    private static final String TOPIC = "operation-requests";
+
+    @Test
+    void request_RoundTripsOperandsWithScale() {
+        OperationRequest request = new OperationRequest(OperationType.DIVISION,
+                new BigDecimal("-12345.6780"), new BigDecimal("1E+3"));
+
+        OperationRequest decoded = OperationWireFormat.decodeRequest(OperationWireFormat.encode(request));
+
+        assertEquals(OperationType.DIVISION, decoded.getOperationType());
+        assertEquals(request.getOperand1(), decoded.getOperand1());
+        assertEquals(request.getOperand2(), decoded.getOperand2());
+        assertNull(decoded.getItems());
+    }
+
+    @Test
+    void request_RoundTripsOperandsBeyondLongRange() {
+        BigDecimal huge = new BigDecimal("-" + "9".repeat(60) + "." + "1".repeat(40));
+        OperationRequest request = new OperationRequest(OperationType.MULTIPLICATION, huge, BigDecimal.ZERO);
+
+        OperationRequest decoded = OperationWireFormat.decodeRequest(OperationWireFormat.encode(request));
+
+        assertEquals(huge, decoded.getOperand1());
+        assertEquals(BigDecimal.ZERO, decoded.getOperand2());
+    }
+
+    @Test
+    void batch_RoundTripsItemsAndErrors() {
+        OperationRequest batch = new OperationRequest(List.of(
+                new OperationRequest(OperationType.ADDITION, new BigDecimal("2"), new BigDecimal("3")),
+                new OperationRequest(OperationType.DIVISION, BigDecimal.ONE, BigDecimal.ZERO)));
+        OperationResult reply = new OperationResult("req-1", List.of(
+                new OperationResult(null, OperationType.ADDITION, new BigDecimal("5")),
+                new OperationResult(null, "Division by zero is not allowed.")));
+
+        OperationRequest decodedBatch = OperationWireFormat.decodeRequest(OperationWireFormat.encode(batch));
+        OperationResult decodedReply = OperationWireFormat.decodeResult(OperationWireFormat.encode(reply));
+
+        assertEquals(OperationType.BATCH, decodedBatch.getOperationType());
+        assertEquals(2, decodedBatch.getItems().size());
+        assertEquals(new BigDecimal("3"), decodedBatch.getItems().get(0).getOperand2());
+        assertEquals("req-1", decodedReply.getRequestId());
+        assertEquals(new BigDecimal("5"), decodedReply.getItems().get(0).getResult());
+        assertEquals("Division by zero is not allowed.", decodedReply.getItems().get(1).getError());
+    }
+
+    @Test
+    void expression_RoundTripsAsVersion2() {
+        OperationRequest request = new OperationRequest("(a + b) * c / d",
+                Map.of("a", new BigDecimal("1.5"), "b", BigDecimal.TEN, "c", new BigDecimal("-2"), "d", new BigDecimal("3")),
+                20, RoundingMode.HALF_EVEN);
+        OperationRequest binaryOperation = new OperationRequest(OperationType.ADDITION, BigDecimal.ONE, BigDecimal.TEN);
+
+        byte[] encoded = OperationWireFormat.encode(request);
+        OperationRequest decoded = OperationWireFormat.decodeRequest(encoded);
+
+        assertEquals(OperationWireFormat.VERSION_2, encoded[0]);
+        assertEquals(OperationWireFormat.VERSION_1, OperationWireFormat.encode(binaryOperation)[0]);
+        assertEquals(OperationType.EXPRESSION, decoded.getOperationType());
+        assertEquals("(a + b) * c / d", decoded.getExpression());
+        assertEquals(request.getVariables(), decoded.getVariables());
+        assertEquals(20, decoded.getPrecision());
+        assertEquals(RoundingMode.HALF_EVEN, decoded.getRoundingMode());
+        assertNull(decoded.getOperand1());
+    }
+
+    @Test
+    void binaryMessage_IsSmallerThanJson() {
+        OperationRequest request = new OperationRequest(OperationType.ADDITION, new BigDecimal("2"), new BigDecimal("3"));
+
+        try (JsonSerializer<OperationRequest> json = new JsonSerializer<>();
+             OperationRequestSerializer binary = new OperationRequestSerializer()) {
+            binary.configure(Map.of(OperationSerializer.WIRE_FORMAT_CONFIG, OperationSerializer.BINARY), false);
+            assertTrue(binary.serialize(TOPIC, request).length < json.serialize(TOPIC, request).length / 4);
+        }
+    }
+
+    @Test
+    void deserializer_AcceptsJsonAndBinary() {
+        OperationResult result = new OperationResult("req-1", OperationType.ADDITION, new BigDecimal("5.00"));
+
+        try (OperationResultDeserializer deserializer = new OperationResultDeserializer();
+             OperationResultSerializer binary = new OperationResultSerializer();
+             OperationResultSerializer json = new OperationResultSerializer()) {
+            binary.configure(Map.of(OperationSerializer.WIRE_FORMAT_CONFIG, OperationSerializer.BINARY), false);
+            json.configure(Map.of(OperationSerializer.WIRE_FORMAT_CONFIG, OperationSerializer.JSON), false);
+
+            OperationResult fromBinary = deserializer.deserialize(TOPIC, binary.serialize(TOPIC, result));
+            OperationResult fromJson = deserializer.deserialize(TOPIC, json.serialize(TOPIC, result));
+
+            assertEquals(new BigDecimal("5.00"), fromBinary.getResult());
+            assertEquals(new BigDecimal("5.00"), fromJson.getResult());
+            assertEquals("req-1", fromJson.getRequestId());
+        }
+    }
+
+    @Test
+    void serializer_WritesJsonUnlessTheBinaryFormatIsSet() {
+        OperationResult result = new OperationResult("req-1", OperationType.ADDITION, new BigDecimal("5"));
+
+        try (OperationResultSerializer unconfigured = new OperationResultSerializer();
+             OperationResultSerializer configured = new OperationResultSerializer()) {
+            configured.configure(Map.of(), false);
+
+            assertEquals('{', unconfigured.serialize(TOPIC, result)[0]);
+            assertEquals('{', configured.serialize(TOPIC, result)[0]);
+        }
+    }
+
+    @Test
+    void jsonDeserializer_AcceptsResultsBeyondJacksonsNumberLength() {
+        BigDecimal product = BigDecimal.TEN.pow(1000).subtract(BigDecimal.ONE).pow(2);
+        OperationResult result = new OperationResult("req-1", OperationType.MULTIPLICATION, product);
+
+        try (OperationResultDeserializer deserializer = new OperationResultDeserializer();
+             OperationResultSerializer json = new OperationResultSerializer()) {
+            json.configure(Map.of(OperationSerializer.WIRE_FORMAT_CONFIG, OperationSerializer.JSON), false);
+
+            assertEquals(product, deserializer.deserialize(TOPIC, json.serialize(TOPIC, result)).getResult());
+        }
+    }
+
+    @Test
+    void expression_KeepsNegativeAndZeroPrecisionsApartFromNull() {
+        for (Integer precision : new Integer[]{null, 0, -1, -5, Integer.MIN_VALUE, Integer.MAX_VALUE}) {
+            OperationRequest request = new OperationRequest("a", Map.of("a", BigDecimal.ONE), precision, null);
+
+            assertEquals(precision, OperationWireFormat.decodeRequest(OperationWireFormat.encode(request)).getPrecision());
+        }
+    }
+
+    @Test
+    void decode_RejectsUnknownRoundingModesAndTypes() {
+        byte[] encoded = OperationWireFormat.encode(new OperationRequest("a", Map.of("a", BigDecimal.ONE), 5,
+                RoundingMode.values()[RoundingMode.values().length - 1]));
+        encoded[encoded.length - 1]++;
+        byte[] unknownType = {OperationWireFormat.VERSION_1, (byte) (OperationType.values().length + 1), 0, 0, 0};
+
+        assertThrows(IllegalArgumentException.class, () -> OperationWireFormat.decodeRequest(encoded));
+        assertThrows(IllegalArgumentException.class, () -> OperationWireFormat.decodeRequest(unknownType));
+    }
+
+    @Test
+    void decode_RejectsSizesBeyondTheMessage() {
+        // Version 1 ADDITION request with null operands and 2^31 - 2 items, but no bytes left for them
+        byte[] itemCount = {OperationWireFormat.VERSION_1, 1, 0, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        // Version 1 result with null id and type, then a big decimal claiming 1000 unscaled bytes
+        byte[] unscaledLength = {OperationWireFormat.VERSION_1, 0, 0, 2, 0, (byte) 0xE8, 0x07, 1};
+        // Version 1 result whose request id claims 100 bytes
+        byte[] stringLength = {OperationWireFormat.VERSION_1, 101, 'a'};
+
+        assertThrows(IllegalArgumentException.class, () -> OperationWireFormat.decodeRequest(itemCount));
+        assertThrows(IllegalArgumentException.class, () -> OperationWireFormat.decodeResult(unscaledLength));
+        assertThrows(IllegalArgumentException.class, () -> OperationWireFormat.decodeResult(stringLength));
+    }
+}
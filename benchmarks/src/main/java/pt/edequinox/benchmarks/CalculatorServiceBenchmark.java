@@ -0,0 +1,68 @@
+package pt.edequinox.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.core.expressions.ExpressionCache;
+import pt.edequinox.core.services.CalculatorService;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CalculatorService#performOperation} per operation type and operand size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CalculatorServiceBenchmark {
+
+    @Param({"ADDITION", "SUBTRACTION", "MULTIPLICATION", "DIVISION"})
+    private OperationType operationType;
+
+    @Param({"SMALL_INTEGER", "DECIMAL", "LONG_OVERFLOW", "HUGE"})
+    private OperandSize operandSize;
+
+    private CalculatorService calculatorService;
+    private OperationRequest request;
+
+    @Setup
+    public void setUp() {
+        calculatorService = new CalculatorService(new ExpressionCache(0, new SimpleMeterRegistry()));
+        request = new OperationRequest(operationType, operandSize.operand1, operandSize.operand2);
+    }
+
+    @Benchmark
+    public BigDecimal performOperation() {
+        return calculatorService.performOperation(request);
+    }
+
+    public enum OperandSize {
+        SMALL_INTEGER("2", "3"),
+        DECIMAL("12345.678", "3.25"),
+        LONG_OVERFLOW("9223372036854775807", "9223372036854775806"),
+        HUGE("1" + "7".repeat(500) + ".5", "3" + "1".repeat(250) + ".25");
+
+        final BigDecimal operand1;
+        final BigDecimal operand2;
+
+        OperandSize(String operand1, String operand2) {
+            this.operand1 = new BigDecimal(operand1);
+            this.operand2 = new BigDecimal(operand2);
+        }
+    }
+}
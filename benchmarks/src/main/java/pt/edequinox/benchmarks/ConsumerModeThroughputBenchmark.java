@@ -0,0 +1,123 @@
+package pt.edequinox.benchmarks;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.api.serialization.OperationRequestSerializer;
+import pt.edequinox.calculator.CalculatorApplication;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculator throughput per {@code app.consumer.mode}: {@code batch} (at-least-once, offsets committed after each
+ * poll's results are flushed) against {@code transactional} (exactly-once, one Kafka transaction per poll).
+ * Each invocation publishes {@value #RECORDS} requests to an embedded broker and waits until as many results are
+ * readable by a {@code read_committed} consumer; the score is in records per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConsumerModeThroughputBenchmark {
+
+    static final int RECORDS = 10_000;
+    private static final String REQUEST_TOPIC = "operation-requests";
+    private static final String RESULT_TOPIC = "operation-results";
+
+    @Param({"batch", "transactional"})
+    private String consumerMode;
+
+    private EmbeddedKafkaBroker broker;
+    private ConfigurableApplicationContext calculator;
+    private KafkaProducer<String, OperationRequest> requestProducer;
+    private KafkaConsumer<byte[], byte[]> resultConsumer;
+    private OperationRequest request;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        broker = new EmbeddedKafkaKraftBroker(1, 1, REQUEST_TOPIC, RESULT_TOPIC)
+                .brokerProperties(Map.of("transaction.state.log.replication.factor", "1",
+                        "transaction.state.log.min.isr", "1"));
+        broker.afterPropertiesSet();
+
+        calculator = new SpringApplicationBuilder(CalculatorApplication.class)
+                .run(ServiceConfig.location(CalculatorApplication.class, "roundtrip-calculator"),
+                        "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                        "--app.consumer.mode=" + consumerMode);
+
+        requestProducer = new KafkaProducer<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ProducerConfig.LINGER_MS_CONFIG, 5,
+                ProducerConfig.BATCH_SIZE_CONFIG, 65536),
+                new StringSerializer(), new OperationRequestSerializer());
+        resultConsumer = new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed",
+                ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5000),
+                new ByteArrayDeserializer(), new ByteArrayDeserializer());
+        TopicPartition results = new TopicPartition(RESULT_TOPIC, 0);
+        resultConsumer.assign(List.of(results));
+        resultConsumer.seekToEnd(List.of(results));
+        resultConsumer.position(results);
+        request = new OperationRequest(OperationType.MULTIPLICATION, new BigDecimal("12.5"), new BigDecimal("4"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        resultConsumer.close();
+        requestProducer.close();
+        calculator.close();
+        broker.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public int consumeProcessProduce() {
+        for (int i = 0; i < RECORDS; i++) {
+            requestProducer.send(new ProducerRecord<>(REQUEST_TOPIC, "bench-" + sequence++, request));
+        }
+        requestProducer.flush();
+
+        int received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (received < RECORDS) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("Only " + received + " of " + RECORDS + " results within 60 s");
+            }
+            received += resultConsumer.poll(Duration.ofMillis(100)).count();
+        }
+        return received;
+    }
+}
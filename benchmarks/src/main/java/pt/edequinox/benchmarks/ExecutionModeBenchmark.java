@@ -0,0 +1,98 @@
+package pt.edequinox.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.calculator.CalculatorApplication;
+import pt.edequinox.rest.RestApplication;
+import pt.edequinox.rest.services.RequestResponseService;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request latency per {@code app.execution.mode} of the rest service: {@code kafka} (round trip through an embedded
+ * broker to a calculator context, as in {@link RoundTripBenchmark}), {@code local} (evaluated in-process) and
+ * {@code hybrid} (in-process for {@code SMALL} operands, through Kafka for {@code LARGE} ones, whose operands have
+ * more digits than {@code app.execution.hybrid.max-digits}).
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionModeBenchmark {
+
+    @Param({"kafka", "local", "hybrid"})
+    private String executionMode;
+
+    @Param({"SMALL", "LARGE"})
+    private Operands operands;
+
+    private EmbeddedKafkaBroker broker;
+    private ConfigurableApplicationContext calculator;
+    private ConfigurableApplicationContext rest;
+    private RequestResponseService requestResponseService;
+    private OperationRequest request;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        broker = new EmbeddedKafkaKraftBroker(1, 1, "operation-requests", "operation-results");
+        broker.afterPropertiesSet();
+        String bootstrap = "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString();
+
+        calculator = new SpringApplicationBuilder(CalculatorApplication.class)
+                .run(ServiceConfig.location(CalculatorApplication.class, "roundtrip-calculator"),
+                        bootstrap, "--app.consumer.mode=batch");
+        rest = new SpringApplicationBuilder(RestApplication.class)
+                .run(ServiceConfig.location(RestApplication.class, "roundtrip-rest"),
+                        bootstrap, "--app.execution.mode=" + executionMode);
+        requestResponseService = rest.getBean(RequestResponseService.class);
+        request = new OperationRequest(OperationType.MULTIPLICATION, operands.operand1, operands.operand2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        rest.close();
+        calculator.close();
+        broker.destroy();
+    }
+
+    @Benchmark
+    public OperationResult request() throws Exception {
+        return requestResponseService.sendAndReceiveAsync(request, "bench-" + sequence++).get(10, TimeUnit.SECONDS);
+    }
+
+    public enum Operands {
+        SMALL(new BigDecimal("12.5"), new BigDecimal("4")),
+        // 150 digits: above the benchmark's hybrid.max-digits of 100
+        LARGE(new BigDecimal("9".repeat(150)), new BigDecimal("1.5"));
+
+        final BigDecimal operand1;
+        final BigDecimal operand2;
+
+        Operands(BigDecimal operand1, BigDecimal operand2) {
+            this.operand1 = operand1;
+            this.operand2 = operand2;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package pt.edequinox.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.core.expressions.ExpressionCache;
+import pt.edequinox.core.services.CalculatorService;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CalculatorService#performOperation} of EXPRESSION requests, with the compiled expression taken from the
+ * {@link ExpressionCache} ({@code cached=true}) or parsed and compiled on every evaluation ({@code cached=false}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExpressionBenchmark {
+
+    @Param({"true", "false"})
+    private boolean cached;
+
+    @Param({"SHORT", "POLYNOMIAL"})
+    private Expression expression;
+
+    private CalculatorService calculatorService;
+    private OperationRequest request;
+
+    @Setup
+    public void setUp() {
+        calculatorService = new CalculatorService(cached
+                ? new ExpressionCache(1000, new SimpleMeterRegistry())
+                : new ExpressionCache(0, new SimpleMeterRegistry()));
+        request = new OperationRequest(expression.text, Map.of(
+                "a", new BigDecimal("12.5"), "b", new BigDecimal("4"), "c", new BigDecimal("-3.25"),
+                "d", new BigDecimal("7"), "x", new BigDecimal("1.0625")), null, null);
+    }
+
+    @Benchmark
+    public BigDecimal performOperation() {
+        return calculatorService.performOperation(request);
+    }
+
+    public enum Expression {
+        SHORT("(a + b) * c / d"),
+        POLYNOMIAL("a * x * x * x * x + b * x * x * x - c * x * x + d * x - (a + b) / (c - d) * 0.5");
+
+        final String text;
+
+        Expression(String text) {
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package pt.edequinox.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.api.serialization.OperationResultSerializer;
+import pt.edequinox.calculator.components.OperationConsumer;
+import pt.edequinox.calculator.components.OperationLane;
+import pt.edequinox.calculator.journal.OperationJournal;
+import pt.edequinox.calculator.services.ResultProducer;
+import pt.edequinox.core.expressions.ExpressionCache;
+import pt.edequinox.core.services.CalculatorService;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculator consumer throughput with the operation journal ({@code app.journal.enabled}) off and on: one listener
+ * batch of {@value #RECORDS} records through {@code OperationConsumer.handleOperationRequests}, with Kafka replaced by
+ * a {@link MockProducer} so the journal's share of the hot path is not hidden by broker round trips. The journal is
+ * flushed by its own thread at the default interval, as in production; the score is in records per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JournalBenchmark {
+
+    static final int RECORDS = 500;
+
+    @Param({"off", "on"})
+    private String journaling;
+
+    private MockProducer<String, OperationResult> resultProducer;
+    private OperationConsumer operationConsumer;
+    private OperationJournal journal;
+    private Path directory;
+    private List<ConsumerRecord<String, OperationRequest>> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        batch = new ArrayList<>(RECORDS);
+        for (int i = 0; i < RECORDS; i++) {
+            batch.add(new ConsumerRecord<>("operation-requests", 0, i, "bench-" + i,
+                    new OperationRequest(OperationType.MULTIPLICATION, new BigDecimal("12.5"), BigDecimal.valueOf(i))));
+        }
+    }
+
+    // A new journal per iteration, so the segments of a whole run never pile up on disk
+    @Setup(Level.Iteration)
+    public void openJournal() throws IOException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        if ("on".equals(journaling)) {
+            directory = Files.createTempDirectory("journal-benchmark");
+            journal = new OperationJournal(directory, DataSize.ofMegabytes(64), 64, Duration.ofMillis(200),
+                    meterRegistry);
+        }
+        resultProducer = new LoggingBenchmark.SharedMockProducer<>(new OperationResultSerializer());
+        CalculatorService calculatorService = new CalculatorService(new ExpressionCache(0, meterRegistry));
+        operationConsumer = new OperationConsumer(calculatorService,
+                new ResultProducer(new KafkaTemplate<>(() -> resultProducer), "operation-results", meterRegistry),
+                meterRegistry, null, journal, OperationLane.unbounded("fast"), OperationLane.unbounded("slow"));
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public int consume() {
+        operationConsumer.handleOperationRequests(batch);
+        int sent = resultProducer.history().size();
+        resultProducer.clear();
+        return sent;
+    }
+}
@@ -0,0 +1,192 @@
+package pt.edequinox.benchmarks;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import pt.edequinox.api.filters.FiltersContext;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.api.serialization.OperationRequestSerializer;
+import pt.edequinox.api.serialization.OperationResultSerializer;
+import pt.edequinox.calculator.components.OperationConsumer;
+import pt.edequinox.calculator.components.OperationLane;
+import pt.edequinox.calculator.services.ResultProducer;
+import pt.edequinox.core.expressions.ExpressionCache;
+import pt.edequinox.core.services.CalculatorService;
+import pt.edequinox.rest.components.ResultConsumer;
+import pt.edequinox.rest.services.LocalOperationExecutor;
+import pt.edequinox.rest.services.OperationProducer;
+import pt.edequinox.rest.services.OperationResultCache;
+import pt.edequinox.rest.services.PendingRequestRegistry;
+import pt.edequinox.rest.services.RequestResponseService;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of logging along the whole request path ({@code RequestResponseService} → {@code OperationProducer}
+ * → {@code OperationConsumer} → {@code CalculatorService} → {@code ResultProducer} → {@code ResultConsumer}), with Kafka replaced by
+ * {@link MockProducer}s so only the services' own work and their log statements are measured.
+ * <ul>
+ *     <li>{@code OFF}: application loggers at INFO, as configured by default (per-request lines are DEBUG).</li>
+ *     <li>{@code SYNC}: every per-request line written synchronously to a file, as before the async pipeline.</li>
+ *     <li>{@code ASYNC}: the same lines through a bounded, never-blocking {@link AsyncAppender}.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LoggingBenchmark {
+
+    private static final String LOG_PATTERN =
+            "%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{36} - [REQ_ID:%X{request_id}] - %msg%n";
+
+    @Param({"OFF", "SYNC", "ASYNC"})
+    private String logging;
+
+    private Logger applicationLogger;
+    private Appender<ILoggingEvent> appender;
+    private File logFile;
+
+    private MockProducer<String, OperationRequest> requestProducer;
+    private MockProducer<String, OperationResult> resultProducer;
+    private PendingRequestRegistry pendingRequests;
+    private RequestResponseService requestResponseService;
+    private OperationConsumer operationConsumer;
+    private ResultConsumer resultConsumer;
+    private OperationRequest request;
+    private long sequence;
+
+    @Setup
+    public void setUp() throws Exception {
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        applicationLogger = loggerContext.getLogger("pt.edequinox");
+        applicationLogger.setAdditive(false);
+        applicationLogger.setLevel("OFF".equals(logging) ? Level.INFO : Level.DEBUG);
+
+        logFile = File.createTempFile("logging-benchmark", ".log");
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern(LOG_PATTERN);
+        encoder.start();
+        FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+        fileAppender.setContext(loggerContext);
+        fileAppender.setFile(logFile.getAbsolutePath());
+        fileAppender.setEncoder(encoder);
+        fileAppender.start();
+        appender = fileAppender;
+        if ("ASYNC".equals(logging)) {
+            AsyncAppender asyncAppender = new AsyncAppender();
+            asyncAppender.setContext(loggerContext);
+            asyncAppender.setQueueSize(8192);
+            asyncAppender.setNeverBlock(true);
+            asyncAppender.addAppender(fileAppender);
+            asyncAppender.start();
+            appender = asyncAppender;
+        }
+        applicationLogger.addAppender(appender);
+
+        requestProducer = new SharedMockProducer<>(new OperationRequestSerializer());
+        resultProducer = new SharedMockProducer<>(new OperationResultSerializer());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OperationProducer operationProducer = new OperationProducer(new KafkaTemplate<>(() -> requestProducer),
+                "operation-requests", "operation-requests", 0, "operation-results", 0, Duration.ZERO, meterRegistry);
+        CalculatorService calculatorService = new CalculatorService(new ExpressionCache(0, meterRegistry));
+        operationConsumer = new OperationConsumer(calculatorService,
+                new ResultProducer(new KafkaTemplate<>(() -> resultProducer), "operation-results", meterRegistry),
+                meterRegistry, null, null, OperationLane.unbounded("fast"), OperationLane.unbounded("slow"));
+        pendingRequests = new PendingRequestRegistry(Integer.MAX_VALUE, Duration.ofSeconds(10), Duration.ZERO);
+        requestResponseService = new RequestResponseService(operationProducer,
+                new OperationResultCache(false, 0, Duration.ZERO, meterRegistry), pendingRequests,
+                new LocalOperationExecutor("kafka", 0, 0, null, meterRegistry), meterRegistry);
+        resultConsumer = new ResultConsumer(requestResponseService, meterRegistry);
+        request = new OperationRequest(OperationType.MULTIPLICATION, new BigDecimal("12.5"), new BigDecimal("4"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        pendingRequests.shutdown();
+        applicationLogger.detachAppender(appender);
+        appender.stop();
+        applicationLogger.setLevel(null);
+        applicationLogger.setAdditive(true);
+        logFile.delete();
+    }
+
+    @Benchmark
+    public void request() {
+        String requestId = "req-" + sequence++;
+        FiltersContext.put(requestId);
+        try {
+            requestResponseService.sendAndReceiveAsync(request, requestId);
+        } finally {
+            FiltersContext.remove();
+        }
+
+        ProducerRecord<String, OperationRequest> sent = requestProducer.history().get(0);
+        operationConsumer.handleOperationRequests(List.of(consumerRecord(sent)));
+        resultConsumer.handleOperationResult(consumerRecord(resultProducer.history().get(0)));
+
+        requestProducer.clear();
+        resultProducer.clear();
+    }
+
+    private <V> ConsumerRecord<String, V> consumerRecord(ProducerRecord<String, V> sent) {
+        return new ConsumerRecord<>(sent.topic(), 0, sequence, System.currentTimeMillis(), TimestampType.CREATE_TIME,
+                ConsumerRecord.NULL_SIZE, ConsumerRecord.NULL_SIZE, sent.key(), sent.value(), sent.headers(),
+                Optional.empty());
+    }
+
+    /**
+     * {@link KafkaTemplate} closes the producer after every send, expecting a shared producer from the factory
+     * whose {@code close()} is a no-op (as with {@code DefaultKafkaProducerFactory}).
+     */
+    static final class SharedMockProducer<V> extends MockProducer<String, V> {
+
+        SharedMockProducer(Serializer<V> valueSerializer) {
+            super(true, new StringSerializer(), valueSerializer);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void close(Duration timeout) {
+        }
+    }
+}
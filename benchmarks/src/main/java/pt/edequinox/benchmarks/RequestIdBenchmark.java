@@ -0,0 +1,94 @@
+package pt.edequinox.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import pt.edequinox.api.ids.RequestIds;
+import pt.edequinox.rest.services.ConcurrentLongMap;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request id generation and correlation under contention, at 64 threads: {@link UUID#randomUUID()} against
+ * {@link RequestIds#generate}, and registering then removing a pending request in a {@code ConcurrentHashMap} keyed
+ * by the id string against a {@link ConcurrentLongMap} keyed by {@link RequestIds#correlationKey}. Both maps hold
+ * {@value #PENDING} other requests throughout, as the rest service does under load.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class RequestIdBenchmark {
+
+    private static final int PENDING = 10_000;
+    private static final int IDS_PER_THREAD = 1024;
+
+    private final Map<String, Object> stringMap = new ConcurrentHashMap<>();
+    private final ConcurrentLongMap<Object> longMap = new ConcurrentLongMap<>(64);
+    private final Object entry = new Object();
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < PENDING; i++) {
+            String id = RequestIds.generate(0);
+            stringMap.put(id, entry);
+            longMap.put(RequestIds.correlationKey(id), entry);
+        }
+    }
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String requestIds() {
+        return RequestIds.generate(1);
+    }
+
+    @Benchmark
+    public Object concurrentHashMap(ThreadState thread) {
+        String id = thread.next();
+        stringMap.put(id, entry);
+        return stringMap.remove(id);
+    }
+
+    @Benchmark
+    public Object concurrentLongMap(ThreadState thread) {
+        // The key is derived per call, as the registry does for every register and reply
+        long key = RequestIds.correlationKey(thread.next());
+        longMap.put(key, entry);
+        return longMap.remove(key);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final String[] ids = new String[IDS_PER_THREAD];
+        int index;
+
+        @Setup
+        public void setUp() {
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = RequestIds.generate(1);
+            }
+        }
+
+        String next() {
+            return ids[index++ & (IDS_PER_THREAD - 1)];
+        }
+    }
+}
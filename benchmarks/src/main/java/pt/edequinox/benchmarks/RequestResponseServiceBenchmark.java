@@ -0,0 +1,90 @@
+package pt.edequinox.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.rest.services.LocalOperationExecutor;
+import pt.edequinox.rest.services.OperationResultCache;
+import pt.edequinox.rest.services.PendingRequestRegistry;
+import pt.edequinox.rest.services.RequestResponseService;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pending-request registration and completion in {@link RequestResponseService} under contention:
+ * every operation registers a future (arming its timeout), completes it as the reply consumer would and
+ * lets it deregister. Kafka is stubbed out and the result cache is disabled, so every call takes the full path.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class RequestResponseServiceBenchmark {
+
+    // Kafka stubbed out: every request counts as sent at once
+    private static final CompletableFuture<Void> SENT = CompletableFuture.completedFuture(null);
+
+    private final AtomicLong sequence = new AtomicLong();
+    private PendingRequestRegistry pendingRequests;
+    private RequestResponseService service;
+    private OperationResult reply;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        pendingRequests = new PendingRequestRegistry(Integer.MAX_VALUE, Duration.ofSeconds(10), Duration.ZERO);
+        service = new RequestResponseService((request, requestId, receivedAtNanos) -> SENT,
+                new OperationResultCache(false, 0, Duration.ZERO, meterRegistry), pendingRequests,
+                new LocalOperationExecutor("kafka", 0, 0, null, meterRegistry), meterRegistry);
+        reply = new OperationResult(null, OperationType.ADDITION, BigDecimal.valueOf(11));
+    }
+
+    @TearDown
+    public void tearDown() {
+        pendingRequests.shutdown();
+    }
+
+    @Benchmark
+    public CompletableFuture<OperationResult> registerAndComplete(ThreadState thread) {
+        String requestId = thread.prefix + thread.counter++;
+        // Distinct operands per call so requests are not coalesced with each other
+        OperationRequest request = new OperationRequest(OperationType.ADDITION, BigDecimal.valueOf(thread.counter), thread.operand2);
+        CompletableFuture<OperationResult> future = service.sendAndReceiveAsync(request, requestId);
+        service.completeRequest(requestId, reply);
+        return future;
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        String prefix;
+        long counter;
+        BigDecimal operand2;
+
+        @Setup
+        public void setUp(RequestResponseServiceBenchmark benchmark) {
+            long thread = benchmark.sequence.incrementAndGet();
+            prefix = "req-" + thread + "-";
+            operand2 = BigDecimal.valueOf(thread);
+        }
+    }
+}
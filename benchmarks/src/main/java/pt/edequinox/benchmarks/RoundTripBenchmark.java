@@ -0,0 +1,79 @@
+package pt.edequinox.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.calculator.CalculatorApplication;
+import pt.edequinox.rest.RestApplication;
+import pt.edequinox.rest.services.RequestResponseService;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full request/reply round trip: {@link RequestResponseService} in a rest context, through an embedded
+ * Kafka broker, to a calculator context and back. Both applications run in the benchmark JVM, each with
+ * its own configuration ({@link ServiceConfig}). {@code consumerMode} selects the calculator's {@code app.consumer.mode}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoundTripBenchmark {
+
+    @Param({"batch", "parallel"})
+    private String consumerMode;
+
+    private EmbeddedKafkaBroker broker;
+    private ConfigurableApplicationContext calculator;
+    private ConfigurableApplicationContext rest;
+    private RequestResponseService requestResponseService;
+    private OperationRequest request;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        broker = new EmbeddedKafkaKraftBroker(1, 1, "operation-requests", "operation-results");
+        broker.afterPropertiesSet();
+        String bootstrap = "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString();
+
+        calculator = new SpringApplicationBuilder(CalculatorApplication.class)
+                .run(ServiceConfig.location(CalculatorApplication.class, "roundtrip-calculator"),
+                        bootstrap, "--app.consumer.mode=" + consumerMode);
+        rest = new SpringApplicationBuilder(RestApplication.class)
+                .run(ServiceConfig.location(RestApplication.class, "roundtrip-rest"), bootstrap);
+        requestResponseService = rest.getBean(RequestResponseService.class);
+        request = new OperationRequest(OperationType.MULTIPLICATION, new BigDecimal("12.5"), new BigDecimal("4"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        rest.close();
+        calculator.close();
+        broker.destroy();
+    }
+
+    @Benchmark
+    public OperationResult roundTrip() throws Exception {
+        return requestResponseService.sendAndReceiveAsync(request, "bench-" + sequence++).get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,119 @@
+package pt.edequinox.benchmarks;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.api.serialization.OperationRequestDeserializer;
+import pt.edequinox.api.serialization.OperationRequestSerializer;
+import pt.edequinox.api.serialization.OperationResultDeserializer;
+import pt.edequinox.api.serialization.OperationResultSerializer;
+import pt.edequinox.api.serialization.OperationSerializer;
+import pt.edequinox.api.serialization.OperationWireFormat;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kafka value (de)serialization of the request and result models: Spring's JSON (de)serializers as originally
+ * configured in the services, against the binary {@link OperationWireFormat} (de)serializers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+    private static final String TOPIC = "benchmark";
+
+    @Param({"JSON", "BINARY"})
+    private String wireFormat;
+
+    private Serializer<OperationRequest> requestSerializer;
+    private Deserializer<OperationRequest> requestDeserializer;
+    private Serializer<OperationResult> resultSerializer;
+    private Deserializer<OperationResult> resultDeserializer;
+
+    private OperationRequest request;
+    private OperationResult result;
+    private byte[] requestBytes;
+    private byte[] resultBytes;
+
+    @Setup
+    public void setUp() {
+        if ("BINARY".equals(wireFormat)) {
+            requestSerializer = new OperationRequestSerializer();
+            resultSerializer = new OperationResultSerializer();
+            Map<String, String> binary = Map.of(OperationSerializer.WIRE_FORMAT_CONFIG, OperationSerializer.BINARY);
+            requestSerializer.configure(binary, false);
+            resultSerializer.configure(binary, false);
+            requestDeserializer = new OperationRequestDeserializer();
+            resultDeserializer = new OperationResultDeserializer();
+        } else {
+            requestSerializer = new JsonSerializer<>();
+            resultSerializer = new JsonSerializer<>();
+            requestDeserializer = jsonDeserializer(OperationRequest.class);
+            resultDeserializer = jsonDeserializer(OperationResult.class);
+        }
+
+        request = new OperationRequest(OperationType.DIVISION, new BigDecimal("12345.678"), new BigDecimal("3.25"));
+        result = new OperationResult("0b9f3c52-6f0e-4c1e-9d7a-2f5c8e1a4b33", OperationType.DIVISION, new BigDecimal("3798.670"));
+        requestBytes = requestSerializer.serialize(TOPIC, request);
+        resultBytes = resultSerializer.serialize(TOPIC, result);
+    }
+
+    @TearDown
+    public void tearDown() {
+        requestSerializer.close();
+        requestDeserializer.close();
+        resultSerializer.close();
+        resultDeserializer.close();
+    }
+
+    @Benchmark
+    public byte[] serializeRequest() {
+        return requestSerializer.serialize(TOPIC, request);
+    }
+
+    @Benchmark
+    public OperationRequest deserializeRequest() {
+        return requestDeserializer.deserialize(TOPIC, requestBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeResult() {
+        return resultSerializer.serialize(TOPIC, result);
+    }
+
+    @Benchmark
+    public OperationResult deserializeResult() {
+        return resultDeserializer.deserialize(TOPIC, resultBytes);
+    }
+
+    private static <T> JsonDeserializer<T> jsonDeserializer(Class<T> type) {
+        JsonDeserializer<T> deserializer = new JsonDeserializer<>();
+        deserializer.configure(Map.of(
+                JsonDeserializer.TRUSTED_PACKAGES, "*",
+                JsonDeserializer.USE_TYPE_INFO_HEADERS, false,
+                JsonDeserializer.VALUE_DEFAULT_TYPE, type.getName()), false);
+        return deserializer;
+    }
+}
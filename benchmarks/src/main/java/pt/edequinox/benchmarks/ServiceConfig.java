@@ -0,0 +1,27 @@
+package pt.edequinox.benchmarks;
+
+import java.net.URL;
+
+/**
+ * Configuration of the applications the benchmarks start in their JVM. Both ship an {@code application.properties},
+ * and on the shared classpath only one of them is {@code classpath:application.properties}; each context therefore
+ * reads its own from the application's jar, then the benchmark's overrides ({@code <overrides>.properties} in this
+ * module), which only hold what differs.
+ */
+final class ServiceConfig {
+
+    private ServiceConfig() {
+    }
+
+    /**
+     * @return The {@code --spring.config.location} argument for {@code application}'s context.
+     */
+    static String location(Class<?> application, String overrides) {
+        URL codeSource = application.getProtectionDomain().getCodeSource().getLocation();
+        if (!codeSource.getPath().endsWith(".jar")) {
+            throw new IllegalStateException(application.getSimpleName() + " is not loaded from a jar: " + codeSource);
+        }
+        return "--spring.config.location=jar:" + codeSource + "!/application.properties,classpath:/" + overrides
+                + ".properties";
+    }
+}
@@ -0,0 +1,90 @@
+package pt.edequinox.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.calculator.CalculatorApplication;
+import pt.edequinox.rest.RestApplication;
+import pt.edequinox.rest.services.RequestIdGenerator;
+import pt.edequinox.rest.services.RequestResponseService;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Round trip per {@code app.transport} of the rest service, with 8 concurrent callers: {@code kafka} (through an
+ * embedded broker, as in {@link RoundTripBenchmark}) and {@code http} (direct HTTP/2 calls to the calculator
+ * context's {@code /rpc/operations}). Throughput gives the requests per millisecond, SampleTime the latency
+ * distribution under that load.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TransportBenchmark {
+
+    @Param({"kafka", "http"})
+    private String transport;
+
+    private EmbeddedKafkaBroker broker;
+    private ConfigurableApplicationContext calculator;
+    private ConfigurableApplicationContext rest;
+    private RequestResponseService requestResponseService;
+    private RequestIdGenerator requestIds;
+    private final AtomicLong operand = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        broker = new EmbeddedKafkaKraftBroker(1, 1, "operation-requests", "operation-results");
+        broker.afterPropertiesSet();
+        String bootstrap = "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString();
+
+        calculator = new SpringApplicationBuilder(CalculatorApplication.class)
+                .run(ServiceConfig.location(CalculatorApplication.class, "roundtrip-calculator"),
+                        bootstrap, "--app.consumer.mode=batch");
+        String calculatorUri = "http://localhost:" + calculator.getEnvironment().getProperty("local.server.port");
+        rest = new SpringApplicationBuilder(RestApplication.class)
+                .run(ServiceConfig.location(RestApplication.class, "roundtrip-rest"),
+                        bootstrap, "--app.transport=" + transport,
+                        "--app.transport.http.targets=" + calculatorUri);
+        requestResponseService = rest.getBean(RequestResponseService.class);
+        requestIds = rest.getBean(RequestIdGenerator.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        rest.close();
+        calculator.close();
+        broker.destroy();
+    }
+
+    @Benchmark
+    public OperationResult roundTrip() throws Exception {
+        // Distinct operands: concurrent identical operations would share one reply (single-flight)
+        OperationRequest request = new OperationRequest(OperationType.MULTIPLICATION,
+                BigDecimal.valueOf(operand.incrementAndGet(), 1), new BigDecimal("4"));
+        return requestResponseService.sendAndReceiveAsync(request, requestIds.next()).get(10, TimeUnit.SECONDS);
+    }
+}
@@ -3,7 +3,8 @@ package pt.edequinox.calculator;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
-@SpringBootApplication
+// CalculatorService and the expression cache live in the shared core module
+@SpringBootApplication(scanBasePackages = {"pt.edequinox.calculator", "pt.edequinox.core"})
 public class CalculatorApplication {
 
     public static void main(String[] args) {
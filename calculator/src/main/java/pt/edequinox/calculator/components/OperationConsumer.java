@@ -1,16 +1,37 @@
 package pt.edequinox.calculator.components;
 
+import pt.edequinox.api.metrics.TimestampHeaders;
 import pt.edequinox.api.models.OperationRequest;
 import pt.edequinox.api.models.OperationResult;
-import pt.edequinox.calculator.services.CalculatorService;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.calculator.journal.OperationJournal;
 import pt.edequinox.calculator.services.ResultProducer;
+import pt.edequinox.core.services.CalculatorService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Headers;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import pt.edequinox.api.filters.FiltersContext;
 
@@ -20,41 +41,259 @@ public class OperationConsumer {
     private static final Logger logger = LoggerFactory.getLogger(OperationConsumer.class);
     private final CalculatorService calculatorService;
     private final ResultProducer resultProducer;
+    private final Executor operationExecutor;
+    private final OperationJournal journal;
+    private final OperationLane fastLane;
+    private final OperationLane slowLane;
+    private final Timer lagTimer;
+    private final Timer requestLegTimer;
+    private final Timer processingTimer;
+    private final Map<OperationType, Timer> operationSuccessTimers = new EnumMap<>(OperationType.class);
+    private final Map<OperationType, Timer> operationErrorTimers = new EnumMap<>(OperationType.class);
+    private final Map<OperationLane, Counter> expiredCounters = new HashMap<>();
+    private final Map<OperationLane, Counter> overLimitCounters = new HashMap<>();
 
-    public OperationConsumer(CalculatorService calculatorService, ResultProducer resultProducer) {
+    @Autowired
+    public OperationConsumer(CalculatorService calculatorService, ResultProducer resultProducer,
+                             MeterRegistry meterRegistry,
+                             @org.springframework.beans.factory.annotation.Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                             @org.springframework.beans.factory.annotation.Value("${app.consumer.mode:batch}") String consumerMode,
+                             ObjectProvider<OperationJournal> journal,
+                             @org.springframework.beans.factory.annotation.Value("${app.lanes.fast.timeout:0s}") Duration fastTimeout,
+                             @org.springframework.beans.factory.annotation.Value("${app.lanes.fast.max-digits:${app.lanes.slow.max-digits:0}}") int fastMaxDigits,
+                             @org.springframework.beans.factory.annotation.Value("${app.lanes.fast.max-cost:${app.lanes.slow.max-cost:0}}") long fastMaxCost,
+                             @org.springframework.beans.factory.annotation.Value("${app.lanes.slow.timeout:0s}") Duration slowTimeout,
+                             @org.springframework.beans.factory.annotation.Value("${app.lanes.slow.max-digits:0}") int slowMaxDigits,
+                             @org.springframework.beans.factory.annotation.Value("${app.lanes.slow.max-cost:0}") long slowMaxCost) {
+        // Transactional sends must come from the listener thread, which holds the container's transaction
+        this(calculatorService, resultProducer, meterRegistry,
+                virtualThreads && Runtime.version().feature() >= 21 && !"transactional".equals(consumerMode)
+                        ? new VirtualThreadTaskExecutor("operation-") : null,
+                journal.getIfAvailable(),
+                new OperationLane("fast", fastTimeout, fastMaxDigits, fastMaxCost),
+                new OperationLane("slow", slowTimeout, slowMaxDigits, slowMaxCost));
+    }
+
+    /**
+     * @param operationExecutor Where the records of a poll are processed; {@code null} for the listener thread.
+     * @param journal           {@code null} disables journaling.
+     */
+    public OperationConsumer(CalculatorService calculatorService, ResultProducer resultProducer,
+                             MeterRegistry meterRegistry, Executor operationExecutor, OperationJournal journal,
+                             OperationLane fastLane, OperationLane slowLane) {
         this.calculatorService = calculatorService;
         this.resultProducer = resultProducer;
+        this.operationExecutor = operationExecutor;
+        this.journal = journal;
+        this.fastLane = fastLane;
+        this.slowLane = slowLane;
+
+        this.lagTimer = Timer.builder("calculator.consumer.lag")
+                .description("Time between a request record being produced and being consumed")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.requestLegTimer = Timer.builder("calculator.kafka.latency")
+                .description("Latency between services, from the timestamps carried in the Kafka headers")
+                .tag("leg", "request")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.processingTimer = Timer.builder("calculator.consumer.processing")
+                .description("Time to process one request record, up to handing its result to the producer")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        for (OperationType type : OperationType.values()) {
+            operationSuccessTimers.put(type, operationTimer(meterRegistry, type, "success"));
+            operationErrorTimers.put(type, operationTimer(meterRegistry, type, "error"));
+        }
+        for (OperationLane lane : List.of(fastLane, slowLane)) {
+            expiredCounters.put(lane, laneRejectedCounter(meterRegistry, lane, "expired"));
+            overLimitCounters.put(lane, laneRejectedCounter(meterRegistry, lane, "limit"));
+        }
     }
 
-    @KafkaListener(topics = "${app.kafka.topic.requests}", groupId = "calculator-group")
-    public void handleOperationRequest(
-        ConsumerRecord<String, OperationRequest> consumerRecord) {
+    private static Counter laneRejectedCounter(MeterRegistry meterRegistry, OperationLane lane, String reason) {
+        return Counter.builder("calculator.lane.rejected")
+                .description("Requests answered with an error without evaluation: waited past the lane's timeout "
+                        + "(expired) or over its precision caps (limit)")
+                .tag("lane", lane.getName())
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static Timer operationTimer(MeterRegistry meterRegistry, OperationType type, String outcome) {
+        return Timer.builder("calculator.operation")
+                .description("CalculatorService evaluation time per operation type")
+                .tag("type", type.name())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Handles one poll of the fast lane. Results are sent without waiting for each acknowledgement and flushed once
+     * at the end; if one could not be published the batch fails, so its offsets are not committed. With an operation
+     * executor each partition of the poll is one task, which keeps the order within a partition.
+     * @param consumerRecords The records returned by a single poll.
+     */
+    @KafkaListener(topics = "${app.kafka.topic.requests}", groupId = "calculator-group", batch = "true",
+            concurrency = "${app.lanes.fast.concurrency:1}",
+            autoStartup = "#{'${app.consumer.mode:batch}' != 'parallel'}")
+    public void handleOperationRequests(List<ConsumerRecord<String, OperationRequest>> consumerRecords) {
+        handleOperationRequests(consumerRecords, fastLane);
+    }
+
+    /**
+     * Handles one poll of the slow lane, like {@link #handleOperationRequests(List)}.
+     * @param consumerRecords The records returned by a single poll.
+     */
+    @KafkaListener(topics = "${app.kafka.topic.requests-slow:operation-requests-slow}", groupId = "calculator-group",
+            batch = "true", concurrency = "${app.lanes.slow.concurrency:1}",
+            properties = "max.poll.records=${app.lanes.slow.max-poll-records:10}")
+    public void handleSlowOperationRequests(List<ConsumerRecord<String, OperationRequest>> consumerRecords) {
+        handleOperationRequests(consumerRecords, slowLane);
+    }
+
+    private void handleOperationRequests(List<ConsumerRecord<String, OperationRequest>> consumerRecords,
+                                         OperationLane lane) {
+        logger.debug("Processing batch of {} operation requests in the {} lane", consumerRecords.size(), lane.getName());
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[consumerRecords.size()];
+        if (operationExecutor == null) {
+            for (int i = 0; i < sends.length; i++) {
+                sends[i] = handleOperationRequest(consumerRecords.get(i), lane);
+            }
+        } else {
+            // One task per partition, so the records of a partition are still processed in order
+            Map<TopicPartition, List<ConsumerRecord<String, OperationRequest>>> partitions = new LinkedHashMap<>();
+            for (ConsumerRecord<String, OperationRequest> consumerRecord : consumerRecords) {
+                partitions.computeIfAbsent(new TopicPartition(consumerRecord.topic(), consumerRecord.partition()),
+                        partition -> new ArrayList<>()).add(consumerRecord);
+            }
+            List<CompletableFuture<List<CompletableFuture<Void>>>> tasks = new ArrayList<>(partitions.size());
+            for (List<ConsumerRecord<String, OperationRequest>> records : partitions.values()) {
+                tasks.add(CompletableFuture.supplyAsync(() -> {
+                    List<CompletableFuture<Void>> partitionSends = new ArrayList<>(records.size());
+                    for (ConsumerRecord<String, OperationRequest> consumerRecord : records) {
+                        partitionSends.add(handleOperationRequest(consumerRecord, lane));
+                    }
+                    return partitionSends;
+                }, operationExecutor));
+            }
+            int i = 0;
+            for (CompletableFuture<List<CompletableFuture<Void>>> task : tasks) {
+                for (CompletableFuture<Void> send : task.join()) {
+                    sends[i++] = send;
+                }
+            }
+        }
+        resultProducer.flush();
+        // Every send is complete after the flush; a failed one fails the batch (CompletionException)
+        CompletableFuture.allOf(sends).join();
+    }
+
+    /**
+     * Processes one request record of the fast lane; see {@link #handleOperationRequest(ConsumerRecord, OperationLane)}.
+     */
+    CompletableFuture<Void> handleOperationRequest(ConsumerRecord<String, OperationRequest> consumerRecord) {
+        return handleOperationRequest(consumerRecord, fastLane);
+    }
+
+    /**
+     * Processes one request record and hands its result (or error) to the producer. A record past its lane's
+     * timeout or over its caps gets an error reply without being evaluated.
+     * @return The pending send of the reply; completed when Kafka acknowledges it.
+     */
+    CompletableFuture<Void> handleOperationRequest(
+        ConsumerRecord<String, OperationRequest> consumerRecord, OperationLane lane) {
 
             String requestId = consumerRecord.key();
+            long start = System.nanoTime();
+            recordArrival(consumerRecord);
+
+            OperationRequest request = consumerRecord.value();
 
         try {
 
             FiltersContext.put(requestId);
 
-            OperationRequest request = consumerRecord.value();
-            logger.info("Processing operation request: {}", request);
+            logger.debug("Processing operation request: {}", request);
 
-            BigDecimal result = calculatorService.performOperation(request);
-            logger.info("Operation result for request ID {}: {}", requestId, result);
+            if (lane.isExpired(consumerRecord.headers(), TimestampHeaders.nowMicros())) {
+                expiredCounters.get(lane).increment();
+                logger.debug("Request ID {} expired in the {} lane", requestId, lane.getName());
+                return reply(requestId, request,
+                        new OperationResult(requestId, "Request timed out in the " + lane.getName() + " lane"),
+                        consumerRecord.headers());
+            }
+            String exceededLimit = lane.exceededLimit(request);
+            if (exceededLimit != null) {
+                overLimitCounters.get(lane).increment();
+                logger.debug("Request ID {} rejected: {}", requestId, exceededLimit);
+                return reply(requestId, request, new OperationResult(requestId, exceededLimit), consumerRecord.headers());
+            }
+
+            if (request.getOperationType() == OperationType.BATCH) {
+                long batchStart = System.nanoTime();
+                List<OperationResult> items = calculatorService.performBatch(request);
+                operationSuccessTimers.get(OperationType.BATCH).record(System.nanoTime() - batchStart, TimeUnit.NANOSECONDS);
+                logger.debug("Batch of {} operations evaluated for request ID {}", items.size(), requestId);
+                return reply(requestId, request, new OperationResult(requestId, items), consumerRecord.headers());
+            }
+
+            BigDecimal result = timeOperation(request);
+            logger.debug("Operation result for request ID {}: {}", requestId, result);
 
             OperationResult operationResult = new OperationResult(requestId, request.getOperationType(), result);
-            logger.info("Calculated result: {}", result);
-            resultProducer.sendOperationResult(operationResult, requestId);
+            return reply(requestId, request, operationResult, consumerRecord.headers());
         } catch (ArithmeticException e) {
             logger.error("Error performing operation for request ID {}: {}", requestId, e.getMessage());
             OperationResult errorResult = new OperationResult(requestId, e.getMessage());
-            resultProducer.sendOperationResult(errorResult, requestId);
+            return reply(requestId, request, errorResult, consumerRecord.headers());
         } catch (Exception e) {
             logger.error("Unexpected error for request ID {}: {}", requestId, e.getMessage());
             OperationResult errorResult = new OperationResult(requestId, e.getMessage());
-            resultProducer.sendOperationResult(errorResult, requestId);
+            return reply(requestId, request, errorResult, consumerRecord.headers());
         } finally {
             FiltersContext.remove();
+            processingTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private CompletableFuture<Void> reply(String requestId, OperationRequest request, OperationResult result,
+                                          Headers headers) {
+        if (journal != null) {
+            try {
+                journal.append(requestId, request, result);
+            } catch (RuntimeException e) {
+                // The reply matters more than its journal entry
+                logger.error("Could not journal request ID {}: {}", requestId, e.getMessage());
+            }
+        }
+        return resultProducer.sendOperationResult(result, requestId, headers);
+    }
+
+    private void recordArrival(ConsumerRecord<String, OperationRequest> consumerRecord) {
+        if (consumerRecord.timestamp() >= 0) {
+            lagTimer.record(Math.max(0, System.currentTimeMillis() - consumerRecord.timestamp()), TimeUnit.MILLISECONDS);
+        }
+        Duration requestLeg = TimestampHeaders.elapsedSince(consumerRecord.headers(), TimestampHeaders.REQUEST_SENT_AT);
+        if (requestLeg != null) {
+            requestLegTimer.record(requestLeg);
+        }
+    }
+
+    private BigDecimal timeOperation(OperationRequest request) {
+        OperationType type = request.getOperationType();
+        if (type == null) {
+            return calculatorService.performOperation(request);
+        }
+        long start = System.nanoTime();
+        try {
+            BigDecimal result = calculatorService.performOperation(request);
+            operationSuccessTimers.get(type).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (RuntimeException e) {
+            operationErrorTimers.get(type).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
         }
     }
 }
\ No newline at end of file
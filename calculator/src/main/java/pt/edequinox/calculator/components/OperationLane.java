@@ -0,0 +1,77 @@
+package pt.edequinox.calculator.components;
+
+import pt.edequinox.api.metrics.TimestampHeaders;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.core.services.OperationCost;
+import org.apache.kafka.common.header.Headers;
+
+import java.time.Duration;
+
+/**
+ * Limits of one request lane of the calculator ({@code app.lanes.fast.*}, {@code app.lanes.slow.*}, and
+ * {@code app.rpc.*} for {@code /rpc/operations}). The rest service routes each request to the fast or the slow lane's
+ * topic by its {@link OperationCost}; each lane has its own listener, so an expensive operation only delays other
+ * expensive ones.
+ * <ul>
+ *     <li>{@code timeout}: a record that waited longer than this since rest sent it is answered with an error
+ *     instead of being evaluated, as is one past the deadline rest set on it; its caller has given up already.</li>
+ *     <li>{@code maxDigits}: the longest number a request may hold ({@link OperationCost#maxDigits}).</li>
+ *     <li>{@code maxCost}: the largest {@link OperationCost#estimate} a request may have.</li>
+ * </ul>
+ * A zero timeout or limit disables it.
+ */
+public final class OperationLane {
+
+    private final String name;
+    private final long timeoutMicros;
+    private final int maxDigits;
+    private final long maxCost;
+
+    public OperationLane(String name, Duration timeout, int maxDigits, long maxCost) {
+        this.name = name;
+        this.timeoutMicros = timeout.toNanos() / 1_000;
+        this.maxDigits = maxDigits;
+        this.maxCost = maxCost;
+    }
+
+    public static OperationLane unbounded(String name) {
+        return new OperationLane(name, Duration.ZERO, 0, 0);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Both times come from rest's clock ({@link TimestampHeaders}); a record without them never expires.
+     * @return {@code true} if {@code nowMicros} is past the record's deadline or {@code timeout} after it was sent.
+     */
+    boolean isExpired(Headers headers, long nowMicros) {
+        return isExpired(TimestampHeaders.get(headers, TimestampHeaders.REQUEST_DEADLINE),
+                TimestampHeaders.get(headers, TimestampHeaders.REQUEST_SENT_AT), nowMicros);
+    }
+
+    /**
+     * @param deadline Epoch microseconds after which rest no longer waits for the reply, or {@code null}.
+     * @param sentAt   Epoch microseconds when rest sent the request, or {@code null}.
+     */
+    public boolean isExpired(Long deadline, Long sentAt, long nowMicros) {
+        if (deadline != null && nowMicros > deadline) {
+            return true;
+        }
+        return timeoutMicros > 0 && sentAt != null && nowMicros - sentAt > timeoutMicros;
+    }
+
+    /**
+     * @return The reason the request exceeds this lane's precision caps, or {@code null} if it is within them.
+     */
+    public String exceededLimit(OperationRequest request) {
+        if (maxDigits > 0 && OperationCost.maxDigits(request) > maxDigits) {
+            return "Operation exceeds the " + name + " lane's limit of " + maxDigits + " digits";
+        }
+        if (maxCost > 0 && OperationCost.estimate(request) > maxCost) {
+            return "Operation exceeds the " + name + " lane's cost limit";
+        }
+        return null;
+    }
+}
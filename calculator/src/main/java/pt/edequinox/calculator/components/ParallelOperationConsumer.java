@@ -0,0 +1,246 @@
+package pt.edequinox.calculator.components;
+
+import pt.edequinox.api.models.OperationRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parallel consumer mode ({@code app.consumer.mode=parallel}): records are fanned out to single-threaded lanes by the
+ * hash of the request id, and each partition is committed only up to its lowest record whose reply Kafka has not
+ * acknowledged ({@link PartitionOffsets}). A failed reply is retried after {@code retry-backoff}, and the record is
+ * skipped once {@code max-attempts} replies failed, so it cannot hold its partition back for good; the container is
+ * paused while {@code max-in-flight} records are pending.
+ */
+@Component
+@ConditionalOnProperty(name = "app.consumer.mode", havingValue = "parallel")
+public class ParallelOperationConsumer {
+
+    public static final String LISTENER_ID = "parallel-operation-consumer";
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelOperationConsumer.class);
+    private final OperationConsumer operationConsumer;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final ExecutorService[] lanes;
+    private final ScheduledExecutorService retries;
+    private final long retryBackoffNanos;
+    private final int maxAttempts;
+    private final Counter skippedCounter;
+    private final int maxInFlight;
+    private final int resumeThreshold;
+    private final Map<TopicPartition, PartitionOffsets> partitions = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicBoolean paused = new AtomicBoolean();
+
+    public ParallelOperationConsumer(OperationConsumer operationConsumer, KafkaListenerEndpointRegistry listenerRegistry,
+                                     MeterRegistry meterRegistry,
+                                     @org.springframework.beans.factory.annotation.Value("${app.consumer.parallel.lanes}") int lanes,
+                                     @org.springframework.beans.factory.annotation.Value("${app.consumer.parallel.max-in-flight}") int maxInFlight,
+                                     @org.springframework.beans.factory.annotation.Value("${app.consumer.parallel.retry-backoff:1s}") Duration retryBackoff,
+                                     @org.springframework.beans.factory.annotation.Value("${app.consumer.parallel.max-attempts:5}") int maxAttempts) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("app.consumer.parallel.max-attempts must be positive");
+        }
+        this.operationConsumer = operationConsumer;
+        this.listenerRegistry = listenerRegistry;
+        this.maxInFlight = maxInFlight;
+        this.resumeThreshold = maxInFlight / 2;
+        this.lanes = new ExecutorService[lanes > 0 ? lanes : Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < this.lanes.length; i++) {
+            String name = "operation-lane-" + i;
+            this.lanes[i] = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, name));
+        }
+        this.retries = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "operation-retry"));
+        this.retryBackoffNanos = retryBackoff.toNanos();
+        this.maxAttempts = maxAttempts;
+        this.skippedCounter = Counter.builder("calculator.consumer.skipped")
+                .description("Records committed without a reply after max-attempts failed sends")
+                .register(meterRegistry);
+        Gauge.builder("calculator.consumer.inflight", inFlight, AtomicInteger::get)
+                .description("Records dispatched to the parallel consumer lanes and not yet complete")
+                .register(meterRegistry);
+    }
+
+    @KafkaListener(id = LISTENER_ID, topics = "${app.kafka.topic.requests}", groupId = "calculator-group",
+            batch = "true", containerFactory = "parallelListenerContainerFactory")
+    public void handleOperationRequests(List<ConsumerRecord<String, OperationRequest>> consumerRecords,
+                                        Consumer<?, ?> consumer) {
+        logger.debug("Dispatching {} operation requests to {} lanes", consumerRecords.size(), lanes.length);
+        for (ConsumerRecord<String, OperationRequest> consumerRecord : consumerRecords) {
+            dispatch(consumerRecord);
+        }
+        commitCompleted(consumer);
+        if (inFlight.get() >= maxInFlight && paused.compareAndSet(false, true)) {
+            logger.debug("{} records in flight, pausing consumption", inFlight.get());
+            container().pause();
+        }
+    }
+
+    /**
+     * Commits progress and re-checks backpressure while no records arrive, e.g. when the container is paused.
+     */
+    @EventListener(condition = "event.listenerId.startsWith('" + LISTENER_ID + "')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        commitCompleted(event.getConsumer());
+        resumeIfDrained();
+    }
+
+    /**
+     * Commits the completed window of partitions being revoked; called by the container's rebalance listener.
+     * Records still in flight on those partitions are redelivered to their new owner (at-least-once).
+     */
+    public void commitRevoked(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : revoked) {
+            PartitionOffsets partitionOffsets = partitions.remove(partition);
+            long offset = partitionOffsets != null ? partitionOffsets.committable() : -1;
+            if (offset >= 0) {
+                offsets.put(partition, new OffsetAndMetadata(offset));
+            }
+        }
+        if (!offsets.isEmpty()) {
+            consumer.commitSync(offsets);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        retries.shutdownNow();
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            lane.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    int inFlightCount() {
+        return inFlight.get();
+    }
+
+    void commitCompleted(Consumer<?, ?> consumer) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : consumer.assignment()) {
+            PartitionOffsets partitionOffsets = partitions.get(partition);
+            long offset = partitionOffsets != null ? partitionOffsets.committable() : -1;
+            if (offset >= 0) {
+                offsets.put(partition, new OffsetAndMetadata(offset));
+            }
+        }
+        if (!offsets.isEmpty()) {
+            consumer.commitAsync(offsets, (committed, e) -> {
+                if (e != null) {
+                    logger.warn("Failed to commit offsets {}: {}", committed, e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void dispatch(ConsumerRecord<String, OperationRequest> consumerRecord) {
+        PartitionOffsets partitionOffsets = partitions.computeIfAbsent(
+                new TopicPartition(consumerRecord.topic(), consumerRecord.partition()), partition -> new PartitionOffsets());
+        partitionOffsets.dispatched(consumerRecord.offset());
+        inFlight.incrementAndGet();
+        process(consumerRecord, partitionOffsets, 1);
+    }
+
+    private void process(ConsumerRecord<String, OperationRequest> consumerRecord, PartitionOffsets partitionOffsets,
+                         int attempt) {
+        long offset = consumerRecord.offset();
+        ExecutorService lane = lanes[Math.floorMod(Objects.hashCode(consumerRecord.key()), lanes.length)];
+        lane.execute(() -> {
+            CompletableFuture<Void> reply;
+            try {
+                reply = operationConsumer.handleOperationRequest(consumerRecord);
+            } catch (RuntimeException e) {
+                reply = CompletableFuture.failedFuture(e);
+            }
+            reply.whenComplete((sent, throwable) -> {
+                if (throwable == null) {
+                    complete(partitionOffsets, offset);
+                } else {
+                    retry(consumerRecord, partitionOffsets, attempt, throwable);
+                }
+            });
+        });
+    }
+
+    // The offset stays pending, so nothing past it is committed until the reply is sent or the attempts run out
+    private void retry(ConsumerRecord<String, OperationRequest> consumerRecord, PartitionOffsets partitionOffsets,
+                       int attempt, Throwable throwable) {
+        TopicPartition partition = new TopicPartition(consumerRecord.topic(), consumerRecord.partition());
+        if (partitions.get(partition) != partitionOffsets) {
+            // Revoked: the new owner of the partition processes the record again
+            abandon();
+            return;
+        }
+        if (attempt >= maxAttempts) {
+            logger.error("Reply to the record at offset {} of {} was not sent after {} attempts, skipping it: {}",
+                    consumerRecord.offset(), partition, attempt, throwable.getMessage());
+            skippedCounter.increment();
+            complete(partitionOffsets, consumerRecord.offset());
+            return;
+        }
+        logger.warn("Reply to the record at offset {} of {} was not sent, retrying: {}", consumerRecord.offset(),
+                partition, throwable.getMessage());
+        try {
+            retries.schedule(() -> process(consumerRecord, partitionOffsets, attempt + 1), retryBackoffNanos,
+                    TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: left uncommitted for the next owner
+            abandon();
+        }
+    }
+
+    private void complete(PartitionOffsets partitionOffsets, long offset) {
+        partitionOffsets.completed(offset);
+        inFlight.decrementAndGet();
+        resumeIfDrained();
+    }
+
+    private void abandon() {
+        inFlight.decrementAndGet();
+        resumeIfDrained();
+    }
+
+    private void resumeIfDrained() {
+        if (paused.get() && inFlight.get() <= resumeThreshold && paused.compareAndSet(true, false)) {
+            logger.debug("{} records in flight, resuming consumption", inFlight.get());
+            container().resume();
+        }
+    }
+
+    private MessageListenerContainer container() {
+        return listenerRegistry.getListenerContainer(LISTENER_ID);
+    }
+}
@@ -0,0 +1,52 @@
+package pt.edequinox.calculator.components;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Sliding commit window of one partition for out-of-order processing: records are dispatched in offset order
+ * and may complete in any order, and the committable offset only advances past a record once it and every
+ * record before it have completed.
+ * {@link #dispatched} and {@link #committable} are called from the consumer thread, {@link #completed} from
+ * any worker thread.
+ */
+class PartitionOffsets {
+
+    private final ConcurrentSkipListSet<Long> pending = new ConcurrentSkipListSet<>();
+    private long nextOffset = -1;
+    private long committed = -1;
+
+    void dispatched(long offset) {
+        if (committed < 0) {
+            // Position the consumer already has committed (or is reading from) for this partition
+            committed = offset;
+        }
+        pending.add(offset);
+        nextOffset = offset + 1;
+    }
+
+    void completed(long offset) {
+        pending.remove(offset);
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return The offset to commit (the lowest offset not yet completed), or {@code -1} if it has not moved since
+     *         the last call.
+     */
+    long committable() {
+        long next = nextOffset;
+        if (next < 0) {
+            return -1;
+        }
+        Long lowestPending = pending.ceiling(Long.MIN_VALUE);
+        long offset = lowestPending != null ? lowestPending : next;
+        if (offset <= committed) {
+            return -1;
+        }
+        committed = offset;
+        return offset;
+    }
+}
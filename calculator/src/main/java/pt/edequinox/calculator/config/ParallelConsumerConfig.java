@@ -0,0 +1,48 @@
+package pt.edequinox.calculator.config;
+
+import pt.edequinox.calculator.components.ParallelOperationConsumer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ContainerProperties;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Listener container for {@link ParallelOperationConsumer}: the container never commits on its own (the consumer
+ * commits the completed window itself) and publishes idle events so progress is committed while it is paused.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.consumer.mode", havingValue = "parallel")
+public class ParallelConsumerConfig {
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> parallelListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            ObjectProvider<ParallelOperationConsumer> parallelOperationConsumer,
+            @org.springframework.beans.factory.annotation.Value("${app.consumer.parallel.commit-interval}") Duration commitInterval) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        ContainerProperties containerProperties = factory.getContainerProperties();
+        containerProperties.setAckMode(ContainerProperties.AckMode.MANUAL);
+        containerProperties.setIdleEventInterval(commitInterval.toMillis());
+        // Looked up lazily: the consumer's own @KafkaListener needs this factory while the consumer is being created.
+        // Not a bean of its own, which Spring Boot would also apply to the default container factory.
+        containerProperties.setConsumerRebalanceListener(new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                parallelOperationConsumer.getObject().commitRevoked(consumer, partitions);
+            }
+        });
+        return factory;
+    }
+}
@@ -0,0 +1,42 @@
+package pt.edequinox.calculator.config;
+
+import pt.edequinox.calculator.components.OperationConsumer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+
+import java.util.Map;
+
+/**
+ * Exactly-once consume-process-produce for {@link OperationConsumer}: the producer becomes idempotent and
+ * transactional, and the transaction manager is picked up by the default listener container, which then runs
+ * every poll in one transaction. The results published while handling the poll and the poll's offsets are committed
+ * together, or aborted together and the poll is redelivered, so a rebalance or a failed send never leaves a
+ * duplicate or a missing result visible to {@code read_committed} consumers. One transaction covers up to
+ * {@code max-poll-records} records, which amortizes its cost.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.consumer.mode", havingValue = "transactional")
+public class TransactionalConsumerConfig {
+
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer transactionalProducerFactoryCustomizer(
+            @org.springframework.beans.factory.annotation.Value("${app.consumer.transactional.id-prefix}") String transactionIdPrefix) {
+        return producerFactory -> {
+            producerFactory.updateConfigs(Map.of(
+                    ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true,
+                    ProducerConfig.ACKS_CONFIG, "all"));
+            producerFactory.setTransactionIdPrefix(transactionIdPrefix);
+        };
+    }
+
+    // Spring Boot only defines it when spring.kafka.producer.transaction-id-prefix is set
+    @Bean
+    public KafkaTransactionManager<?, ?> kafkaTransactionManager(ProducerFactory<?, ?> producerFactory) {
+        return new KafkaTransactionManager<>(producerFactory);
+    }
+}
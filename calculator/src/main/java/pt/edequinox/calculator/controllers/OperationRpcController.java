@@ -0,0 +1,164 @@
+package pt.edequinox.calculator.controllers;
+
+import pt.edequinox.api.filters.FiltersContext;
+import pt.edequinox.api.metrics.TimestampHeaders;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.api.serialization.OperationWireFormat;
+import pt.edequinox.calculator.components.OperationLane;
+import pt.edequinox.calculator.journal.OperationJournal;
+import pt.edequinox.core.services.CalculatorService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Direct calls from the rest service's {@code http} transport: one operation per {@code POST /rpc/operations}, in the
+ * binary wire format ({@link OperationWireFormat}), answered with its result in the same format. Calls past the
+ * deadline rest sent with them or over the {@code app.rpc.*} caps ({@link OperationLane}) get an error result without
+ * being evaluated, as records of the topics do.
+ */
+@RestController
+@RequestMapping("/rpc")
+public class OperationRpcController {
+
+    private static final Logger logger = LoggerFactory.getLogger(OperationRpcController.class);
+    private final CalculatorService calculatorService;
+    private final OperationJournal journal;
+    private final OperationLane lane;
+    private final Timer successTimer;
+    private final Timer errorTimer;
+    private final Counter expiredCounter;
+    private final Counter overLimitCounter;
+
+    @Autowired
+    public OperationRpcController(CalculatorService calculatorService, ObjectProvider<OperationJournal> journal,
+                                  MeterRegistry meterRegistry,
+                                  @org.springframework.beans.factory.annotation.Value("${app.rpc.max-digits:${app.lanes.slow.max-digits:0}}") int maxDigits,
+                                  @org.springframework.beans.factory.annotation.Value("${app.rpc.max-cost:${app.lanes.slow.max-cost:0}}") long maxCost) {
+        this(calculatorService, journal.getIfAvailable(), meterRegistry,
+                new OperationLane("rpc", Duration.ZERO, maxDigits, maxCost));
+    }
+
+    /**
+     * @param journal {@code null} disables journaling.
+     * @param lane    The caps of the calls; its timeout is unused, calls carry their deadline.
+     */
+    public OperationRpcController(CalculatorService calculatorService, OperationJournal journal,
+                                  MeterRegistry meterRegistry, OperationLane lane) {
+        this.calculatorService = calculatorService;
+        this.journal = journal;
+        this.lane = lane;
+        this.successTimer = rpcTimer(meterRegistry, "success");
+        this.errorTimer = rpcTimer(meterRegistry, "error");
+        this.expiredCounter = rejectedCounter(meterRegistry, lane, "expired");
+        this.overLimitCounter = rejectedCounter(meterRegistry, lane, "limit");
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, OperationLane lane, String reason) {
+        return Counter.builder("calculator.lane.rejected")
+                .description("Requests answered with an error without evaluation: waited past the lane's timeout "
+                        + "(expired) or over its precision caps (limit)")
+                .tag("lane", lane.getName())
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static Timer rpcTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("calculator.rpc.operation")
+                .description("Time to answer one POST /rpc/operations call, decoding and encoding included")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Evaluates one operation.
+     * @param requestId The request id, echoed in the result.
+     * @param deadline  Epoch microseconds after which rest no longer waits for the result, if it sent one.
+     * @param body      The request in the binary wire format.
+     * @return 200 with the result, an operation error included; 400 if the body is not a request.
+     */
+    @PostMapping(path = "/operations", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> handleOperation(@RequestHeader(FiltersContext.REQUEST_ID_HEADER) String requestId,
+                                                  @RequestHeader(value = TimestampHeaders.REQUEST_DEADLINE, required = false) Long deadline,
+                                                  @RequestBody byte[] body) {
+        long start = System.nanoTime();
+        OperationRequest request;
+        try {
+            request = OperationWireFormat.decodeRequest(body);
+        } catch (RuntimeException e) {
+            logger.error("Unreadable request for request ID {}: {}", requestId, e.getMessage());
+            errorTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return ResponseEntity.badRequest().build();
+        }
+
+        OperationResult result;
+        try {
+            FiltersContext.put(requestId);
+            logger.debug("Processing operation request: {}", request);
+            result = evaluate(requestId, request, deadline);
+        } finally {
+            FiltersContext.remove();
+        }
+        if (journal != null) {
+            try {
+                journal.append(requestId, request, result);
+            } catch (RuntimeException e) {
+                // The reply matters more than its journal entry
+                logger.error("Could not journal request ID {}: {}", requestId, e.getMessage());
+            }
+        }
+        (result.getError() == null ? successTimer : errorTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return ResponseEntity.ok(OperationWireFormat.encode(result));
+    }
+
+    private OperationResult evaluate(String requestId, OperationRequest request, Long deadline) {
+        if (lane.isExpired(deadline, null, TimestampHeaders.nowMicros())) {
+            expiredCounter.increment();
+            logger.debug("Request ID {} expired before it was evaluated", requestId);
+            return new OperationResult(requestId, "Request timed out in the " + lane.getName() + " lane");
+        }
+        String exceededLimit = lane.exceededLimit(request);
+        if (exceededLimit != null) {
+            overLimitCounter.increment();
+            logger.debug("Request ID {} rejected: {}", requestId, exceededLimit);
+            return new OperationResult(requestId, exceededLimit);
+        }
+        try {
+            if (request.getOperationType() == OperationType.BATCH) {
+                return new OperationResult(requestId, calculatorService.performBatch(request));
+            }
+            return new OperationResult(requestId, request.getOperationType(), calculatorService.performOperation(request));
+        } catch (RuntimeException e) {
+            logger.error("Error performing operation for request ID {}: {}", requestId, e.getMessage());
+            return new OperationResult(requestId, e.getMessage());
+        }
+    }
+
+    /**
+     * Lets the rest service open its HTTP/2 connections ahead of the first call: cleartext HTTP/2 is negotiated by
+     * upgrading a request without body.
+     */
+    @GetMapping("/ping")
+    public ResponseEntity<Void> ping() {
+        return ResponseEntity.noContent().build();
+    }
+}
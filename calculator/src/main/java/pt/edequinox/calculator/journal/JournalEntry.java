@@ -0,0 +1,13 @@
+package pt.edequinox.calculator.journal;
+
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+
+/**
+ * One operation read back from the journal.
+ * @param sequence Journal sequence, increasing by one per entry across restarts.
+ * @param timestamp When it was appended, in epoch milliseconds.
+ */
+public record JournalEntry(long sequence, long timestamp, String requestId, OperationRequest request,
+                           OperationResult result) {
+}
@@ -0,0 +1,176 @@
+package pt.edequinox.calculator.journal;
+
+import pt.edequinox.api.serialization.OperationWireFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads the segments written by {@link OperationJournal}, which may still be appending to them.
+ * Reading a segment stops at its first zero length or at an entry whose checksum does not match, i.e. one that was
+ * being written when the reader (or a crashed calculator) got to it.
+ */
+public class JournalReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalReader.class);
+
+    private final Path directory;
+
+    public JournalReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Reads the entries with a sequence from {@code fromSequence} to {@code toSequence}, both inclusive, in order.
+     * The index of each segment locates the first entry, so only the requested range is decoded.
+     */
+    public void read(long fromSequence, long toSequence, Consumer<JournalEntry> action) throws IOException {
+        List<Long> segments = JournalSegments.firstSequences(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            long first = segments.get(i);
+            boolean beforeRange = i + 1 < segments.size() && segments.get(i + 1) <= fromSequence;
+            if (beforeRange || first > toSequence) {
+                continue;
+            }
+            ByteBuffer data = map(JournalSegments.segmentFile(directory, first));
+            int position = seek(map(JournalSegments.indexFile(directory, first)), fromSequence);
+            scan(data, position, Integer.MAX_VALUE, entry -> {
+                if (entry.sequence() > toSequence) {
+                    return false;
+                }
+                if (entry.sequence() >= fromSequence) {
+                    action.accept(entry);
+                }
+                return true;
+            });
+        }
+    }
+
+    /**
+     * Every entry of {@code requestId}, in sequence order (more than one if its poll was redelivered).
+     * Only the index slots whose bloom filter matches the id are decoded.
+     */
+    public List<JournalEntry> find(String requestId) throws IOException {
+        int hash = JournalSegments.hash(requestId);
+        List<JournalEntry> found = new ArrayList<>();
+        for (long first : JournalSegments.firstSequences(directory)) {
+            ByteBuffer data = map(JournalSegments.segmentFile(directory, first));
+            ByteBuffer index = map(JournalSegments.indexFile(directory, first));
+            for (int slot = 0; slot + JournalSegments.INDEX_SLOT <= index.capacity(); slot += JournalSegments.INDEX_SLOT) {
+                int count = index.getInt(slot + 12);
+                if (count == 0) {
+                    break;
+                }
+                if (JournalSegments.mightContain(index, slot, hash)) {
+                    scan(data, index.getInt(slot + 8), count, entry -> {
+                        if (requestId.equals(entry.requestId())) {
+                            found.add(entry);
+                        }
+                        return true;
+                    });
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Sequence of the last readable entry in {@code directory}, or {@code 0} if there is none.
+     */
+    static long lastSequence(Path directory) throws IOException {
+        List<Long> segments = JournalSegments.firstSequences(directory);
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        long first = segments.get(segments.size() - 1);
+        long[] last = {first - 1};
+        scan(map(JournalSegments.segmentFile(directory, first)), 0, Integer.MAX_VALUE, entry -> {
+            last[0] = entry.sequence();
+            return true;
+        });
+        return last[0];
+    }
+
+    // Position of the last indexed entry with a sequence not above fromSequence
+    private static int seek(ByteBuffer index, long fromSequence) {
+        int low = 0;
+        int high = index.capacity() / JournalSegments.INDEX_SLOT - 1;
+        int position = 0;
+        while (low <= high) {
+            int slot = (low + high) >>> 1;
+            int offset = slot * JournalSegments.INDEX_SLOT;
+            // Unused slots (count 0) only follow the used ones
+            if (index.getInt(offset + 12) == 0 || index.getLong(offset) > fromSequence) {
+                high = slot - 1;
+            } else {
+                position = index.getInt(offset + 8);
+                low = slot + 1;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Decodes up to {@code limit} entries from {@code position}, while {@code action} returns true.
+     */
+    private static void scan(ByteBuffer data, int position, int limit, EntryVisitor action) {
+        CRC32C crc = new CRC32C();
+        for (int read = 0; read < limit && position + JournalSegments.ENTRY_HEADER <= data.capacity(); read++) {
+            int length = data.getInt(position);
+            int payload = position + JournalSegments.ENTRY_HEADER;
+            if (length < JournalSegments.PAYLOAD_FIXED || payload + length > data.capacity()) {
+                return;
+            }
+            crc.reset();
+            crc.update(data.slice(payload, length));
+            if ((int) crc.getValue() != data.getInt(position + 4)) {
+                logger.warn("Journal entry at position {} has a bad checksum; ignoring the rest of the segment", position);
+                return;
+            }
+            if (!action.visit(decode(data, payload))) {
+                return;
+            }
+            position = payload + length;
+        }
+    }
+
+    private static JournalEntry decode(ByteBuffer data, int payload) {
+        long sequence = data.getLong(payload);
+        long timestamp = data.getLong(payload + 8);
+        byte[] id = new byte[Short.toUnsignedInt(data.getShort(payload + 16))];
+        data.get(payload + 18, id);
+        int offset = payload + 18 + id.length;
+        byte[] request = new byte[data.getInt(offset)];
+        data.get(offset + 4, request);
+        offset += 4 + request.length;
+        byte[] result = new byte[data.getInt(offset)];
+        data.get(offset + 4, result);
+        return new JournalEntry(sequence, timestamp, id.length == 0 ? null : new String(id, StandardCharsets.UTF_8),
+                OperationWireFormat.decodeRequest(request), OperationWireFormat.decodeResult(result));
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return ByteBuffer.allocate(0);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    @FunctionalInterface
+    private interface EntryVisitor {
+        boolean visit(JournalEntry entry);
+    }
+}
@@ -0,0 +1,120 @@
+package pt.edequinox.calculator.journal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.core.expressions.ExpressionCache;
+import pt.edequinox.core.services.CalculatorService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Feeds a range of the journal back through {@link CalculatorService} and reports every entry whose result differs
+ * from the journaled one, e.g. to check that a new version of the calculator still gives the same answers.
+ * Results are compared exactly: the same value with another scale ({@code 2.0} vs {@code 2.00}) is a difference,
+ * and so is an error with another message.
+ * <p>
+ * From the command line: {@code ./gradlew :calculator:replayJournal --args="<directory> [from] [to]"}; the exit
+ * status is {@code 1} when any result differs.
+ */
+public final class JournalReplay {
+
+    private final CalculatorService calculatorService;
+
+    public JournalReplay(CalculatorService calculatorService) {
+        this.calculatorService = calculatorService;
+    }
+
+    public record Mismatch(JournalEntry entry, OperationResult replayed) {
+    }
+
+    public record Report(long replayed, List<Mismatch> mismatches) {
+    }
+
+    /**
+     * Replays the entries from {@code fromSequence} to {@code toSequence}, both inclusive.
+     */
+    public Report replay(JournalReader reader, long fromSequence, long toSequence) throws IOException {
+        long[] replayed = {0};
+        List<Mismatch> mismatches = new ArrayList<>();
+        reader.read(fromSequence, toSequence, entry -> {
+            replayed[0]++;
+            OperationResult result = evaluate(entry.requestId(), entry.request());
+            if (!sameResult(entry.result(), result)) {
+                mismatches.add(new Mismatch(entry, result));
+            }
+        });
+        return new Report(replayed[0], mismatches);
+    }
+
+    // Same reply as OperationConsumer gives for the request
+    private OperationResult evaluate(String requestId, OperationRequest request) {
+        try {
+            if (request.getOperationType() == OperationType.BATCH) {
+                return new OperationResult(requestId, calculatorService.performBatch(request));
+            }
+            return new OperationResult(requestId, request.getOperationType(), calculatorService.performOperation(request));
+        } catch (Exception e) {
+            return new OperationResult(requestId, e.getMessage());
+        }
+    }
+
+    private static boolean sameResult(OperationResult journaled, OperationResult replayed) {
+        if (!Objects.equals(journaled.getOperationType(), replayed.getOperationType())
+                || !Objects.equals(journaled.getResult(), replayed.getResult())
+                || !Objects.equals(journaled.getError(), replayed.getError())) {
+            return false;
+        }
+        List<OperationResult> journaledItems = journaled.getItems();
+        List<OperationResult> replayedItems = replayed.getItems();
+        if (journaledItems == null || replayedItems == null) {
+            return journaledItems == replayedItems;
+        }
+        if (journaledItems.size() != replayedItems.size()) {
+            return false;
+        }
+        for (int i = 0; i < journaledItems.size(); i++) {
+            if (!sameResult(journaledItems.get(i), replayedItems.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String describe(OperationResult result) {
+        if (result.getError() != null) {
+            return "error \"" + result.getError() + "\"";
+        }
+        if (result.getItems() != null) {
+            return result.getItems().stream().map(JournalReplay::describe).toList().toString();
+        }
+        return String.valueOf(result.getResult());
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("Usage: JournalReplay <directory> [fromSequence] [toSequence]");
+            System.exit(2);
+        }
+        long from = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        long to = args.length > 2 ? Long.parseLong(args[2]) : Long.MAX_VALUE;
+
+        // No expression cache: max-size 0
+        CalculatorService calculatorService = new CalculatorService(new ExpressionCache(0, new SimpleMeterRegistry()));
+        Report report = new JournalReplay(calculatorService).replay(new JournalReader(Path.of(args[0])), from, to);
+        for (Mismatch mismatch : report.mismatches()) {
+            JournalEntry entry = mismatch.entry();
+            System.out.printf("#%d %s %s: journal %s, replay %s%n", entry.sequence(), entry.requestId(),
+                    entry.request().getOperationType(), describe(entry.result()), describe(mismatch.replayed()));
+        }
+        System.out.printf("Replayed %d entries, %d differ%n", report.replayed(), report.mismatches().size());
+        if (!report.mismatches().isEmpty()) {
+            System.exit(1);
+        }
+    }
+}
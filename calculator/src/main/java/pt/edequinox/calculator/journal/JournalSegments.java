@@ -0,0 +1,110 @@
+package pt.edequinox.calculator.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * File layout of the operation journal, shared by {@link OperationJournal} and {@link JournalReader}.
+ * <p>
+ * Segment {@code <first sequence, 20 digits>.journal}: entries back to back from offset 0, each one
+ * <ul>
+ *     <li>int payload length ({@code 0} = end of the segment, the file is zero-filled past its last entry)</li>
+ *     <li>int CRC-32C of the payload</li>
+ *     <li>payload: long sequence, long timestamp (epoch millis), short request id length and its UTF-8 bytes,
+ *     int length and {@code OperationWireFormat} bytes of the request, then the same for the result</li>
+ * </ul>
+ * Index {@code <first sequence>.index}: one {@value #INDEX_SLOT}-byte slot per {@code index-interval} entries,
+ * holding the long sequence and int position of its first entry, the int number of entries it covers
+ * ({@code 0} = unused) and a {@value #FILTER_BITS}-bit bloom filter of their request ids.
+ * All numbers are big-endian.
+ */
+final class JournalSegments {
+
+    static final String SEGMENT_SUFFIX = ".journal";
+    static final String INDEX_SUFFIX = ".index";
+    static final int ENTRY_HEADER = 8;
+    // Payload of an entry without request id, request and result bytes
+    static final int PAYLOAD_FIXED = 8 + 8 + 2 + 4 + 4;
+    static final int SEGMENT_TRAILER = 4;
+    static final int MIN_SEGMENT_SIZE = 4096;
+    static final int FILTER_BITS = 512;
+    static final int INDEX_SLOT = 8 + 4 + 4 + FILTER_BITS / 8;
+    private static final int FILTER_OFFSET = 16;
+    // Smallest possible entry: one-byte request and result, empty request id
+    private static final int MIN_ENTRY = ENTRY_HEADER + PAYLOAD_FIXED + 2;
+
+    private JournalSegments() {
+    }
+
+    static Path segmentFile(Path directory, long firstSequence) {
+        return directory.resolve(String.format("%020d", firstSequence) + SEGMENT_SUFFIX);
+    }
+
+    static Path indexFile(Path directory, long firstSequence) {
+        return directory.resolve(String.format("%020d", firstSequence) + INDEX_SUFFIX);
+    }
+
+    /**
+     * First sequences of the segments in {@code directory}, in ascending order.
+     */
+    static List<Long> firstSequences(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    static int payloadLength(byte[] id, byte[] request, byte[] result) {
+        return PAYLOAD_FIXED + id.length + request.length + result.length;
+    }
+
+    static int indexSlots(int segmentSize, int indexInterval) {
+        int maxEntries = segmentSize / MIN_ENTRY;
+        return maxEntries / indexInterval + 1;
+    }
+
+    static int hash(String requestId) {
+        return requestId == null ? 0 : requestId.hashCode();
+    }
+
+    static void addToFilter(ByteBuffer index, int slotOffset, int hash) {
+        long mixed = mix(hash);
+        for (int i = 0; i < 3; i++) {
+            int bit = (int) (mixed >>> (i * 21)) & (FILTER_BITS - 1);
+            int word = slotOffset + FILTER_OFFSET + (bit >>> 6) * 8;
+            index.putLong(word, index.getLong(word) | (1L << (bit & 63)));
+        }
+    }
+
+    static boolean mightContain(ByteBuffer index, int slotOffset, int hash) {
+        long mixed = mix(hash);
+        for (int i = 0; i < 3; i++) {
+            int bit = (int) (mixed >>> (i * 21)) & (FILTER_BITS - 1);
+            if ((index.getLong(slotOffset + FILTER_OFFSET + (bit >>> 6) * 8) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 64-bit finalizer of MurmurHash3, so the three filter bits are independent of each other
+    private static long mix(int hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
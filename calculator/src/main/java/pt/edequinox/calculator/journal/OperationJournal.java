@@ -0,0 +1,317 @@
+package pt.edequinox.calculator.journal;
+
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.serialization.OperationWireFormat;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only binary journal of every operation the calculator evaluated: the request, its result (or error) and
+ * the request id, numbered by a journal sequence.
+ * <p>
+ * Entries go to memory-mapped segment files of {@code app.journal.segment-size} bytes named after the sequence of
+ * their first entry; a full segment is sealed and the next one mapped. {@link #append} only queues the entry, so the
+ * reply path does not pay for it: the flusher thread encodes queued entries, copies them into the mapping and forces
+ * the written pages to disk every {@code app.journal.flush-interval}, so all entries of an interval are committed by
+ * one {@code msync} (group commit). A process crash loses only the entries still queued (the written pages belong to
+ * the OS); a machine crash loses at most the last interval.
+ * <p>
+ * Each segment has a sparse index file with one slot per {@code app.journal.index-interval} entries: the sequence
+ * and position of the slot's first entry and a bloom filter of its request ids. Ranges are located by binary search
+ * on the sequences, and a request id only has to be looked for in the slots whose filter matches. See
+ * {@link JournalSegments} for the file layout and {@link JournalReader} and {@link JournalReplay} for reading.
+ * <p>
+ * The journal records what was evaluated, not what was delivered: a poll that is redelivered is appended again.
+ */
+@Component
+@ConditionalOnProperty(name = "app.journal.enabled", havingValue = "true")
+public class OperationJournal implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(OperationJournal.class);
+    // Entries waiting for the flusher; appends block when it is this far behind
+    private static final int QUEUE_CAPACITY = 65_536;
+    private static final long DRAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int indexInterval;
+    private final long flushIntervalNanos;
+    private final Timer flushTimer;
+    private final BlockingQueue<QueuedEntry> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread flusher;
+    private final CRC32C crc = new CRC32C();
+    // Sealed segments whose pages have not been forced yet; the flusher forces and drops them
+    private final List<Segment> sealed = new ArrayList<>();
+
+    private Segment active;
+    private long nextSequence;
+    private volatile boolean closed;
+
+    @Autowired
+    public OperationJournal(@org.springframework.beans.factory.annotation.Value("${app.journal.directory}") Path directory,
+                            @org.springframework.beans.factory.annotation.Value("${app.journal.segment-size}") DataSize segmentSize,
+                            @org.springframework.beans.factory.annotation.Value("${app.journal.index-interval}") int indexInterval,
+                            @org.springframework.beans.factory.annotation.Value("${app.journal.flush-interval}") Duration flushInterval,
+                            MeterRegistry meterRegistry) throws IOException {
+        if (segmentSize.toBytes() < JournalSegments.MIN_SEGMENT_SIZE || segmentSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("app.journal.segment-size must be between "
+                    + JournalSegments.MIN_SEGMENT_SIZE + " bytes and 2GB: " + segmentSize);
+        }
+        if (indexInterval < 1) {
+            throw new IllegalArgumentException("app.journal.index-interval must be positive: " + indexInterval);
+        }
+        this.directory = directory;
+        this.segmentSize = (int) segmentSize.toBytes();
+        this.indexInterval = indexInterval;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.flushTimer = Timer.builder("calculator.journal.flush")
+                .description("Time to force the journal pages written since the previous flush to disk (group commit)")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        Files.createDirectories(directory);
+        // Entries of a previous run are kept; this run continues their sequence in a new segment
+        this.nextSequence = JournalReader.lastSequence(directory) + 1;
+        // Only exists if the previous run appended nothing to its segment
+        Files.deleteIfExists(JournalSegments.segmentFile(directory, nextSequence));
+        Files.deleteIfExists(JournalSegments.indexFile(directory, nextSequence));
+        this.active = Segment.create(directory, nextSequence, this.segmentSize, this.indexInterval);
+        logger.info("Journal at {}: starting at sequence {}", directory.toAbsolutePath(), nextSequence);
+
+        this.flusher = new Thread(this::runFlusher, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Queues one evaluated operation for the flusher, which numbers and writes entries in the order they were
+     * queued. Blocks only while the queue is full.
+     */
+    public void append(String requestId, OperationRequest request, OperationResult result) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        try {
+            queue.put(new QueuedEntry(requestId, request, result, System.currentTimeMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing a journal entry", e);
+        }
+    }
+
+    private void runFlusher() {
+        List<QueuedEntry> batch = new ArrayList<>();
+        long nextFlush = System.nanoTime() + flushIntervalNanos;
+        while (!closed) {
+            // Polled rather than waited on, so appending never has to wake this thread
+            if (queue.drainTo(batch) > 0) {
+                write(batch);
+                batch.clear();
+            } else {
+                LockSupport.parkNanos(DRAIN_INTERVAL_NANOS);
+            }
+            if (System.nanoTime() - nextFlush >= 0) {
+                flush();
+                nextFlush = System.nanoTime() + flushIntervalNanos;
+            }
+        }
+    }
+
+    private synchronized void write(List<QueuedEntry> entries) {
+        for (QueuedEntry entry : entries) {
+            try {
+                write(entry);
+            } catch (RuntimeException e) {
+                logger.error("Could not journal request ID {}: {}", entry.requestId(), e.getMessage());
+            }
+        }
+    }
+
+    private void write(QueuedEntry entry) {
+        byte[] id = entry.requestId() == null ? new byte[0] : entry.requestId().getBytes(StandardCharsets.UTF_8);
+        if (id.length > 0xFFFF) {
+            throw new IllegalArgumentException("Request id too long for the journal: " + id.length + " bytes");
+        }
+        byte[] encodedRequest = OperationWireFormat.encode(entry.request());
+        byte[] encodedResult = OperationWireFormat.encode(entry.result());
+        int payloadLength = JournalSegments.payloadLength(id, encodedRequest, encodedResult);
+        if (JournalSegments.ENTRY_HEADER + payloadLength > segmentSize - JournalSegments.SEGMENT_TRAILER) {
+            throw new IllegalArgumentException("Journal entry of " + payloadLength + " bytes does not fit a segment");
+        }
+        if (!active.fits(payloadLength)) {
+            roll();
+        }
+        active.write(nextSequence++, entry.timestamp(), id, JournalSegments.hash(entry.requestId()), encodedRequest,
+                encodedResult, payloadLength, crc);
+    }
+
+    /**
+     * Forces every entry written so far to disk. Called by the flusher every flush interval.
+     */
+    public void flush() {
+        List<Segment> toForce;
+        Segment current;
+        synchronized (this) {
+            toForce = new ArrayList<>(sealed);
+            sealed.clear();
+            current = active;
+        }
+        long start = System.nanoTime();
+        try {
+            for (Segment segment : toForce) {
+                segment.force();
+            }
+            current.force();
+        } catch (UncheckedIOException e) {
+            logger.error("Journal flush failed: {}", e.getMessage());
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        flusher.interrupt();
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            // What the flusher had not taken yet
+            List<QueuedEntry> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            write(remaining);
+            for (Segment segment : sealed) {
+                segment.force();
+            }
+            sealed.clear();
+            active.force();
+            logger.info("Journal closed at sequence {}", nextSequence - 1);
+        }
+    }
+
+    private void roll() {
+        sealed.add(active);
+        try {
+            active = Segment.create(directory, nextSequence, segmentSize, indexInterval);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create journal segment " + nextSequence, e);
+        }
+        logger.debug("Journal rolled to segment {}", nextSequence);
+    }
+
+    private record QueuedEntry(String requestId, OperationRequest request, OperationResult result, long timestamp) {
+    }
+
+    /**
+     * One mapped segment and its mapped index, written by the thread holding the journal lock.
+     */
+    private static final class Segment {
+        final MappedByteBuffer data;
+        final MappedByteBuffer index;
+        final int indexInterval;
+        int position;
+        int entries;
+        int slotOffset = -JournalSegments.INDEX_SLOT;
+
+        private Segment(MappedByteBuffer data, MappedByteBuffer index, int indexInterval) {
+            this.data = data;
+            this.index = index;
+            this.indexInterval = indexInterval;
+        }
+
+        static Segment create(Path directory, long firstSequence, int segmentSize, int indexInterval) throws IOException {
+            int slots = JournalSegments.indexSlots(segmentSize, indexInterval);
+            return new Segment(map(JournalSegments.segmentFile(directory, firstSequence), segmentSize),
+                    map(JournalSegments.indexFile(directory, firstSequence), slots * JournalSegments.INDEX_SLOT),
+                    indexInterval);
+        }
+
+        private static MappedByteBuffer map(Path file, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // The mapping stays valid after the channel is closed
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+
+        boolean fits(int payloadLength) {
+            // Keeps room for the zero length that marks the end of the segment
+            return position + JournalSegments.ENTRY_HEADER + payloadLength
+                    <= data.capacity() - JournalSegments.SEGMENT_TRAILER;
+        }
+
+        void write(long sequence, long timestamp, byte[] id, int idHash, byte[] request, byte[] result,
+                   int payloadLength, CRC32C crc) {
+            int payload = position + JournalSegments.ENTRY_HEADER;
+            data.putLong(payload, sequence);
+            data.putLong(payload + 8, timestamp);
+            data.putShort(payload + 16, (short) id.length);
+            data.put(payload + 18, id);
+            int offset = payload + 18 + id.length;
+            data.putInt(offset, request.length);
+            data.put(offset + 4, request);
+            offset += 4 + request.length;
+            data.putInt(offset, result.length);
+            data.put(offset + 4, result);
+
+            crc.reset();
+            crc.update(data.slice(payload, payloadLength));
+            data.putInt(position + 4, (int) crc.getValue());
+            // The length goes last: a reader never sees a length whose payload is not there yet
+            data.putInt(position, payloadLength);
+
+            if (entries % indexInterval == 0) {
+                slotOffset += JournalSegments.INDEX_SLOT;
+                index.putLong(slotOffset, sequence);
+                index.putInt(slotOffset + 8, position);
+            }
+            index.putInt(slotOffset + 12, entries % indexInterval + 1);
+            JournalSegments.addToFilter(index, slotOffset, idHash);
+
+            position += JournalSegments.ENTRY_HEADER + payloadLength;
+            entries++;
+        }
+
+        void force() {
+            data.force();
+            index.force();
+        }
+    }
+}
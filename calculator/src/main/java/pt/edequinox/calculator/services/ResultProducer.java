@@ -1,38 +1,116 @@
 package pt.edequinox.calculator.services;
 
+import pt.edequinox.api.metrics.TimestampHeaders;
 import pt.edequinox.api.models.OperationResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 @Service
 public class ResultProducer {
 
     public static final Logger logger = LoggerFactory.getLogger(ResultProducer.class);
     private final KafkaTemplate<String, OperationResult> kafkaTemplate;
     private final String resultTopic;
+    private final Timer publishSuccessTimer;
+    private final Timer publishFailureTimer;
 
     public ResultProducer(KafkaTemplate<String, OperationResult> kafkaTemplate,
-                          @org.springframework.beans.factory.annotation.Value("${app.kafka.topic.results}") String resultTopic) {
+                          @org.springframework.beans.factory.annotation.Value("${app.kafka.topic.results}") String resultTopic,
+                          MeterRegistry meterRegistry) {
         this.kafkaTemplate = kafkaTemplate;
         this.resultTopic = resultTopic;
+        this.publishSuccessTimer = publishTimer(meterRegistry, "success");
+        this.publishFailureTimer = publishTimer(meterRegistry, "failure");
+    }
+
+    private static Timer publishTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("calculator.result.publish")
+                .description("Time from handing a result to the producer until Kafka acknowledges it")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     /**
      * Sends an operation result to the Kafka topic.
      * @param result   The operation result to be sent.
      * @param requestId The unique identifier for the request.
+     * @return A future completed when Kafka acknowledges the result (exceptionally if the send fails).
+     */
+    public CompletableFuture<Void> sendOperationResult(OperationResult result, String requestId) {
+        return send(new ProducerRecord<>(resultTopic, requestId, result));
+    }
+
+    /**
+     * Sends an operation result to the reply address carried by the request headers
+     * ({@link KafkaHeaders#REPLY_TOPIC} / {@link KafkaHeaders#REPLY_PARTITION}), or to the default results topic.
+     * @param result         The operation result to be sent.
+     * @param requestId      The unique identifier for the request.
+     * @param requestHeaders The headers of the consumed request record.
+     * @return A future completed when Kafka acknowledges the result (exceptionally if the send fails).
+     */
+    public CompletableFuture<Void> sendOperationResult(OperationResult result, String requestId, Headers requestHeaders) {
+        Header topicHeader = requestHeaders.lastHeader(KafkaHeaders.REPLY_TOPIC);
+        Header partitionHeader = requestHeaders.lastHeader(KafkaHeaders.REPLY_PARTITION);
+
+        String topic = topicHeader != null ? new String(topicHeader.value(), StandardCharsets.UTF_8) : resultTopic;
+        Integer partition = partitionHeader != null ? replyPartition(partitionHeader, requestId) : null;
+        ProducerRecord<String, OperationResult> producerRecord = new ProducerRecord<>(topic, partition, requestId, result);
+        Header requestSentAt = requestHeaders.lastHeader(TimestampHeaders.REQUEST_SENT_AT);
+        if (requestSentAt != null) {
+            producerRecord.headers().add(requestSentAt);
+        }
+        return send(producerRecord);
+    }
+
+    // A malformed reply partition falls back to the producer's partitioner rather than failing the reply
+    private static Integer replyPartition(Header partitionHeader, String requestId) {
+        byte[] value = partitionHeader.value();
+        if (value == null || value.length != Integer.BYTES) {
+            logger.warn("Ignoring reply partition header of {} bytes for request ID {}",
+                    value == null ? 0 : value.length, requestId);
+            return null;
+        }
+        return ByteBuffer.wrap(value).getInt();
+    }
+
+    /**
+     * Blocks until every result handed to the producer so far has been sent, so a batch of
+     * results goes out before the consumed offsets are committed.
      */
-    public void sendOperationResult(OperationResult result, String requestId) {
-        logger.info("Sending operation result: {} to topic: {}", result, resultTopic);
-        kafkaTemplate.send(resultTopic, requestId, result)
+    public void flush() {
+        kafkaTemplate.flush();
+    }
+
+    private CompletableFuture<Void> send(ProducerRecord<String, OperationResult> producerRecord) {
+        OperationResult result = producerRecord.value();
+        String requestId = producerRecord.key();
+        logger.debug("Sending operation result: {} to topic: {}", result, producerRecord.topic());
+        TimestampHeaders.put(producerRecord.headers(), TimestampHeaders.RESULT_SENT_AT, TimestampHeaders.nowMicros());
+        long start = System.nanoTime();
+        return kafkaTemplate.send(producerRecord)
                 .whenComplete((sendResult, throwable) -> {
                     if (throwable != null) {
+                        publishFailureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
                         logger.error("Failed to send operation result: {}", result, throwable);
                     } else {
-                        logger.info("Operation result sent successfully with ID: {}", requestId);
+                        publishSuccessTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        logger.debug("Operation result sent successfully with ID: {}", requestId);
                     }
-                });
+                })
+                .thenRun(() -> { });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,256 @@
+package pt.edequinox.calculator.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import pt.edequinox.api.filters.FiltersContext;
+import pt.edequinox.api.metrics.TimestampHeaders;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.calculator.journal.OperationJournal;
+import pt.edequinox.calculator.services.ResultProducer;
+import pt.edequinox.core.expressions.ExpressionCache;
+import pt.edequinox.core.services.CalculatorService;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OperationConsumerTest {
+
+    private ResultProducer resultProducer;
+    private OperationConsumer operationConsumer;
+
+    @BeforeEach
+    void setUp() {
+        resultProducer = mock(ResultProducer.class);
+        when(resultProducer.sendOperationResult(any(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        operationConsumer = consumer(null, null, OperationLane.unbounded("slow"));
+    }
+
+    @Test
+    void batch_IsolatesErrorsPerRecordAndFlushesOnce() {
+        List<ConsumerRecord<String, OperationRequest>> batch = List.of(
+                record(0, "a", new OperationRequest(OperationType.ADDITION, new BigDecimal("2"), new BigDecimal("3"))),
+                record(1, "b", new OperationRequest(OperationType.DIVISION, BigDecimal.ONE, BigDecimal.ZERO)),
+                record(2, "c", new OperationRequest(OperationType.MULTIPLICATION, new BigDecimal("6"), new BigDecimal("7"))));
+
+        operationConsumer.handleOperationRequests(batch);
+
+        ArgumentCaptor<OperationResult> results = ArgumentCaptor.forClass(OperationResult.class);
+        InOrder inOrder = inOrder(resultProducer);
+        inOrder.verify(resultProducer, times(3)).sendOperationResult(results.capture(), anyString(), any());
+        inOrder.verify(resultProducer).flush();
+
+        List<OperationResult> sent = results.getAllValues();
+        assertEquals("a", sent.get(0).getRequestId());
+        assertEquals(new BigDecimal("5"), sent.get(0).getResult());
+        assertEquals("b", sent.get(1).getRequestId());
+        assertNotNull(sent.get(1).getError());
+        assertEquals("c", sent.get(2).getRequestId());
+        assertEquals(new BigDecimal("42"), sent.get(2).getResult());
+    }
+
+    @Test
+    void batchRecord_IsAnsweredWithOneResultPerItem() {
+        OperationRequest batch = new OperationRequest(List.of(
+                new OperationRequest(OperationType.ADDITION, new BigDecimal("2"), new BigDecimal("3")),
+                new OperationRequest(OperationType.DIVISION, BigDecimal.ONE, BigDecimal.ZERO),
+                new OperationRequest(OperationType.MULTIPLICATION, new BigDecimal("6"), new BigDecimal("7"))));
+
+        operationConsumer.handleOperationRequests(List.of(record(0, "a", batch)));
+
+        ArgumentCaptor<OperationResult> result = ArgumentCaptor.forClass(OperationResult.class);
+        verify(resultProducer).sendOperationResult(result.capture(), eq("a"), any());
+        assertEquals("a", result.getValue().getRequestId());
+        assertEquals(OperationType.BATCH, result.getValue().getOperationType());
+        List<OperationResult> items = result.getValue().getItems();
+        assertEquals(3, items.size());
+        assertEquals(new BigDecimal("5"), items.get(0).getResult());
+        // A failing item only turns its own entry into an error
+        assertNotNull(items.get(1).getError());
+        assertEquals(new BigDecimal("42"), items.get(2).getResult());
+    }
+
+    @Test
+    void executorDispatch_KeepsRequestIdPerRecordAndFlushesAfterAllSends() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            operationConsumer = consumer(executor, null, OperationLane.unbounded("slow"));
+            Map<String, String> requestIdInMdc = new ConcurrentHashMap<>();
+            doAnswer(invocation -> {
+                requestIdInMdc.put(invocation.getArgument(1), String.valueOf(FiltersContext.get()));
+                return CompletableFuture.completedFuture(null);
+            }).when(resultProducer).sendOperationResult(any(), anyString(), any());
+
+            List<ConsumerRecord<String, OperationRequest>> batch = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                batch.add(record(i, "req-" + i,
+                        new OperationRequest(OperationType.ADDITION, BigDecimal.valueOf(i), BigDecimal.ONE)));
+            }
+            operationConsumer.handleOperationRequests(batch);
+
+            InOrder inOrder = inOrder(resultProducer);
+            inOrder.verify(resultProducer, times(100)).sendOperationResult(any(), anyString(), any());
+            inOrder.verify(resultProducer).flush();
+            assertEquals(100, requestIdInMdc.size());
+            requestIdInMdc.forEach((requestId, mdcValue) -> assertEquals(requestId, mdcValue));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void executorDispatch_KeepsTheOrderWithinEachPartition() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            operationConsumer = consumer(executor, null, OperationLane.unbounded("slow"));
+            Map<Integer, List<Long>> sentPerPartition = new ConcurrentHashMap<>();
+            doAnswer(invocation -> {
+                String[] key = invocation.<String>getArgument(1).split("-");
+                sentPerPartition.computeIfAbsent(Integer.parseInt(key[0]), partition -> new ArrayList<>())
+                        .add(Long.parseLong(key[1]));
+                return CompletableFuture.completedFuture(null);
+            }).when(resultProducer).sendOperationResult(any(), anyString(), any());
+
+            List<ConsumerRecord<String, OperationRequest>> batch = new ArrayList<>();
+            for (long offset = 0; offset < 50; offset++) {
+                for (int partition = 0; partition < 4; partition++) {
+                    batch.add(new ConsumerRecord<>("operation-requests", partition, offset, partition + "-" + offset,
+                            new OperationRequest(OperationType.ADDITION, BigDecimal.valueOf(offset), BigDecimal.ONE)));
+                }
+            }
+            operationConsumer.handleOperationRequests(batch);
+
+            assertEquals(4, sentPerPartition.size());
+            List<Long> offsets = new ArrayList<>();
+            for (long offset = 0; offset < 50; offset++) {
+                offsets.add(offset);
+            }
+            sentPerPartition.values().forEach(sent -> assertEquals(offsets, sent));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedSend_FailsTheBatchAfterTheFlush() {
+        when(resultProducer.sendOperationResult(any(), eq("b"), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")));
+        List<ConsumerRecord<String, OperationRequest>> batch = List.of(
+                record(0, "a", new OperationRequest(OperationType.ADDITION, BigDecimal.ONE, BigDecimal.ONE)),
+                record(1, "b", new OperationRequest(OperationType.ADDITION, BigDecimal.ONE, BigDecimal.TEN)));
+
+        // Thrown to the container, which then neither commits the offsets nor drops the batch
+        assertThrows(CompletionException.class, () -> operationConsumer.handleOperationRequests(batch));
+        verify(resultProducer).flush();
+    }
+
+    @Test
+    void journal_GetsEveryReplyBeforeItIsSent() {
+        OperationJournal journal = mock(OperationJournal.class);
+        doThrow(new IllegalStateException("Journal is closed")).when(journal).append(eq("b"), any(), any());
+        operationConsumer = consumer(null, journal, OperationLane.unbounded("slow"));
+        OperationRequest addition = new OperationRequest(OperationType.ADDITION, BigDecimal.ONE, BigDecimal.ONE);
+        OperationRequest division = new OperationRequest(OperationType.DIVISION, BigDecimal.ONE, BigDecimal.ZERO);
+
+        operationConsumer.handleOperationRequests(List.of(record(0, "a", addition), record(1, "b", division)));
+
+        ArgumentCaptor<OperationResult> journaled = ArgumentCaptor.forClass(OperationResult.class);
+        InOrder inOrder = inOrder(journal, resultProducer);
+        inOrder.verify(journal).append(eq("a"), same(addition), journaled.capture());
+        inOrder.verify(resultProducer).sendOperationResult(any(), eq("a"), any());
+        inOrder.verify(journal).append(eq("b"), same(division), journaled.capture());
+        // A failed append does not hold back the reply
+        inOrder.verify(resultProducer).sendOperationResult(any(), eq("b"), any());
+        assertEquals(new BigDecimal("2"), journaled.getAllValues().get(0).getResult());
+        assertNotNull(journaled.getAllValues().get(1).getError());
+    }
+
+    @Test
+    void slowLane_AnswersExpiredAndOversizedRequestsWithoutEvaluating() {
+        OperationLane slowLane = new OperationLane("slow", Duration.ofSeconds(10), 100, 0);
+        operationConsumer = consumer(null, null, slowLane);
+        OperationRequest multiplication = new OperationRequest(OperationType.MULTIPLICATION,
+                new BigDecimal("12345678901234567890"), new BigDecimal("98765432109876543210"));
+        OperationRequest oversized = new OperationRequest(OperationType.MULTIPLICATION,
+                BigDecimal.TEN.pow(200), BigDecimal.TEN);
+        long now = TimestampHeaders.nowMicros();
+
+        operationConsumer.handleSlowOperationRequests(List.of(
+                record(0, "a", multiplication, now, now + 30_000_000),
+                record(1, "b", multiplication, now - 60_000_000, now + 30_000_000),
+                record(2, "c", multiplication, now - 1_000_000, now - 1),
+                record(3, "d", oversized, now, now + 30_000_000)));
+
+        ArgumentCaptor<OperationResult> results = ArgumentCaptor.forClass(OperationResult.class);
+        verify(resultProducer, times(4)).sendOperationResult(results.capture(), anyString(), any());
+        List<OperationResult> sent = results.getAllValues();
+        assertEquals(new BigDecimal("12345678901234567890").multiply(new BigDecimal("98765432109876543210")),
+                sent.get(0).getResult());
+        // Past the lane's timeout, then past the deadline rest set
+        assertEquals("Request timed out in the slow lane", sent.get(1).getError());
+        assertEquals("Request timed out in the slow lane", sent.get(2).getError());
+        assertEquals("Operation exceeds the slow lane's limit of 100 digits", sent.get(3).getError());
+    }
+
+    @Test
+    void fastLane_HasCapsOfItsOwn() {
+        operationConsumer = new OperationConsumer(calculatorService(), resultProducer, new SimpleMeterRegistry(),
+                null, null, new OperationLane("fast", Duration.ZERO, 100, 0),
+                new OperationLane("slow", Duration.ZERO, 10, 10));
+
+        operationConsumer.handleOperationRequests(List.of(
+                record(0, "a", new OperationRequest(OperationType.ADDITION, BigDecimal.TEN.pow(50), BigDecimal.ONE)),
+                record(1, "b", new OperationRequest("x + 1e999999999", Map.of("x", BigDecimal.ONE), 0, null))));
+
+        ArgumentCaptor<OperationResult> result = ArgumentCaptor.forClass(OperationResult.class);
+        verify(resultProducer).sendOperationResult(result.capture(), eq("a"), any());
+        assertEquals(BigDecimal.TEN.pow(50).add(BigDecimal.ONE), result.getValue().getResult());
+        verify(resultProducer).sendOperationResult(result.capture(), eq("b"), any());
+        assertEquals("Operation exceeds the fast lane's limit of 100 digits", result.getValue().getError());
+    }
+
+    private OperationConsumer consumer(Executor executor, OperationJournal journal, OperationLane slowLane) {
+        return new OperationConsumer(calculatorService(), resultProducer, new SimpleMeterRegistry(), executor,
+                journal, OperationLane.unbounded("fast"), slowLane);
+    }
+
+    private static CalculatorService calculatorService() {
+        return new CalculatorService(new ExpressionCache(0, new SimpleMeterRegistry()));
+    }
+
+    private static ConsumerRecord<String, OperationRequest> record(long offset, String key, OperationRequest request,
+                                                                   long sentAtMicros, long deadlineMicros) {
+        RecordHeaders headers = new RecordHeaders();
+        TimestampHeaders.put(headers, TimestampHeaders.REQUEST_SENT_AT, sentAtMicros);
+        TimestampHeaders.put(headers, TimestampHeaders.REQUEST_DEADLINE, deadlineMicros);
+        return new ConsumerRecord<>("operation-requests-slow", 0, offset, ConsumerRecord.NO_TIMESTAMP,
+                TimestampType.NO_TIMESTAMP_TYPE, 0, 0, key, request, headers, Optional.empty());
+    }
+
+    private static ConsumerRecord<String, OperationRequest> record(long offset, String key, OperationRequest request) {
+        return new ConsumerRecord<>("operation-requests", 0, offset, key, request);
+    }
+}
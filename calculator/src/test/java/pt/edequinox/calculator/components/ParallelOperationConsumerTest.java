@@ -0,0 +1,191 @@
+package pt.edequinox.calculator.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.calculator.services.ResultProducer;
+import pt.edequinox.core.expressions.ExpressionCache;
+import pt.edequinox.core.services.CalculatorService;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class ParallelOperationConsumerTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("operation-requests", 0);
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final Map<String, CompletableFuture<Void>> replies = new ConcurrentHashMap<>();
+    private ResultProducer resultProducer;
+    private MessageListenerContainer container;
+    private Consumer<?, ?> consumer;
+    private SimpleMeterRegistry meterRegistry;
+    private ParallelOperationConsumer parallelConsumer;
+
+    @BeforeEach
+    void setUp() {
+        resultProducer = mock(ResultProducer.class);
+        when(resultProducer.sendOperationResult(any(), anyString(), any())).thenAnswer(invocation -> {
+            CompletableFuture<Void> reply = new CompletableFuture<>();
+            replies.put(invocation.getArgument(1), reply);
+            return reply;
+        });
+        container = mock(MessageListenerContainer.class);
+        KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+        when(registry.getListenerContainer(ParallelOperationConsumer.LISTENER_ID)).thenReturn(container);
+        consumer = mock(Consumer.class);
+        doReturn(Set.of(PARTITION)).when(consumer).assignment();
+
+        meterRegistry = new SimpleMeterRegistry();
+        OperationConsumer operationConsumer = new OperationConsumer(
+                new CalculatorService(new ExpressionCache(0, meterRegistry)), resultProducer,
+                new SimpleMeterRegistry(), null, null, OperationLane.unbounded("fast"), OperationLane.unbounded("slow"));
+        parallelConsumer = new ParallelOperationConsumer(operationConsumer, registry, meterRegistry, 4, 100,
+                Duration.ofMillis(50), MAX_ATTEMPTS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        parallelConsumer.shutdown();
+    }
+
+    @Test
+    void offsets_AreCommittedOnlyUpToTheLowestUnfinishedRecord() {
+        parallelConsumer.handleOperationRequests(records(0, 5), consumer);
+        awaitReplies(5);
+
+        // Everything but the first record completes: nothing can be committed yet
+        for (int i = 1; i < 5; i++) {
+            replies.get("req-" + i).complete(null);
+        }
+        parallelConsumer.commitCompleted(consumer);
+        verify(consumer, never()).commitAsync(anyMap(), any());
+
+        replies.get("req-0").complete(null);
+        awaitInFlight(0);
+        parallelConsumer.commitCompleted(consumer);
+
+        ArgumentCaptor<Map<TopicPartition, OffsetAndMetadata>> committed = ArgumentCaptor.forClass(Map.class);
+        verify(consumer).commitAsync(committed.capture(), any());
+        assertEquals(5, committed.getValue().get(PARTITION).offset());
+    }
+
+    @Test
+    void failedSend_KeepsTheOffsetUncommittedUntilTheRetrySucceeds() {
+        parallelConsumer.handleOperationRequests(records(0, 2), consumer);
+        awaitReplies(2);
+
+        replies.get("req-1").complete(null);
+        replies.remove("req-0").completeExceptionally(new IllegalStateException("broker unavailable"));
+        parallelConsumer.commitCompleted(consumer);
+        verify(consumer, never()).commitAsync(anyMap(), any());
+        assertEquals(1, parallelConsumer.inFlightCount());
+
+        // Processed again after the backoff; committed once that reply is sent
+        awaitReplies(2);
+        replies.get("req-0").complete(null);
+        awaitInFlight(0);
+        parallelConsumer.commitCompleted(consumer);
+
+        ArgumentCaptor<Map<TopicPartition, OffsetAndMetadata>> committed = ArgumentCaptor.forClass(Map.class);
+        verify(consumer).commitAsync(committed.capture(), any());
+        assertEquals(2, committed.getValue().get(PARTITION).offset());
+        verify(resultProducer, times(2)).sendOperationResult(any(), eq("req-0"), any());
+    }
+
+    @Test
+    void recordThatAlwaysFails_IsSkippedAfterMaxAttempts_SoTheWindowMoves() {
+        parallelConsumer.handleOperationRequests(records(0, 2), consumer);
+        awaitReplies(2);
+        replies.get("req-1").complete(null);
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            awaitReplies(2);
+            replies.remove("req-0").completeExceptionally(new IllegalStateException("cannot serialize the reply"));
+        }
+        awaitInFlight(0);
+        parallelConsumer.commitCompleted(consumer);
+
+        ArgumentCaptor<Map<TopicPartition, OffsetAndMetadata>> committed = ArgumentCaptor.forClass(Map.class);
+        verify(consumer).commitAsync(committed.capture(), any());
+        assertEquals(2, committed.getValue().get(PARTITION).offset());
+        verify(resultProducer, times(MAX_ATTEMPTS)).sendOperationResult(any(), eq("req-0"), any());
+        assertEquals(1, meterRegistry.get("calculator.consumer.skipped").counter().count());
+    }
+
+    @Test
+    void reachingMaxInFlight_PausesUntilHalfHaveCompleted() {
+        parallelConsumer.handleOperationRequests(records(0, 100), consumer);
+        verify(container).pause();
+        awaitReplies(100);
+
+        for (int i = 0; i < 49; i++) {
+            replies.get("req-" + i).complete(null);
+        }
+        verify(container, never()).resume();
+
+        replies.get("req-49").complete(null);
+        verify(container, timeout(1_000)).resume();
+    }
+
+    @Test
+    void revokedPartition_CommitsItsCompletedWindow() {
+        parallelConsumer.handleOperationRequests(records(10, 3), consumer);
+        awaitReplies(3);
+        replies.get("req-10").complete(null);
+        awaitInFlight(2);
+
+        parallelConsumer.commitRevoked(consumer, List.of(PARTITION));
+
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(11)));
+    }
+
+    private void awaitReplies(int expected) {
+        long deadline = System.currentTimeMillis() + 1_000;
+        while (replies.size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(expected, replies.size());
+    }
+
+    private void awaitInFlight(int expected) {
+        long deadline = System.currentTimeMillis() + 1_000;
+        while (parallelConsumer.inFlightCount() != expected && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(expected, parallelConsumer.inFlightCount());
+    }
+
+    private static List<ConsumerRecord<String, OperationRequest>> records(long firstOffset, int count) {
+        List<ConsumerRecord<String, OperationRequest>> records = new ArrayList<>();
+        for (long offset = firstOffset; offset < firstOffset + count; offset++) {
+            records.add(new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, "req-" + offset,
+                    new OperationRequest(OperationType.ADDITION, BigDecimal.valueOf(offset), BigDecimal.ONE)));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,32 @@
+package pt.edequinox.calculator.components;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionOffsetsTest {
+
+    @Test
+    void committable_AdvancesOnlyPastContiguousCompletedOffsets() {
+        PartitionOffsets offsets = new PartitionOffsets();
+        assertEquals(-1, offsets.committable());
+
+        for (long offset = 100; offset < 105; offset++) {
+            offsets.dispatched(offset);
+        }
+        assertEquals(-1, offsets.committable());
+
+        offsets.completed(101);
+        offsets.completed(103);
+        assertEquals(-1, offsets.committable());
+
+        offsets.completed(100);
+        assertEquals(102, offsets.committable());
+        assertEquals(-1, offsets.committable());
+
+        offsets.completed(102);
+        offsets.completed(104);
+        assertEquals(105, offsets.committable());
+        assertEquals(0, offsets.pendingCount());
+    }
+}
@@ -0,0 +1,144 @@
+package pt.edequinox.calculator.components;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.api.serialization.OperationRequestSerializer;
+import pt.edequinox.api.serialization.OperationResultDeserializer;
+import pt.edequinox.calculator.CalculatorApplication;
+import pt.edequinox.calculator.services.ResultProducer;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Fault injection for {@code app.consumer.mode=transactional} against embedded Kafka: the first flush of results
+ * fails after they reached the broker, so the first poll's transaction is aborted and the poll redelivered.
+ * A {@code read_committed} consumer must still see exactly one result per request.
+ */
+@EmbeddedKafka(partitions = 1, topics = {TransactionalConsumerIntegrationTest.REQUEST_TOPIC,
+        TransactionalConsumerIntegrationTest.RESULT_TOPIC}, brokerProperties = {
+        "transaction.state.log.replication.factor=1", "transaction.state.log.min.isr=1"})
+class TransactionalConsumerIntegrationTest {
+
+    static final String REQUEST_TOPIC = "operation-requests";
+    static final String RESULT_TOPIC = "operation-results";
+    private static final int REQUESTS = 50;
+    private static final AtomicBoolean failureInjected = new AtomicBoolean();
+
+    private ConfigurableApplicationContext calculator;
+
+    @AfterEach
+    void tearDown() {
+        if (calculator != null) {
+            calculator.close();
+        }
+    }
+
+    @Test
+    void abortedPoll_IsRedeliveredWithoutDuplicateOrMissingResults(EmbeddedKafkaBroker broker) throws Exception {
+        try (Producer<String, OperationRequest> producer = new DefaultKafkaProducerFactory<>(
+                KafkaTestUtils.producerProps(broker), new StringSerializer(), new OperationRequestSerializer())
+                .createProducer()) {
+            for (int i = 0; i < REQUESTS; i++) {
+                producer.send(new ProducerRecord<>(REQUEST_TOPIC, "req-" + i,
+                        new OperationRequest(OperationType.ADDITION, BigDecimal.valueOf(i), BigDecimal.ONE)));
+            }
+        }
+
+        calculator = new SpringApplicationBuilder(CalculatorApplication.class, FailFirstFlush.class).run(
+                "--server.port=0",
+                "--spring.kafka.consumer.bootstrap-servers=" + broker.getBrokersAsString(),
+                "--spring.kafka.producer.bootstrap-servers=" + broker.getBrokersAsString(),
+                "--spring.kafka.consumer.auto-offset-reset=earliest",
+                "--spring.kafka.consumer.max-poll-records=10",
+                "--app.consumer.mode=transactional");
+
+        Map<String, BigDecimal> committed = new HashMap<>();
+        int committedRecords = 0;
+        try (Consumer<String, OperationResult> consumer = resultConsumer(broker, "read_committed")) {
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (committed.size() < REQUESTS && System.currentTimeMillis() < deadline) {
+                for (ConsumerRecord<String, OperationResult> consumerRecord : consumer.poll(Duration.ofMillis(200))) {
+                    committed.put(consumerRecord.key(), consumerRecord.value().getResult());
+                    committedRecords++;
+                }
+            }
+            // Anything still to come would be a duplicate
+            for (ConsumerRecord<String, OperationResult> ignored : consumer.poll(Duration.ofSeconds(1))) {
+                committedRecords++;
+            }
+        }
+
+        assertTrue(failureInjected.get());
+        assertEquals(REQUESTS, committed.size());
+        assertEquals(REQUESTS, committedRecords);
+        for (int i = 0; i < REQUESTS; i++) {
+            assertEquals(BigDecimal.valueOf(i + 1), committed.get("req-" + i));
+        }
+        // The aborted results did reach the topic: only read_uncommitted consumers see them
+        try (Consumer<String, OperationResult> consumer = resultConsumer(broker, "read_uncommitted")) {
+            assertTrue(KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(5), REQUESTS + 1).count() > REQUESTS);
+        }
+    }
+
+    private static Consumer<String, OperationResult> resultConsumer(EmbeddedKafkaBroker broker, String isolationLevel) {
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps("results-" + isolationLevel, "false", broker);
+        consumerProps.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, isolationLevel);
+        Consumer<String, OperationResult> consumer = new DefaultKafkaConsumerFactory<>(consumerProps,
+                new StringDeserializer(), new OperationResultDeserializer()).createConsumer();
+        broker.consumeFromAnEmbeddedTopic(consumer, RESULT_TOPIC);
+        return consumer;
+    }
+
+    // Not a @Configuration, so component scanning of other tests does not pick it up
+    static class FailFirstFlush {
+
+        @Bean
+        static BeanPostProcessor failFirstFlush() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof ResultProducer resultProducer)) {
+                        return bean;
+                    }
+                    ResultProducer spy = Mockito.spy(resultProducer);
+                    doAnswer(invocation -> {
+                        invocation.callRealMethod();
+                        if (failureInjected.compareAndSet(false, true)) {
+                            throw new KafkaException("Injected failure after the results were sent");
+                        }
+                        return null;
+                    }).when(spy).flush();
+                    return spy;
+                }
+            };
+        }
+    }
+}
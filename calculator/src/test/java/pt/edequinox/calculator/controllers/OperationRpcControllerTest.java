@@ -0,0 +1,115 @@
+package pt.edequinox.calculator.controllers;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import pt.edequinox.api.metrics.TimestampHeaders;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.api.serialization.OperationWireFormat;
+import pt.edequinox.calculator.components.OperationLane;
+import pt.edequinox.core.expressions.ExpressionCache;
+import pt.edequinox.core.services.CalculatorService;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationRpcControllerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OperationRpcController controller;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        CalculatorService calculatorService = new CalculatorService(new ExpressionCache(0, meterRegistry));
+        controller = new OperationRpcController(calculatorService, null, meterRegistry,
+                new OperationLane("rpc", Duration.ZERO, 100, 0));
+    }
+
+    @Test
+    void handleOperation_AnswersWithResultInWireFormat() {
+        OperationRequest request = new OperationRequest(OperationType.ADDITION, new BigDecimal("2"), new BigDecimal("3"));
+
+        ResponseEntity<byte[]> response = controller.handleOperation("a", null, OperationWireFormat.encode(request));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        OperationResult result = OperationWireFormat.decodeResult(response.getBody());
+        assertEquals("a", result.getRequestId());
+        assertEquals(OperationType.ADDITION, result.getOperationType());
+        assertEquals(new BigDecimal("5"), result.getResult());
+        assertNull(result.getError());
+        assertEquals(1, meterRegistry.get("calculator.rpc.operation").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void handleOperation_AnswersOperationErrorsWithErrorResult() {
+        OperationRequest request = new OperationRequest(OperationType.DIVISION, BigDecimal.ONE, BigDecimal.ZERO);
+
+        ResponseEntity<byte[]> response = controller.handleOperation("b", null, OperationWireFormat.encode(request));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        OperationResult result = OperationWireFormat.decodeResult(response.getBody());
+        assertEquals("b", result.getRequestId());
+        assertNotNull(result.getError());
+        assertEquals(1, meterRegistry.get("calculator.rpc.operation").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void handleOperation_EvaluatesBatchItems() {
+        OperationRequest batch = new OperationRequest(List.of(
+                new OperationRequest(OperationType.MULTIPLICATION, new BigDecimal("6"), new BigDecimal("7")),
+                new OperationRequest(OperationType.DIVISION, BigDecimal.ONE, BigDecimal.ZERO)));
+
+        OperationResult result = OperationWireFormat.decodeResult(
+                controller.handleOperation("c", null, OperationWireFormat.encode(batch)).getBody());
+
+        assertEquals(OperationType.BATCH, result.getOperationType());
+        assertEquals(2, result.getItems().size());
+        assertEquals(new BigDecimal("42"), result.getItems().get(0).getResult());
+        assertNotNull(result.getItems().get(1).getError());
+    }
+
+    @Test
+    void handleOperation_AnswersCallsOverTheCapsWithoutEvaluating() {
+        OperationRequest request = new OperationRequest(OperationType.MULTIPLICATION,
+                BigDecimal.TEN.pow(200), BigDecimal.TEN.pow(200));
+
+        OperationResult result = OperationWireFormat.decodeResult(
+                controller.handleOperation("e", null, OperationWireFormat.encode(request)).getBody());
+
+        assertEquals("Operation exceeds the rpc lane's limit of 100 digits", result.getError());
+        assertEquals(1, meterRegistry.get("calculator.lane.rejected").tag("lane", "rpc").tag("reason", "limit")
+                .counter().count());
+    }
+
+    @Test
+    void handleOperation_AnswersCallsPastTheirDeadlineWithoutEvaluating() {
+        OperationRequest request = new OperationRequest(OperationType.ADDITION, BigDecimal.ONE, BigDecimal.ONE);
+        long past = TimestampHeaders.nowMicros() - 1_000;
+        long future = TimestampHeaders.nowMicros() + 60_000_000;
+
+        OperationResult expired = OperationWireFormat.decodeResult(
+                controller.handleOperation("f", past, OperationWireFormat.encode(request)).getBody());
+        OperationResult answered = OperationWireFormat.decodeResult(
+                controller.handleOperation("g", future, OperationWireFormat.encode(request)).getBody());
+
+        assertEquals("Request timed out in the rpc lane", expired.getError());
+        assertEquals(new BigDecimal("2"), answered.getResult());
+        assertEquals(1, meterRegistry.get("calculator.lane.rejected").tag("lane", "rpc").tag("reason", "expired")
+                .counter().count());
+    }
+
+    @Test
+    void handleOperation_RejectsBodyThatIsNotARequest() {
+        ResponseEntity<byte[]> response = controller.handleOperation("d", null, "{\"operationType\":".getBytes());
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+}
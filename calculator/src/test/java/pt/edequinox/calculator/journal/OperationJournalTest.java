@@ -0,0 +1,137 @@
+package pt.edequinox.calculator.journal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.core.expressions.ExpressionCache;
+import pt.edequinox.core.services.CalculatorService;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void entries_AreReadBackByRangeAndByRequestIdAcrossSegments() throws IOException {
+        try (OperationJournal journal = journal()) {
+            for (int i = 0; i < 300; i++) {
+                journal.append("req-" + i, addition(i), new OperationResult("req-" + i,
+                        OperationType.ADDITION, BigDecimal.valueOf(i + 1)));
+            }
+        }
+        assertTrue(JournalSegments.firstSequences(directory).size() > 1);
+
+        JournalReader reader = new JournalReader(directory);
+        List<JournalEntry> range = new ArrayList<>();
+        reader.read(50, 120, range::add);
+        assertEquals(71, range.size());
+        for (int i = 0; i < range.size(); i++) {
+            JournalEntry entry = range.get(i);
+            assertEquals(50 + i, entry.sequence());
+            assertEquals("req-" + (49 + i), entry.requestId());
+            assertEquals(BigDecimal.valueOf(49 + i), entry.request().getOperand1());
+            assertEquals(BigDecimal.valueOf(50 + i), entry.result().getResult());
+        }
+
+        List<JournalEntry> found = reader.find("req-277");
+        assertEquals(1, found.size());
+        assertEquals(278, found.get(0).sequence());
+        assertEquals(new BigDecimal("278"), found.get(0).result().getResult());
+        assertTrue(reader.find("req-300").isEmpty());
+    }
+
+    @Test
+    void reopenedJournal_ContinuesAfterTheLastCompleteEntry() throws IOException {
+        try (OperationJournal journal = journal()) {
+            for (int i = 0; i < 3; i++) {
+                journal.append("req-" + i, addition(i), new OperationResult("req-" + i, "Division by zero"));
+            }
+        }
+        // The third entry was only half written when the calculator stopped
+        try (FileChannel channel = FileChannel.open(JournalSegments.segmentFile(directory, 1),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int third = 0;
+            for (int i = 0; i < 2; i++) {
+                third += JournalSegments.ENTRY_HEADER + data.getInt(third);
+            }
+            data.put(third + JournalSegments.ENTRY_HEADER + 20, (byte) 0x7f);
+        }
+
+        try (OperationJournal journal = journal()) {
+            journal.append("req-3", addition(3),
+                    new OperationResult("req-3", OperationType.ADDITION, new BigDecimal("4")));
+        }
+        assertEquals(3, new JournalReader(directory).find("req-3").get(0).sequence());
+
+        List<String> requestIds = new ArrayList<>();
+        new JournalReader(directory).read(1, Long.MAX_VALUE, entry -> requestIds.add(entry.requestId()));
+        assertEquals(List.of("req-0", "req-1", "req-3"), requestIds);
+        assertEquals("Division by zero", new JournalReader(directory).find("req-1").get(0).result().getError());
+    }
+
+    @Test
+    void entries_AreWrittenByTheFlusherWithoutClosing() throws Exception {
+        try (OperationJournal journal = journal()) {
+            journal.append("req-0", addition(0), new OperationResult("req-0", OperationType.ADDITION, BigDecimal.ONE));
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (new JournalReader(directory).find("req-0").isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, new JournalReader(directory).find("req-0").size());
+        }
+    }
+
+    @Test
+    void replay_ReportsOnlyTheResultsThatDiffer() throws IOException {
+        OperationRequest batch = new OperationRequest(List.of(
+                new OperationRequest(OperationType.MULTIPLICATION, new BigDecimal("1.5"), new BigDecimal("2")),
+                new OperationRequest(OperationType.DIVISION, BigDecimal.ONE, BigDecimal.ZERO)));
+        OperationRequest expression = new OperationRequest("(a + b) * 2", Map.of("a", BigDecimal.ONE, "b",
+                new BigDecimal("2.5")), null, null);
+        CalculatorService calculatorService = new CalculatorService(new ExpressionCache(0, new SimpleMeterRegistry()));
+        try (OperationJournal journal = journal()) {
+            journal.append("ok", addition(1), new OperationResult("ok", OperationType.ADDITION, new BigDecimal("2")));
+            journal.append("scale", addition(1), new OperationResult("scale", OperationType.ADDITION, new BigDecimal("2.0")));
+            journal.append("batch", batch, new OperationResult("batch", calculatorService.performBatch(batch)));
+            journal.append("expression", expression, new OperationResult("expression", OperationType.EXPRESSION,
+                    calculatorService.performOperation(expression)));
+            journal.append("error", addition(1), new OperationResult("error", "Division by zero"));
+        }
+
+        JournalReplay.Report report = new JournalReplay(calculatorService).replay(new JournalReader(directory), 1, 5);
+
+        assertEquals(5, report.replayed());
+        assertEquals(List.of("scale", "error"),
+                report.mismatches().stream().map(mismatch -> mismatch.entry().requestId()).toList());
+        assertEquals(new BigDecimal("2"), report.mismatches().get(0).replayed().getResult());
+    }
+
+    private OperationJournal journal() throws IOException {
+        // Segments of 4KB with a slot per 8 entries, so a few hundred entries span several segments and slots
+        return new OperationJournal(directory, DataSize.ofKilobytes(4), 8,
+                Duration.ofMillis(50), new SimpleMeterRegistry());
+    }
+
+    private static OperationRequest addition(int operand) {
+        return new OperationRequest(OperationType.ADDITION, BigDecimal.valueOf(operand), BigDecimal.ONE);
+    }
+}
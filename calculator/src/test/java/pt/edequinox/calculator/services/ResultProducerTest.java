@@ -0,0 +1,74 @@
+package pt.edequinox.calculator.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ResultProducerTest {
+
+    private KafkaTemplate<String, OperationResult> kafkaTemplate;
+    private ResultProducer resultProducer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+        resultProducer = new ResultProducer(kafkaTemplate, "operation-results", new SimpleMeterRegistry());
+    }
+
+    @Test
+    void sendOperationResult_RepliesToTheRequestedTopicAndPartition() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(KafkaHeaders.REPLY_TOPIC, "replies-a".getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.REPLY_PARTITION, ByteBuffer.allocate(Integer.BYTES).putInt(3).array());
+
+        resultProducer.sendOperationResult(result(), "req-1", headers).join();
+
+        ProducerRecord<String, OperationResult> sent = sentRecord();
+        assertEquals("replies-a", sent.topic());
+        assertEquals(3, sent.partition());
+    }
+
+    @Test
+    void sendOperationResult_IgnoresAMalformedReplyPartition() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(KafkaHeaders.REPLY_TOPIC, "replies-a".getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.REPLY_PARTITION, new byte[] {0, 3});
+
+        resultProducer.sendOperationResult(result(), "req-1", headers).join();
+
+        ProducerRecord<String, OperationResult> sent = sentRecord();
+        assertEquals("replies-a", sent.topic());
+        assertNull(sent.partition());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ProducerRecord<String, OperationResult> sentRecord() {
+        ArgumentCaptor<ProducerRecord<String, OperationResult>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(sent.capture());
+        return sent.getValue();
+    }
+
+    private static OperationResult result() {
+        return new OperationResult("req-1", OperationType.ADDITION, new BigDecimal("5"));
+    }
+}
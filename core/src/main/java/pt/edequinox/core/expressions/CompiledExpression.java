@@ -0,0 +1,134 @@
+package pt.edequinox.core.expressions;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An expression compiled into a reusable tree of evaluators, with variables resolved to slots; immutable and shared
+ * between threads (see {@link ExpressionCache}). Every operation is rounded to the evaluation's {@link MathContext}.
+ * Exact evaluation (precision 0) fails once a number has more than {@link #MAX_EXACT_DIGITS} digits or scale.
+ */
+public final class CompiledExpression {
+
+    static final int MAX_DEPTH = 1024;
+    public static final int MAX_EXACT_DIGITS = 1000;
+
+    private final String text;
+    private final List<String> variables;
+    private final Evaluator root;
+
+    private CompiledExpression(String text, List<String> variables, Evaluator root) {
+        this.text = text;
+        this.variables = List.copyOf(variables);
+        this.root = root;
+    }
+
+    /**
+     * Parses and compiles an expression.
+     * @param text The expression text, see {@link ExpressionParser} for the syntax.
+     * @return The compiled expression.
+     */
+    public static CompiledExpression compile(String text) {
+        List<String> variables = new ArrayList<>();
+        Evaluator root = compile(ExpressionParser.parse(text), variables, 0);
+        return new CompiledExpression(text, variables, root);
+    }
+
+    private static Evaluator compile(ExpressionNode node, List<String> variables, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Expression deeper than " + MAX_DEPTH + " operations");
+        }
+        if (node instanceof ExpressionNode.Literal literal) {
+            BigDecimal value = literal.value();
+            return (slots, mathContext) -> exact(value, mathContext);
+        }
+        if (node instanceof ExpressionNode.Variable variable) {
+            int slot = variables.indexOf(variable.name());
+            if (slot < 0) {
+                slot = variables.size();
+                variables.add(variable.name());
+            }
+            int index = slot;
+            return (slots, mathContext) -> slots[index];
+        }
+        if (node instanceof ExpressionNode.Negation negation) {
+            if (negation.operand() instanceof ExpressionNode.Literal literal) {
+                BigDecimal value = literal.value().negate();
+                return (slots, mathContext) -> exact(value, mathContext);
+            }
+            Evaluator operand = compile(negation.operand(), variables, depth + 1);
+            return (slots, mathContext) -> operand.evaluate(slots, mathContext).negate();
+        }
+        ExpressionNode.Binary binary = (ExpressionNode.Binary) node;
+        Evaluator left = compile(binary.left(), variables, depth + 1);
+        Evaluator right = compile(binary.right(), variables, depth + 1);
+        switch (binary.operator()) {
+            case ADDITION:
+                return (slots, mathContext) -> exact(left.evaluate(slots, mathContext)
+                        .add(right.evaluate(slots, mathContext), mathContext), mathContext);
+            case SUBTRACTION:
+                return (slots, mathContext) -> exact(left.evaluate(slots, mathContext)
+                        .subtract(right.evaluate(slots, mathContext), mathContext), mathContext);
+            case MULTIPLICATION:
+                return (slots, mathContext) -> exact(left.evaluate(slots, mathContext)
+                        .multiply(right.evaluate(slots, mathContext), mathContext), mathContext);
+            case DIVISION:
+                return (slots, mathContext) -> {
+                    BigDecimal dividend = left.evaluate(slots, mathContext);
+                    BigDecimal divisor = right.evaluate(slots, mathContext);
+                    if (divisor.signum() == 0) {
+                        throw new ArithmeticException("Division by zero is not allowed.");
+                    }
+                    return exact(dividend.divide(divisor, mathContext), mathContext);
+                };
+            default:
+                throw new IllegalArgumentException("Invalid operator: " + binary.operator());
+        }
+    }
+
+    /**
+     * @param values      The value of every variable of the expression; extra entries are ignored.
+     * @param mathContext The precision and rounding of every operation.
+     * @return The value of the expression.
+     */
+    public BigDecimal evaluate(Map<String, BigDecimal> values, MathContext mathContext) {
+        BigDecimal[] slots = new BigDecimal[variables.size()];
+        for (int i = 0; i < slots.length; i++) {
+            BigDecimal value = values == null ? null : values.get(variables.get(i));
+            if (value == null) {
+                throw new IllegalArgumentException("Missing value for variable '" + variables.get(i) + "'");
+            }
+            slots[i] = exact(value, mathContext);
+        }
+        return root.evaluate(slots, mathContext).round(mathContext);
+    }
+
+    // Operands of an exact operation are bounded, so computing its result before checking it is bounded too
+    private static BigDecimal exact(BigDecimal value, MathContext mathContext) {
+        if (mathContext.getPrecision() == 0
+                && (value.precision() > MAX_EXACT_DIGITS || Math.abs((long) value.scale()) > MAX_EXACT_DIGITS)) {
+            throw new ArithmeticException("Exact evaluation is limited to " + MAX_EXACT_DIGITS
+                    + " digits and scale; set a precision");
+        }
+        return value;
+    }
+
+    public String text() {
+        return text;
+    }
+
+    /**
+     * @return The variable names, in slot order (first appearance in the expression).
+     */
+    public List<String> variables() {
+        return variables;
+    }
+
+    @FunctionalInterface
+    private interface Evaluator {
+        BigDecimal evaluate(BigDecimal[] slots, MathContext mathContext);
+    }
+}
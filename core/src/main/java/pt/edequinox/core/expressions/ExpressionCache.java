@@ -0,0 +1,45 @@
+package pt.edequinox.core.expressions;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of {@link CompiledExpression}s keyed by expression text, so an expression sent again (typically
+ * with other variable values) is parsed and compiled only once. Eviction is Caffeine's size-bounded W-TinyLFU;
+ * hit/miss/eviction counts are published as the {@code cache.*} meters tagged {@code cache=compiled-expressions}.
+ * Expressions that fail to parse are not cached.
+ */
+@Component
+public class ExpressionCache {
+
+    public static final String CACHE_NAME = "compiled-expressions";
+
+    private final Cache<String, CompiledExpression> cache;
+
+    @Autowired
+    public ExpressionCache(@Value("${app.expression.cache.max-size}") long maxSize, MeterRegistry meterRegistry) {
+        if (maxSize <= 0) {
+            this.cache = null;
+            return;
+        }
+        this.cache = Caffeine.newBuilder().maximumSize(maxSize).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * @param text The expression text.
+     * @return The compiled expression, from the cache or compiled now.
+     * @throws IllegalArgumentException If the expression is malformed.
+     */
+    public CompiledExpression get(String text) {
+        if (cache == null || text == null) {
+            return CompiledExpression.compile(text);
+        }
+        return cache.get(text, CompiledExpression::compile);
+    }
+}
@@ -0,0 +1,26 @@
+package pt.edequinox.core.expressions;
+
+import pt.edequinox.api.models.OperationType;
+
+import java.math.BigDecimal;
+
+/**
+ * Abstract syntax tree of an arithmetic expression, as produced by {@link ExpressionParser}.
+ */
+public sealed interface ExpressionNode {
+
+    record Literal(BigDecimal value) implements ExpressionNode {
+    }
+
+    record Variable(String name) implements ExpressionNode {
+    }
+
+    record Negation(ExpressionNode operand) implements ExpressionNode {
+    }
+
+    /**
+     * @param operator One of the four binary {@link OperationType}s.
+     */
+    record Binary(OperationType operator, ExpressionNode left, ExpressionNode right) implements ExpressionNode {
+    }
+}
@@ -0,0 +1,166 @@
+package pt.edequinox.core.expressions;
+
+import pt.edequinox.api.models.OperationType;
+
+import java.math.BigDecimal;
+
+/**
+ * Recursive-descent parser for arithmetic expressions over decimal literals and named variables:
+ * <pre>
+ * expression = term (("+" | "-") term)*
+ * term       = unary (("*" | "/") unary)*
+ * unary      = ("-" | "+") unary | primary
+ * primary    = number | variable | "(" expression ")"
+ * </pre>
+ * Numbers are read with {@link BigDecimal#BigDecimal(String)} (e.g. {@code 12}, {@code 0.25}, {@code 1.5e3}),
+ * variables are identifiers ({@code [A-Za-z_][A-Za-z0-9_]*}) and whitespace is ignored. Operators of the same
+ * precedence associate to the left. Nesting is limited to {@value #MAX_DEPTH} levels so that a hostile expression
+ * cannot exhaust the stack; malformed input throws {@link IllegalArgumentException} with the offending position.
+ */
+public final class ExpressionParser {
+
+    static final int MAX_DEPTH = 256;
+
+    private final String text;
+    private int position;
+    private int depth;
+
+    private ExpressionParser(String text) {
+        this.text = text;
+    }
+
+    public static ExpressionNode parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Expression must not be empty");
+        }
+        ExpressionParser parser = new ExpressionParser(text);
+        ExpressionNode node = parser.expression();
+        parser.skipWhitespace();
+        if (parser.position < text.length()) {
+            throw parser.error("unexpected '" + text.charAt(parser.position) + "'");
+        }
+        return node;
+    }
+
+    private ExpressionNode expression() {
+        ExpressionNode node = term();
+        while (true) {
+            if (consume('+')) {
+                node = new ExpressionNode.Binary(OperationType.ADDITION, node, term());
+            } else if (consume('-')) {
+                node = new ExpressionNode.Binary(OperationType.SUBTRACTION, node, term());
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private ExpressionNode term() {
+        ExpressionNode node = unary();
+        while (true) {
+            if (consume('*')) {
+                node = new ExpressionNode.Binary(OperationType.MULTIPLICATION, node, unary());
+            } else if (consume('/')) {
+                node = new ExpressionNode.Binary(OperationType.DIVISION, node, unary());
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private ExpressionNode unary() {
+        if (++depth > MAX_DEPTH) {
+            throw error("nesting deeper than " + MAX_DEPTH + " levels");
+        }
+        try {
+            if (consume('-')) {
+                return new ExpressionNode.Negation(unary());
+            }
+            if (consume('+')) {
+                return unary();
+            }
+            return primary();
+        } finally {
+            depth--;
+        }
+    }
+
+    private ExpressionNode primary() {
+        skipWhitespace();
+        if (position >= text.length()) {
+            throw error("unexpected end of expression");
+        }
+        char c = text.charAt(position);
+        if (c == '(') {
+            position++;
+            ExpressionNode node = expression();
+            if (!consume(')')) {
+                throw error("expected ')'");
+            }
+            return node;
+        }
+        if (isDigit(c) || c == '.') {
+            return number();
+        }
+        if (Character.isLetter(c) || c == '_') {
+            int start = position;
+            while (position < text.length()
+                    && (Character.isLetterOrDigit(text.charAt(position)) || text.charAt(position) == '_')) {
+                position++;
+            }
+            return new ExpressionNode.Variable(text.substring(start, position));
+        }
+        throw error("unexpected '" + c + "'");
+    }
+
+    private ExpressionNode number() {
+        int start = position;
+        skipDigits();
+        if (position < text.length() && text.charAt(position) == '.') {
+            position++;
+            skipDigits();
+        }
+        if (position < text.length() && (text.charAt(position) == 'e' || text.charAt(position) == 'E')) {
+            position++;
+            if (position < text.length() && (text.charAt(position) == '+' || text.charAt(position) == '-')) {
+                position++;
+            }
+            skipDigits();
+        }
+        try {
+            return new ExpressionNode.Literal(new BigDecimal(text.substring(start, position)));
+        } catch (NumberFormatException e) {
+            position = start;
+            throw error("invalid number");
+        }
+    }
+
+    private boolean consume(char expected) {
+        skipWhitespace();
+        if (position < text.length() && text.charAt(position) == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipDigits() {
+        while (position < text.length() && isDigit(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid expression at position " + position + ": " + message);
+    }
+}
@@ -0,0 +1,133 @@
+package pt.edequinox.core.services;
+
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.core.expressions.ExpressionCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class CalculatorService {
+
+    public static final Logger logger = LoggerFactory.getLogger(CalculatorService.class);
+
+    // MathContext of EXPRESSION requests that set neither precision nor rounding mode
+    public static final MathContext DEFAULT_EXPRESSION_CONTEXT = MathContext.DECIMAL128;
+    public static final int MAX_EXPRESSION_PRECISION = 1000;
+
+    private final ExpressionCache expressionCache;
+
+    @Autowired
+    public CalculatorService(ExpressionCache expressionCache) {
+        this.expressionCache = expressionCache;
+    }
+
+    /**
+     * Evaluates a single binary operation. Small operands take the primitive {@link FastArithmetic} paths;
+     * anything those cannot represent exactly falls back to {@link BigDecimal}, with identical results.
+     * EXPRESSION requests are delegated to {@link #evaluateExpression}.
+     * @param request The operation request.
+     * @return The result of the operation.
+     */
+    public BigDecimal performOperation(OperationRequest request) {
+
+        BigDecimal result;
+        BigDecimal operand1 = request.getOperand1();
+        BigDecimal operand2 = request.getOperand2();
+
+        logger.debug("Performing operation: {}", request);
+        switch (request.getOperationType()) {
+            case ADDITION:
+                result = FastArithmetic.add(operand1, operand2);
+                if (result == null) {
+                    result = operand1.add(operand2);
+                }
+                break;
+            case SUBTRACTION:
+                result = FastArithmetic.subtract(operand1, operand2);
+                if (result == null) {
+                    result = operand1.subtract(operand2);
+                }
+                break;
+            case MULTIPLICATION:
+                result = FastArithmetic.multiply(operand1, operand2);
+                if (result == null) {
+                    result = operand1.multiply(operand2);
+                }
+                break;
+            case DIVISION:
+                if(operand2.compareTo(BigDecimal.ZERO) == 0) {
+                    logger.error("Division by zero attempted: {}", request);
+                    throw new ArithmeticException("Division by zero is not allowed.");
+                }
+                result = FastArithmetic.divideHalfUp(operand1, operand2);
+                if (result == null) {
+                    result = operand1.divide(operand2, RoundingMode.HALF_UP);
+                }
+                break;
+            case EXPRESSION:
+                result = evaluateExpression(request);
+                break;
+            default:
+                logger.error("Invalid operation type: {}", request.getOperationType());
+                throw new IllegalArgumentException("Invalid operation type");
+        }
+        logger.debug("Operation result: {}", result);
+        return result;
+    }
+
+    /**
+     * Evaluates an EXPRESSION request in one pass: the expression is compiled once per distinct text
+     * ({@link ExpressionCache}) and evaluated with the request's variables and MathContext.
+     * @param request The expression request.
+     * @return The value of the expression, rounded to the request's MathContext.
+     */
+    public BigDecimal evaluateExpression(OperationRequest request) {
+        return expressionCache.get(request.getExpression()).evaluate(request.getVariables(), mathContext(request));
+    }
+
+    private static MathContext mathContext(OperationRequest request) {
+        if (request.getPrecision() == null && request.getRoundingMode() == null) {
+            return DEFAULT_EXPRESSION_CONTEXT;
+        }
+        int precision = request.getPrecision() != null ? request.getPrecision() : DEFAULT_EXPRESSION_CONTEXT.getPrecision();
+        if (precision < 0 || precision > MAX_EXPRESSION_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between 0 and " + MAX_EXPRESSION_PRECISION);
+        }
+        RoundingMode roundingMode = request.getRoundingMode() != null
+                ? request.getRoundingMode() : DEFAULT_EXPRESSION_CONTEXT.getRoundingMode();
+        return new MathContext(precision, roundingMode);
+    }
+
+    /**
+     * Evaluates every item of a BATCH envelope in one pass. Items are independent: a failing item
+     * (e.g. division by zero) yields an error entry at its position and does not affect the others.
+     * @param batch The batch envelope.
+     * @return One result per item, in request order.
+     */
+    public List<OperationResult> performBatch(OperationRequest batch) {
+        List<OperationRequest> items = batch.getItems();
+        if (items == null) {
+            throw new IllegalArgumentException("Batch request without items");
+        }
+
+        List<OperationResult> results = new ArrayList<>(items.size());
+        for (OperationRequest item : items) {
+            try {
+                results.add(new OperationResult(null, item.getOperationType(), performOperation(item)));
+            } catch (RuntimeException e) {
+                results.add(new OperationResult(null, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+}
@@ -0,0 +1,112 @@
+package pt.edequinox.core.services;
+
+import java.math.BigDecimal;
+
+/**
+ * Primitive fast paths for {@link CalculatorService}: operands of up to 18 digits and a scale between 0 and
+ * {@link #MAX_SCALE} are computed on {@code long}s, with the same result as {@link BigDecimal}. Every method returns
+ * {@code null} when the operands are not eligible or the computation would overflow.
+ */
+final class FastArithmetic {
+
+    static final int MAX_SCALE = 18;
+    private static final int MAX_PRECISION = 18;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L,
+            100_000_000_000_000L, 1_000_000_000_000_000L, 10_000_000_000_000_000L,
+            100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    private FastArithmetic() {
+    }
+
+    /** Same result as {@code a.add(b)}, or {@code null}. */
+    static BigDecimal add(BigDecimal a, BigDecimal b) {
+        if (!isEligible(a) || !isEligible(b)) {
+            return null;
+        }
+        try {
+            if (a.scale() == 0 && b.scale() == 0) {
+                return BigDecimal.valueOf(Math.addExact(a.longValueExact(), b.longValueExact()));
+            }
+            int scale = Math.max(a.scale(), b.scale());
+            return BigDecimal.valueOf(Math.addExact(unscaled(a, scale), unscaled(b, scale)), scale);
+        } catch (ArithmeticException overflow) {
+            return null;
+        }
+    }
+
+    /** Same result as {@code a.subtract(b)}, or {@code null}. */
+    static BigDecimal subtract(BigDecimal a, BigDecimal b) {
+        if (!isEligible(a) || !isEligible(b)) {
+            return null;
+        }
+        try {
+            if (a.scale() == 0 && b.scale() == 0) {
+                return BigDecimal.valueOf(Math.subtractExact(a.longValueExact(), b.longValueExact()));
+            }
+            int scale = Math.max(a.scale(), b.scale());
+            return BigDecimal.valueOf(Math.subtractExact(unscaled(a, scale), unscaled(b, scale)), scale);
+        } catch (ArithmeticException overflow) {
+            return null;
+        }
+    }
+
+    /** Same result as {@code a.multiply(b)}, or {@code null}. */
+    static BigDecimal multiply(BigDecimal a, BigDecimal b) {
+        if (!isEligible(a) || !isEligible(b)) {
+            return null;
+        }
+        try {
+            if (a.scale() == 0 && b.scale() == 0) {
+                return BigDecimal.valueOf(Math.multiplyExact(a.longValueExact(), b.longValueExact()));
+            }
+            return BigDecimal.valueOf(Math.multiplyExact(unscaled(a, a.scale()), unscaled(b, b.scale())),
+                    a.scale() + b.scale());
+        } catch (ArithmeticException overflow) {
+            return null;
+        }
+    }
+
+    /**
+     * Same result as {@code a.divide(b, RoundingMode.HALF_UP)}, i.e. the quotient rounded half away from
+     * zero to the scale of {@code a}, or {@code null}. {@code b} must not be zero.
+     */
+    static BigDecimal divideHalfUp(BigDecimal a, BigDecimal b) {
+        if (!isEligible(a) || !isEligible(b)) {
+            return null;
+        }
+        try {
+            // a / b at scale(a) == round(unscaled(a) * 10^scale(b) / unscaled(b))
+            long dividend = Math.multiplyExact(unscaled(a, a.scale()), POWERS_OF_TEN[b.scale()]);
+            long divisor = unscaled(b, b.scale());
+
+            long quotient = dividend / divisor;
+            long remainder = Math.abs(dividend % divisor);
+            if (remainder != 0 && remainder >= Math.abs(divisor) - remainder) {
+                quotient += (dividend < 0) == (divisor < 0) ? 1 : -1;
+            }
+            return BigDecimal.valueOf(quotient, a.scale());
+        } catch (ArithmeticException overflow) {
+            return null;
+        }
+    }
+
+    private static boolean isEligible(BigDecimal value) {
+        return value.scale() >= 0 && value.scale() <= MAX_SCALE && value.precision() <= MAX_PRECISION;
+    }
+
+    /**
+     * Unscaled value of {@code value} expressed at {@code scale} (>= value.scale()). {@link #isEligible} bounds the
+     * unscaled value to 18 digits, so it is held compactly in a long and read without building a {@code BigInteger}
+     * (as {@link BigDecimal#unscaledValue()} would); only the rescaling can overflow.
+     */
+    private static long unscaled(BigDecimal value, int scale) {
+        long unscaled = value.scale() == 0
+                ? value.longValueExact()
+                : value.scaleByPowerOfTen(value.scale()).longValueExact();
+        return Math.multiplyExact(unscaled, POWERS_OF_TEN[scale - value.scale()]);
+    }
+}
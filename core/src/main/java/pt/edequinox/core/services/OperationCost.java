@@ -0,0 +1,213 @@
+package pt.edequinox.core.services;
+
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationType;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimated cost of evaluating a request with {@link CalculatorService}, in digit operations: roughly the number of
+ * decimal digit pairs the arithmetic touches. It only looks at the sizes of the numbers, never at their values, so
+ * it costs next to nothing compared with the evaluation itself.
+ * <ul>
+ *     <li>ADDITION, SUBTRACTION: the digits of both operands, plus the difference of their scales (alignment).</li>
+ *     <li>MULTIPLICATION: the product of the operands' digits.</li>
+ *     <li>DIVISION: quotient digits times divisor digits. The quotient keeps the scale of the dividend, so a
+ *     dividend or divisor with a huge scale makes a long quotient.</li>
+ *     <li>EXPRESSION: every operator works on numbers of the expression's precision (its longest literal or
+ *     variable when the precision is {@code 0}, i.e. exact), plus reading each variable once. Literals are sized
+ *     like operands, scale included, so {@code 1e999999999} counts as a billion digits.</li>
+ *     <li>BATCH: the sum of its items.</li>
+ * </ul>
+ * Estimates saturate at {@link Long#MAX_VALUE}.
+ */
+public final class OperationCost {
+
+    private OperationCost() {
+    }
+
+    public static long estimate(OperationRequest request) {
+        OperationType type = request.getOperationType();
+        if (type == null) {
+            return 1;
+        }
+        return switch (type) {
+            case ADDITION, SUBTRACTION -> additive(request.getOperand1(), request.getOperand2());
+            case MULTIPLICATION -> multiplied(digits(request.getOperand1()), digits(request.getOperand2()));
+            case DIVISION -> division(request.getOperand1(), request.getOperand2());
+            case EXPRESSION -> expression(request);
+            case BATCH -> batch(request.getItems());
+        };
+    }
+
+    /**
+     * Digits of the longest number the evaluation works with: operands, variables and, for EXPRESSION requests, the
+     * literals and the precision. For BATCH the largest of its items.
+     */
+    public static int maxDigits(OperationRequest request) {
+        if (request.getOperationType() == OperationType.BATCH) {
+            int max = 0;
+            if (request.getItems() != null) {
+                for (OperationRequest item : request.getItems()) {
+                    max = Math.max(max, maxDigits(item));
+                }
+            }
+            return max;
+        }
+        int max = Math.max(digits(request.getOperand1()), digits(request.getOperand2()));
+        if (request.getVariables() != null) {
+            for (BigDecimal value : request.getVariables().values()) {
+                max = Math.max(max, digits(value));
+            }
+        }
+        if (request.getOperationType() == OperationType.EXPRESSION) {
+            int precision = request.getPrecision() != null
+                    ? request.getPrecision() : CalculatorService.DEFAULT_EXPRESSION_CONTEXT.getPrecision();
+            max = Math.max(max, Math.max(precision, literalDigits(request.getExpression())));
+        }
+        return max;
+    }
+
+    /**
+     * Digits of the unscaled value plus those implied by the scale, e.g. 3 for {@code 1E+2} and {@code 0.01}.
+     */
+    public static int digits(BigDecimal value) {
+        return value == null ? 0 : (int) Math.min(Integer.MAX_VALUE, value.precision() + Math.abs((long) value.scale()));
+    }
+
+    private static long additive(BigDecimal operand1, BigDecimal operand2) {
+        if (operand1 == null || operand2 == null) {
+            return 1;
+        }
+        return (long) operand1.precision() + operand2.precision()
+                + Math.abs((long) operand1.scale() - operand2.scale());
+    }
+
+    private static long division(BigDecimal dividend, BigDecimal divisor) {
+        if (dividend == null || divisor == null) {
+            return 1;
+        }
+        // dividend.divide(divisor, dividend.scale(), ...) divides unscaled values, one of them shifted by the
+        // divisor's scale
+        long dividendDigits = dividend.precision() + Math.max(0L, divisor.scale());
+        long divisorDigits = divisor.precision() + Math.max(0L, -(long) divisor.scale());
+        long quotientDigits = Math.max(1, dividendDigits - divisorDigits + 1);
+        return multiplied(quotientDigits, divisorDigits);
+    }
+
+    private static long expression(OperationRequest request) {
+        String expression = request.getExpression();
+        if (expression == null) {
+            return 1;
+        }
+        long operators = 1;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            // Also counts exponent signs, which only overestimates
+            if (c == '+' || c == '-' || c == '*' || c == '/') {
+                operators++;
+            }
+        }
+
+        long variableDigits = 0;
+        int longestVariable = 0;
+        Map<String, BigDecimal> variables = request.getVariables();
+        if (variables != null) {
+            for (BigDecimal value : variables.values()) {
+                int digits = digits(value);
+                variableDigits += digits;
+                longestVariable = Math.max(longestVariable, digits);
+            }
+        }
+
+        long precision = request.getPrecision() != null
+                ? request.getPrecision() : CalculatorService.DEFAULT_EXPRESSION_CONTEXT.getPrecision();
+        if (precision <= 0) {
+            precision = Math.max(1, Math.max(literalDigits(expression), longestVariable));
+        }
+        return saturatedAdd(multiplied(operators, multiplied(precision, precision)), variableDigits);
+    }
+
+    /**
+     * Digits of the longest number literal in the expression, read as {@code ExpressionParser} reads them. A literal
+     * whose exponent overflows a {@link BigDecimal} counts as {@link Integer#MAX_VALUE} digits.
+     */
+    private static int literalDigits(String expression) {
+        if (expression == null) {
+            return 0;
+        }
+        int max = 0;
+        int i = 0;
+        while (i < expression.length()) {
+            char c = expression.charAt(i);
+            if (Character.isLetter(c) || c == '_') {
+                // Variable names may contain digits
+                while (i < expression.length()
+                        && (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '_')) {
+                    i++;
+                }
+            } else if (isDigit(c) || c == '.') {
+                int start = i;
+                int exponent = -1;
+                i = skipDigits(expression, i);
+                if (i < expression.length() && expression.charAt(i) == '.') {
+                    i = skipDigits(expression, i + 1);
+                }
+                if (i < expression.length() && (expression.charAt(i) == 'e' || expression.charAt(i) == 'E')) {
+                    i++;
+                    if (i < expression.length() && (expression.charAt(i) == '+' || expression.charAt(i) == '-')) {
+                        i++;
+                    }
+                    exponent = i;
+                    i = skipDigits(expression, i);
+                }
+                try {
+                    max = Math.max(max, digits(new BigDecimal(expression.substring(start, i))));
+                } catch (NumberFormatException e) {
+                    // Otherwise malformed, which the parser rejects
+                    if (exponent >= 0 && i - exponent > 9) {
+                        return Integer.MAX_VALUE;
+                    }
+                }
+            } else {
+                i++;
+            }
+        }
+        return max;
+    }
+
+    private static int skipDigits(String expression, int i) {
+        while (i < expression.length() && isDigit(expression.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static long batch(List<OperationRequest> items) {
+        if (items == null) {
+            return 1;
+        }
+        long cost = 0;
+        for (OperationRequest item : items) {
+            cost = saturatedAdd(cost, estimate(item));
+        }
+        return cost;
+    }
+
+    private static long multiplied(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long product = a * b;
+        return high != 0 || product < 0 ? Long.MAX_VALUE : product;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+}
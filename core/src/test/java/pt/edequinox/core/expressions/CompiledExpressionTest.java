@@ -0,0 +1,103 @@
+package pt.edequinox.core.expressions;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.core.services.CalculatorService;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledExpressionTest {
+
+    @Test
+    void evaluate_HonoursPrecedenceParenthesesAndUnaryMinus() {
+        assertEquals(new BigDecimal("14"), CompiledExpression.compile("2 + 3 * 4").evaluate(Map.of(), MathContext.UNLIMITED));
+        assertEquals(new BigDecimal("20"), CompiledExpression.compile("(2 + 3) * 4").evaluate(Map.of(), MathContext.UNLIMITED));
+        assertEquals(new BigDecimal("-1"), CompiledExpression.compile("8 / 4 / 2 - 2").evaluate(Map.of(), MathContext.UNLIMITED));
+        assertEquals(new BigDecimal("5"), CompiledExpression.compile("-(2 - 7)").evaluate(Map.of(), MathContext.UNLIMITED));
+        assertEquals(new BigDecimal("1.5E+3"), CompiledExpression.compile("--1.5e3").evaluate(Map.of(), MathContext.UNLIMITED));
+    }
+
+    @Test
+    void evaluate_BindsVariablesToSlots() {
+        CompiledExpression expression = CompiledExpression.compile("(a + b) * c / d + a");
+
+        assertEquals(List.of("a", "b", "c", "d"), expression.variables());
+        assertEquals(new BigDecimal("10.5"), expression.evaluate(Map.of("a", new BigDecimal("1.5"), "b", new BigDecimal("4.5"),
+                "c", new BigDecimal("3"), "d", new BigDecimal("2")), MathContext.DECIMAL128));
+        IllegalArgumentException missing = assertThrows(IllegalArgumentException.class,
+                () -> expression.evaluate(Map.of("a", BigDecimal.ONE), MathContext.DECIMAL128));
+        assertEquals("Missing value for variable 'b'", missing.getMessage());
+    }
+
+    @Test
+    void evaluate_RoundsEveryOperationToTheMathContext() {
+        CompiledExpression expression = CompiledExpression.compile("1 / 3 * 3");
+
+        assertEquals(new BigDecimal("0.999"), expression.evaluate(Map.of(), new MathContext(3, RoundingMode.HALF_UP)));
+        assertEquals(new BigDecimal("1.01"), expression.evaluate(Map.of(), new MathContext(3, RoundingMode.UP)));
+        assertThrows(ArithmeticException.class, () -> expression.evaluate(Map.of(), MathContext.UNLIMITED));
+        ArithmeticException divisionByZero = assertThrows(ArithmeticException.class,
+                () -> CompiledExpression.compile("1 / (a - a)").evaluate(Map.of("a", BigDecimal.TEN), MathContext.DECIMAL64));
+        assertEquals("Division by zero is not allowed.", divisionByZero.getMessage());
+    }
+
+    @Test
+    void exactEvaluation_IsBoundedInDigitsAndScale() {
+        BigDecimal large = BigDecimal.TEN.pow(600);
+        CompiledExpression square = CompiledExpression.compile("a * a");
+
+        assertEquals(BigDecimal.TEN.pow(800), square.evaluate(Map.of("a", BigDecimal.TEN.pow(400)), MathContext.UNLIMITED));
+        assertThrows(ArithmeticException.class, () -> square.evaluate(Map.of("a", large), MathContext.UNLIMITED));
+        assertThrows(ArithmeticException.class, () -> CompiledExpression.compile("1e999999999 + 1")
+                .evaluate(Map.of(), MathContext.UNLIMITED));
+        assertThrows(ArithmeticException.class, () -> square.evaluate(Map.of("a", new BigDecimal("1e-1001")),
+                MathContext.UNLIMITED));
+        // With a precision the same numbers are rounded instead
+        assertEquals(0, new BigDecimal("1e999999999").compareTo(CompiledExpression.compile("1e999999999 + 1")
+                .evaluate(Map.of(), MathContext.DECIMAL64)));
+    }
+
+    @Test
+    void compile_RejectsMalformedExpressions() {
+        assertEquals("Invalid expression at position 4: unexpected end of expression",
+                assertThrows(IllegalArgumentException.class, () -> CompiledExpression.compile("1 + ")).getMessage());
+        assertEquals("Invalid expression at position 6: expected ')'",
+                assertThrows(IllegalArgumentException.class, () -> CompiledExpression.compile("(1 + 2")).getMessage());
+        assertEquals("Invalid expression at position 2: unexpected '%'",
+                assertThrows(IllegalArgumentException.class, () -> CompiledExpression.compile("1 % 2")).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> CompiledExpression.compile("1..2"));
+        assertThrows(IllegalArgumentException.class, () -> CompiledExpression.compile("("
+                .repeat(ExpressionParser.MAX_DEPTH + 1) + "1" + ")".repeat(ExpressionParser.MAX_DEPTH + 1)));
+        assertThrows(IllegalArgumentException.class, () -> CompiledExpression.compile("1" + "+1".repeat(CompiledExpression.MAX_DEPTH + 1)));
+    }
+
+    @Test
+    void cache_CompilesEachExpressionOnce() {
+        ExpressionCache cache = new ExpressionCache(100, new SimpleMeterRegistry());
+
+        assertSame(cache.get("a * b"), cache.get("a * b"));
+        ExpressionCache uncached = new ExpressionCache(0, new SimpleMeterRegistry());
+        assertNotSame(uncached.get("a * b"), uncached.get("a * b"));
+        assertThrows(IllegalArgumentException.class, () -> cache.get("a *"));
+    }
+
+    @Test
+    void calculatorService_EvaluatesExpressionRequests() {
+        CalculatorService calculatorService = new CalculatorService(new ExpressionCache(100, new SimpleMeterRegistry()));
+        Map<String, BigDecimal> variables = Map.of("a", new BigDecimal("2"), "b", new BigDecimal("3"));
+
+        assertEquals(new BigDecimal("0.6666666666666666666666666666666667"),
+                calculatorService.performOperation(new OperationRequest("a / b", variables, null, null)));
+        assertEquals(new BigDecimal("0.66"),
+                calculatorService.performOperation(new OperationRequest("a / b", variables, 2, RoundingMode.DOWN)));
+        assertThrows(IllegalArgumentException.class,
+                () -> calculatorService.performOperation(new OperationRequest("a / b", variables, -1, null)));
+    }
+}
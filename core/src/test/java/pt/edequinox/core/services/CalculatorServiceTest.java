@@ -0,0 +1,160 @@
+package pt.edequinox.core.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.core.expressions.ExpressionCache;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalculatorServiceTest {
+
+    private CalculatorService calculatorService;
+
+    @BeforeEach
+    void setUp() {
+        calculatorService = new CalculatorService(new ExpressionCache(0, new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void addition_ReturnsCorrectSum() {
+        OperationRequest req = new OperationRequest(OperationType.ADDITION,
+                new BigDecimal("2"), new BigDecimal("3"));
+
+        BigDecimal result = calculatorService.performOperation(req);
+
+        assertEquals(0, result.compareTo(new BigDecimal("5")));
+    }
+
+    @Test
+    void subtraction_ReturnsCorrectDifference() {
+        OperationRequest req = new OperationRequest(OperationType.SUBTRACTION,
+                new BigDecimal("10"), new BigDecimal("4"));
+
+        BigDecimal result = calculatorService.performOperation(req);
+
+        assertEquals(0, result.compareTo(new BigDecimal("6")));
+    }
+
+    @Test
+    void multiplication_ReturnsCorrectProduct() {
+        OperationRequest req = new OperationRequest(OperationType.MULTIPLICATION,
+                new BigDecimal("6"), new BigDecimal("7"));
+
+        BigDecimal result = calculatorService.performOperation(req);
+
+        assertEquals(0, result.compareTo(new BigDecimal("42")));
+    }
+
+    @Test
+    void division_ReturnsCorrectQuotient() {
+        OperationRequest req = new OperationRequest(OperationType.DIVISION,
+                new BigDecimal("5"), new BigDecimal("2"));
+
+        BigDecimal result = calculatorService.performOperation(req);
+
+        // 5 / 2 => 3: the quotient keeps the dividend's scale, rounded HALF_UP
+        assertEquals(0, result.compareTo(new BigDecimal("3")));
+    }
+
+    @Test
+    void division_ByZero_ThrowsArithmeticException() {
+        OperationRequest req = new OperationRequest(OperationType.DIVISION,
+                new BigDecimal("1"), BigDecimal.ZERO);
+
+        assertThrows(ArithmeticException.class, () -> calculatorService.performOperation(req));
+    }
+
+    @Test
+    void batch_ReturnsOneEntryPerItemInOrder() {
+        OperationRequest batch = new OperationRequest(List.of(
+                new OperationRequest(OperationType.ADDITION, new BigDecimal("2"), new BigDecimal("3")),
+                new OperationRequest(OperationType.DIVISION, new BigDecimal("1"), BigDecimal.ZERO),
+                new OperationRequest(OperationType.MULTIPLICATION, new BigDecimal("6"), new BigDecimal("7"))));
+
+        List<OperationResult> results = calculatorService.performBatch(batch);
+
+        assertEquals(3, results.size());
+        assertEquals(0, results.get(0).getResult().compareTo(new BigDecimal("5")));
+        assertNull(results.get(1).getResult());
+        assertEquals("Division by zero is not allowed.", results.get(1).getError());
+        assertEquals(0, results.get(2).getResult().compareTo(new BigDecimal("42")));
+    }
+
+    // Differential tests: every result must equal (value and scale) the plain BigDecimal computation.
+
+    @Test
+    void differential_EdgeCasesMatchBigDecimalReference() {
+        String[] operands = {
+                "0", "1", "-1", "2", "3", "5", "7", "0.5", "-0.5", "2.5", "-2.5", "0.05", "1.000", "0.00",
+                "999999999999999999", "-999999999999999999", "1000000000000000000",
+                "9223372036854775807", "-9223372036854775808", "9223372036854775808",
+                "0.999999999999999999", "123456789.123456789", "1E+3", "1.5E-20",
+                "3037000499", "3037000500", "4611686018427387904", "0.000000000000000001"
+        };
+        for (String left : operands) {
+            for (String right : operands) {
+                assertMatchesReference(new BigDecimal(left), new BigDecimal(right));
+            }
+        }
+    }
+
+    @Test
+    void differential_RandomOperandsMatchBigDecimalReference() {
+        Random random = new Random(20251017L);
+        for (int i = 0; i < 20_000; i++) {
+            assertMatchesReference(randomOperand(random), randomOperand(random));
+        }
+    }
+
+    private void assertMatchesReference(BigDecimal operand1, BigDecimal operand2) {
+        for (OperationType type : List.of(OperationType.ADDITION, OperationType.SUBTRACTION,
+                OperationType.MULTIPLICATION, OperationType.DIVISION)) {
+            if (type == OperationType.DIVISION && operand2.signum() == 0) {
+                continue;
+            }
+            BigDecimal expected = reference(type, operand1, operand2);
+            BigDecimal actual = calculatorService.performOperation(new OperationRequest(type, operand1, operand2));
+            // BigDecimal.equals compares unscaled value and scale, i.e. bit-for-bit identity
+            assertEquals(expected, actual, () -> type + " " + operand1 + " " + operand2);
+        }
+    }
+
+    private static BigDecimal reference(OperationType type, BigDecimal operand1, BigDecimal operand2) {
+        switch (type) {
+            case ADDITION:
+                return operand1.add(operand2);
+            case SUBTRACTION:
+                return operand1.subtract(operand2);
+            case MULTIPLICATION:
+                return operand1.multiply(operand2);
+            default:
+                return operand1.divide(operand2, RoundingMode.HALF_UP);
+        }
+    }
+
+    private static BigDecimal randomOperand(Random random) {
+        switch (random.nextInt(5)) {
+            case 0:
+                return BigDecimal.valueOf(random.nextInt(2001) - 1000);
+            case 1:
+                return BigDecimal.valueOf(random.nextLong());
+            case 2:
+                return BigDecimal.valueOf(random.nextInt(2_000_001) - 1_000_000, random.nextInt(5));
+            case 3:
+                return BigDecimal.valueOf(random.nextLong() % 1_000_000_000_000_000_000L, random.nextInt(20));
+            default:
+                return new BigDecimal(new BigInteger(100, random), random.nextInt(30) - 5);
+        }
+    }
+
+}
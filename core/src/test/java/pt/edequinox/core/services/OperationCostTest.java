@@ -0,0 +1,79 @@
+package pt.edequinox.core.services;
+
+import org.junit.jupiter.api.Test;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationType;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationCostTest {
+
+    @Test
+    void multiplication_GrowsWithTheProductOfTheDigits() {
+        OperationRequest cheap = new OperationRequest(OperationType.MULTIPLICATION, new BigDecimal("2"), new BigDecimal("3"));
+        OperationRequest large = new OperationRequest(OperationType.MULTIPLICATION,
+                BigDecimal.TEN.pow(49_999), BigDecimal.TEN.pow(49_999));
+
+        assertEquals(1, OperationCost.estimate(cheap));
+        assertEquals(50_000L * 50_000L, OperationCost.estimate(large));
+    }
+
+    @Test
+    void addition_CountsScaleAlignment() {
+        OperationRequest request = new OperationRequest(OperationType.ADDITION,
+                new BigDecimal("1"), new BigDecimal("1E-1000"));
+
+        assertEquals(1 + 1 + 1000, OperationCost.estimate(request));
+    }
+
+    @Test
+    void division_WithHugeDividendScale_IsExpensive() {
+        OperationRequest cheap = new OperationRequest(OperationType.DIVISION, new BigDecimal("10"), new BigDecimal("4"));
+        OperationRequest scaled = new OperationRequest(OperationType.DIVISION,
+                new BigDecimal("1").setScale(100_000), new BigDecimal("3.7"));
+
+        assertTrue(OperationCost.estimate(cheap) < 10);
+        assertTrue(OperationCost.estimate(scaled) > 100_000);
+    }
+
+    @Test
+    void expression_UsesItsPrecision() {
+        OperationRequest decimal128 = new OperationRequest("a * b + 1", Map.of("a", BigDecimal.ONE, "b", BigDecimal.TEN),
+                null, null);
+        OperationRequest precise = new OperationRequest("a * b + 1", Map.of("a", BigDecimal.ONE, "b", BigDecimal.TEN),
+                1000, null);
+
+        assertTrue(OperationCost.estimate(precise) > OperationCost.estimate(decimal128));
+        assertEquals(34, OperationCost.maxDigits(decimal128));
+        assertEquals(1000, OperationCost.maxDigits(precise));
+    }
+
+    @Test
+    void expression_SizesLiteralsWithTheirScale() {
+        OperationRequest exact = new OperationRequest("x + 1e999999999", Map.of("x", BigDecimal.ONE), 0, null);
+        OperationRequest overflowing = new OperationRequest("x1 + 2e99999999999", Map.of("x1", BigDecimal.ONE), 10, null);
+
+        assertEquals(1_000_000_000, OperationCost.maxDigits(exact));
+        assertTrue(OperationCost.estimate(exact) >= 1_000_000_000L * 1_000_000_000L);
+        assertEquals(Integer.MAX_VALUE, OperationCost.maxDigits(overflowing));
+        // Digits in variable names are not literals
+        assertEquals(4, OperationCost.maxDigits(new OperationRequest("x12345 * 0.25", Map.of("x12345", BigDecimal.ONE),
+                0, null)));
+    }
+
+    @Test
+    void batch_SumsItsItemsAndSaturates() {
+        OperationRequest item = new OperationRequest(OperationType.MULTIPLICATION, new BigDecimal("12"), new BigDecimal("345"));
+        OperationRequest huge = new OperationRequest(OperationType.MULTIPLICATION,
+                new BigDecimal(BigDecimal.ONE.unscaledValue(), Integer.MIN_VALUE + 1),
+                new BigDecimal(BigDecimal.ONE.unscaledValue(), Integer.MIN_VALUE + 1));
+
+        assertEquals(12, OperationCost.estimate(new OperationRequest(List.of(item, item))));
+        assertEquals(3, OperationCost.maxDigits(new OperationRequest(List.of(item, item))));
+        assertEquals(Long.MAX_VALUE, OperationCost.estimate(new OperationRequest(List.of(huge, huge, huge))));
+    }
+}
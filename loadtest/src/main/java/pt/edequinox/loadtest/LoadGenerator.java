@@ -0,0 +1,215 @@
+package pt.edequinox.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Open-loop load: request {@code i} is due at {@code start + i / rate} whatever happened to the previous ones, and
+ * is sent by a single pacing thread as soon as it is due, without waiting for any response.
+ * <p>
+ * Latency is measured from the time a request was due, not from the time it was actually sent. When the system
+ * (or the pacing thread, or the client) stalls, the requests that should have been sent during the stall are sent
+ * late and their latency includes the time they waited, as it would for real clients arriving at that rate; a
+ * closed-loop client would instead stop sending during the stall and hide it (coordinated omission). The latency from
+ * the actual send is recorded too, as "uncorrected", to show the size of the difference.
+ * <p>
+ * Requests whose operands both have at most {@code cheap-digits} digits are also recorded on their own, so that the
+ * latency of cheap requests can be told apart from that of the expensive ones beside them.
+ * <p>
+ * Requests due during the warmup are sent like the others but not recorded. While the test runs, one line per report
+ * interval shows that interval's throughput, corrected percentiles and the highest number of requests pending a reply
+ * in the rest service, sampled every millisecond.
+ */
+final class LoadGenerator {
+
+    private static final long SAMPLE_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LoadTestOptions options;
+    private final URI baseUri;
+    private final IntSupplier pendingRequests;
+    private final LongSupplier timeouts;
+    private final PrintStream out;
+    private final HttpClient client;
+    private final Random random;
+
+    private final Recorder correctedRecorder = new Recorder(3);
+    private final Recorder uncorrectedRecorder = new Recorder(3);
+    private final Recorder cheapRecorder = new Recorder(3);
+    private final Histogram corrected = new Histogram(3);
+    private final Histogram uncorrected = new Histogram(3);
+    private final Histogram cheap = new Histogram(3);
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder badRequest = new LongAdder();
+    private final LongAdder tooManyRequests = new LongAdder();
+    private final LongAdder unavailable = new LongAdder();
+    private final LongAdder serverError = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong lastCompletion = new AtomicLong();
+    private final AtomicInteger intervalPendingMax = new AtomicInteger();
+    private final AtomicInteger pendingMax = new AtomicInteger();
+
+    LoadGenerator(LoadTestOptions options, URI baseUri, IntSupplier pendingRequests, LongSupplier timeouts,
+                  PrintStream out) {
+        this.options = options;
+        this.baseUri = baseUri;
+        this.pendingRequests = pendingRequests;
+        this.timeouts = timeouts;
+        this.out = out;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(options.timeout())
+                .build();
+        this.random = new Random(options.seed());
+    }
+
+    /**
+     * Runs the warmup and the measured run, waits for the outstanding responses (up to the client timeout) and
+     * returns the results of the measured run.
+     */
+    LoadTestReport run() throws InterruptedException {
+        double nanosPerRequest = 1e9 / options.rate();
+        long start = System.nanoTime();
+        long measureStart = start + options.warmup().toNanos();
+        long end = measureStart + options.duration().toNanos();
+        long total = (long) ((end - start) / nanosPerRequest);
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> samplePending(measureStart), 0, SAMPLE_PERIOD_NANOS, TimeUnit.NANOSECONDS);
+        long reportNanos = options.reportInterval().toNanos();
+        scheduler.scheduleAtFixedRate(() -> report(measureStart, reportNanos),
+                options.warmup().toNanos() + reportNanos, reportNanos, TimeUnit.NANOSECONDS);
+
+        out.printf("Warming up for %s, then measuring for %s at %d requests/s%n",
+                options.warmup(), options.duration(), options.rate());
+        long timeoutsAtStart = -1;
+        for (long i = 0; i < total; i++) {
+            long due = start + (long) (i * nanosPerRequest);
+            long delay;
+            while ((delay = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            boolean measured = due >= measureStart;
+            if (measured && timeoutsAtStart < 0) {
+                timeoutsAtStart = timeouts.getAsLong();
+            }
+            send(due, measured);
+        }
+
+        long drainDeadline = System.nanoTime() + options.timeout().toNanos();
+        while (outstanding.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        corrected.add(correctedRecorder.getIntervalHistogram());
+        uncorrected.add(uncorrectedRecorder.getIntervalHistogram());
+        cheap.add(cheapRecorder.getIntervalHistogram());
+
+        long completed = corrected.getTotalCount();
+        long elapsed = Math.max(lastCompletion.get(), end) - measureStart;
+        return new LoadTestReport(options, completed + outstanding.get(), completed,
+                completed * 1e9 / elapsed, corrected, uncorrected, cheap,
+                ok.sum(), badRequest.sum(), tooManyRequests.sum(), unavailable.sum(), serverError.sum(), failed.sum(),
+                outstanding.get(), timeouts.getAsLong() - Math.max(0, timeoutsAtStart), pendingMax.get());
+    }
+
+    private void send(long due, boolean measured) {
+        String endpoint = options.operations().next(random);
+        int digits1 = options.digits().next(random);
+        int digits2 = options.digits().next(random);
+        boolean isCheap = Math.max(digits1, digits2) <= options.cheapDigits();
+        URI uri = baseUri.resolve("/" + endpoint + "?operand1=" + operand(digits1) + "&operand2=" + operand(digits2));
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(options.timeout()).GET().build();
+        long sent = System.nanoTime();
+        if (measured) {
+            outstanding.incrementAndGet();
+        }
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, throwable) -> {
+            if (!measured) {
+                return;
+            }
+            long now = System.nanoTime();
+            correctedRecorder.recordValue(now - due);
+            uncorrectedRecorder.recordValue(now - sent);
+            if (isCheap) {
+                cheapRecorder.recordValue(now - due);
+            }
+            if (throwable != null) {
+                failed.increment();
+            } else {
+                count(response.statusCode());
+            }
+            lastCompletion.accumulateAndGet(now, Math::max);
+            outstanding.decrementAndGet();
+        });
+    }
+
+    private void count(int status) {
+        switch (status) {
+            case 200 -> ok.increment();
+            case 400 -> badRequest.increment();
+            case 429 -> tooManyRequests.increment();
+            case 503 -> unavailable.increment();
+            default -> serverError.increment();
+        }
+    }
+
+    /**
+     * A positive integer of {@code digits} digits; never zero, so it is a valid divisor.
+     */
+    private String operand(int digits) {
+        char[] chars = new char[digits];
+        chars[0] = (char) ('1' + random.nextInt(9));
+        for (int i = 1; i < digits; i++) {
+            chars[i] = (char) ('0' + random.nextInt(10));
+        }
+        return new String(chars);
+    }
+
+    private void samplePending(long measureStart) {
+        int pending = pendingRequests.getAsInt();
+        intervalPendingMax.accumulateAndGet(pending, Math::max);
+        if (System.nanoTime() >= measureStart) {
+            pendingMax.accumulateAndGet(pending, Math::max);
+        }
+    }
+
+    // Only called by the scheduler thread, and never concurrently with the final merge in run()
+    private void report(long measureStart, long intervalNanos) {
+        Histogram interval = correctedRecorder.getIntervalHistogram();
+        corrected.add(interval);
+        uncorrected.add(uncorrectedRecorder.getIntervalHistogram());
+        Histogram cheapInterval = cheapRecorder.getIntervalHistogram();
+        cheap.add(cheapInterval);
+        double seconds = intervalNanos / 1e9;
+        out.printf("[%6.1fs] %8.0f req/s  p50 %9s  p99 %9s  p99.9 %9s  max %9s  cheap p99 %9s  pending max %d%n",
+                (System.nanoTime() - measureStart) / 1e9, interval.getTotalCount() / seconds,
+                LoadTestReport.millis(interval.getValueAtPercentile(50)),
+                LoadTestReport.millis(interval.getValueAtPercentile(99)),
+                LoadTestReport.millis(interval.getValueAtPercentile(99.9)),
+                LoadTestReport.millis(interval.getMaxValue()),
+                LoadTestReport.millis(cheapInterval.getValueAtPercentile(99)),
+                intervalPendingMax.getAndSet(0));
+    }
+}
@@ -0,0 +1,47 @@
+package pt.edequinox.loadtest;
+
+import pt.edequinox.rest.services.RequestResponseService;
+
+import java.util.List;
+
+/**
+ * Soak test of the whole system in one JVM: starts {@link LoadTestEnvironment}, drives it with a
+ * {@link LoadGenerator} and prints the {@link LoadTestReport}.
+ * <p>
+ * From the command line: {@code ./gradlew :loadtest:loadTest --args="--rate=2000 --duration=10m"} (options in
+ * {@link LoadTestOptions}); the exit status is {@code 1} when a latency threshold is exceeded or requests went
+ * unanswered, {@code 2} on invalid options.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: LoadTest [--rate=<requests/s>] [--duration=<d>] [--warmup=<d>] "
+                    + "[--operations=add:1,divide:1,...] [--digits=<digits>:<weight>,...] [--profile=mixed] "
+                    + "[--kafka=<bootstrap servers>] "
+                    + "[--max-p99=<d>] [--rest.<property>=<v>] [--calculator.<property>=<v>] ...");
+            System.exit(2);
+            return;
+        }
+
+        List<String> violations;
+        try (LoadTestEnvironment environment = new LoadTestEnvironment(options)) {
+            RequestResponseService requestResponseService = environment.requestResponseService();
+            LoadTestReport report = new LoadGenerator(options, environment.baseUri(),
+                    requestResponseService::pendingRequestCount, environment::timeouts, System.out).run();
+            report.print(System.out);
+            violations = report.violations();
+        }
+        for (String violation : violations) {
+            System.out.println("FAILED: " + violation);
+        }
+        System.exit(violations.isEmpty() ? 0 : 1);
+    }
+}
@@ -0,0 +1,90 @@
+package pt.edequinox.loadtest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import pt.edequinox.calculator.CalculatorApplication;
+import pt.edequinox.rest.RestApplication;
+import pt.edequinox.rest.services.RequestResponseService;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The system under test: an embedded Kafka broker (unless {@code --kafka} names a running one), a calculator and a
+ * rest application in this JVM. Each reads its own {@code application.properties} from its jar (on the shared
+ * classpath {@code classpath:application.properties} is only one of them), then {@code loadtest-*.properties}.
+ */
+final class LoadTestEnvironment implements AutoCloseable {
+
+    private static final String[] TOPICS = {"operation-requests", "operation-requests-slow", "operation-results"};
+    private static final String HTTP_TARGETS = "app.transport.http.targets";
+
+    private final EmbeddedKafkaBroker broker;
+    private final ConfigurableApplicationContext calculator;
+    private final ConfigurableApplicationContext rest;
+
+    LoadTestEnvironment(LoadTestOptions options) {
+        String bootstrapServers = options.kafka();
+        if (bootstrapServers == null) {
+            broker = new EmbeddedKafkaKraftBroker(1, 1, TOPICS);
+            broker.afterPropertiesSet();
+            bootstrapServers = broker.getBrokersAsString();
+        } else {
+            broker = null;
+        }
+        String bootstrap = "--spring.kafka.bootstrap-servers=" + bootstrapServers;
+
+        List<String> calculatorArgs = new ArrayList<>(List.of(configLocation(CalculatorApplication.class, "loadtest-calculator"), bootstrap));
+        calculatorArgs.addAll(options.calculatorArguments());
+        calculator = new SpringApplicationBuilder(CalculatorApplication.class).run(calculatorArgs.toArray(String[]::new));
+
+        List<String> restArgs = new ArrayList<>(List.of(configLocation(RestApplication.class, "loadtest-rest"), bootstrap));
+        // For --rest.app.transport=http; a repeated command line property would be joined, not overridden
+        if (options.restArguments().stream().noneMatch(arg -> arg.startsWith("--" + HTTP_TARGETS + "="))) {
+            restArgs.add("--" + HTTP_TARGETS + "=http://localhost:"
+                    + calculator.getEnvironment().getProperty("local.server.port"));
+        }
+        restArgs.addAll(options.restArguments());
+        rest = new SpringApplicationBuilder(RestApplication.class).run(restArgs.toArray(String[]::new));
+    }
+
+    private static String configLocation(Class<?> application, String overrides) {
+        URL codeSource = application.getProtectionDomain().getCodeSource().getLocation();
+        if (!codeSource.getPath().endsWith(".jar")) {
+            throw new IllegalStateException(application.getSimpleName() + " is not loaded from a jar: " + codeSource);
+        }
+        return "--spring.config.location=jar:" + codeSource + "!/application.properties,classpath:/" + overrides
+                + ".properties";
+    }
+
+    URI baseUri() {
+        return URI.create("http://localhost:" + rest.getEnvironment().getProperty("local.server.port"));
+    }
+
+    RequestResponseService requestResponseService() {
+        return rest.getBean(RequestResponseService.class);
+    }
+
+    /**
+     * Requests that got no reply within the rest service's timeout so far ({@code calculator.request.timeouts}).
+     */
+    long timeouts() {
+        Counter counter = rest.getBean(MeterRegistry.class).find("calculator.request.timeouts").counter();
+        return counter == null ? 0 : (long) counter.count();
+    }
+
+    @Override
+    public void close() {
+        rest.close();
+        calculator.close();
+        if (broker != null) {
+            broker.destroy();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package pt.edequinox.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line of {@link LoadTest}, every option as {@code --name=value}:
+ * <ul>
+ *     <li>{@code rate}: requests started per second, on a fixed schedule whatever the response times (open loop);
+ *     default 1000.</li>
+ *     <li>{@code duration}, {@code warmup}: length of the measured run, and of the run before it whose results are
+ *     discarded; default 60s and 10s.</li>
+ *     <li>{@code report-interval}: how often a line with the interval's throughput and latency is printed; default 1s.</li>
+ *     <li>{@code operations}: mix of endpoints as {@code name:weight}; default {@code add:1,subtract:1,multiply:1,divide:1}.</li>
+ *     <li>{@code digits}: distribution of the number of digits of each operand as {@code digits:weight}, drawn
+ *     independently for both operands; default {@code 1:60,10:30,100:9,1000:1}.</li>
+ *     <li>{@code cheap-digits}: requests whose operands both have at most this many digits are also reported on
+ *     their own, as "cheap"; default 100.</li>
+ *     <li>{@code profile}: preset {@code operations} and {@code digits}, which the options themselves override.
+ *     {@code mixed}: additions and multiplications of 10-digit operands with 20% of 5000-digit ones, to see whether
+ *     the cheap requests' p99 stays flat beside expensive ones (see "cost lanes" in README.md).</li>
+ *     <li>{@code kafka}: bootstrap servers of a running broker; by default an embedded broker is started.</li>
+ *     <li>{@code timeout}: how long the client waits for a response; default 30s, longer than the rest service's
+ *     request timeout so that its timeouts are seen as responses.</li>
+ *     <li>{@code max-p50}, {@code max-p99}, {@code max-p999}: fail (exit status 1) when the corrected percentile of
+ *     the run is above it.</li>
+ *     <li>{@code seed}: seed of the random operands and operations, for repeatable runs.</li>
+ *     <li>{@code rest.<property>}, {@code calculator.<property>}: passed to that application, e.g.
+ *     {@code --calculator.app.consumer.mode=parallel}.</li>
+ * </ul>
+ */
+record LoadTestOptions(int rate, Duration duration, Duration warmup, Duration reportInterval,
+                       WeightedChoice<String> operations, WeightedChoice<Integer> digits, int cheapDigits, String kafka,
+                       Duration timeout, Duration maxP50, Duration maxP99, Duration maxP999, long seed,
+                       List<String> restArguments, List<String> calculatorArguments) {
+
+    static final Set<String> ENDPOINTS = Set.of("add", "subtract", "multiply", "divide");
+    // Profile name to its operations and digits
+    static final Map<String, List<String>> PROFILES = Map.of(
+            "mixed", List.of("add:1,multiply:1", "10:80,5000:20"));
+
+    static LoadTestOptions parse(String... args) {
+        int rate = 1000;
+        Duration duration = Duration.ofSeconds(60);
+        Duration warmup = Duration.ofSeconds(10);
+        Duration reportInterval = Duration.ofSeconds(1);
+        String operations = null;
+        String digits = null;
+        int cheapDigits = 100;
+        List<String> profile = List.of("add:1,subtract:1,multiply:1,divide:1", "1:60,10:30,100:9,1000:1");
+        String kafka = null;
+        Duration timeout = Duration.ofSeconds(30);
+        Duration maxP50 = null;
+        Duration maxP99 = null;
+        Duration maxP999 = null;
+        long seed = System.nanoTime();
+        List<String> restArguments = new ArrayList<>();
+        List<String> calculatorArguments = new ArrayList<>();
+
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got \"" + arg + "\"");
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            if (name.startsWith("rest.")) {
+                restArguments.add("--" + name.substring("rest.".length()) + "=" + value);
+                continue;
+            }
+            if (name.startsWith("calculator.")) {
+                calculatorArguments.add("--" + name.substring("calculator.".length()) + "=" + value);
+                continue;
+            }
+            switch (name) {
+                case "rate" -> rate = Integer.parseInt(value);
+                case "duration" -> duration = DurationStyle.detectAndParse(value);
+                case "warmup" -> warmup = DurationStyle.detectAndParse(value);
+                case "report-interval" -> reportInterval = DurationStyle.detectAndParse(value);
+                case "operations" -> operations = value;
+                case "digits" -> digits = value;
+                case "cheap-digits" -> cheapDigits = Integer.parseInt(value);
+                case "profile" -> profile = profile(value);
+                case "kafka" -> kafka = value;
+                case "timeout" -> timeout = DurationStyle.detectAndParse(value);
+                case "max-p50" -> maxP50 = DurationStyle.detectAndParse(value);
+                case "max-p99" -> maxP99 = DurationStyle.detectAndParse(value);
+                case "max-p999" -> maxP999 = DurationStyle.detectAndParse(value);
+                case "seed" -> seed = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+        if (rate <= 0) {
+            throw new IllegalArgumentException("--rate must be positive");
+        }
+        return new LoadTestOptions(rate, duration, warmup, reportInterval,
+                WeightedChoice.parse(operations != null ? operations : profile.get(0), LoadTestOptions::endpoint),
+                WeightedChoice.parse(digits != null ? digits : profile.get(1), LoadTestOptions::digitCount),
+                cheapDigits, kafka, timeout, maxP50, maxP99, maxP999, seed, restArguments, calculatorArguments);
+    }
+
+    private static List<String> profile(String name) {
+        List<String> profile = PROFILES.get(name);
+        if (profile == null) {
+            throw new IllegalArgumentException("Unknown profile \"" + name + "\", expected one of " + PROFILES.keySet());
+        }
+        return profile;
+    }
+
+    private static String endpoint(String name) {
+        if (!ENDPOINTS.contains(name)) {
+            throw new IllegalArgumentException("Unknown operation \"" + name + "\", expected one of " + ENDPOINTS);
+        }
+        return name;
+    }
+
+    private static Integer digitCount(String value) {
+        int digits = Integer.parseInt(value);
+        if (digits <= 0) {
+            throw new IllegalArgumentException("Operand digits must be positive, got " + digits);
+        }
+        return digits;
+    }
+}
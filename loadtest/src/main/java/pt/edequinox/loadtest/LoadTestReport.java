@@ -0,0 +1,71 @@
+package pt.edequinox.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Results of the measured part of a load test. Latencies are in nanoseconds; {@code corrected} is measured from
+ * the time each request was due and {@code uncorrected} from the time it was sent (see {@link LoadGenerator});
+ * {@code cheap} is {@code corrected} for the requests within {@code cheap-digits} only.
+ * {@code timeouts} counts the requests {@code RequestResponseService} gave up on during the run (answered with 500),
+ * and {@code pendingMax} is the high-water mark of the requests it had pending a reply, sampled every millisecond.
+ */
+record LoadTestReport(LoadTestOptions options, long sent, long completed, double throughput,
+                      Histogram corrected, Histogram uncorrected, Histogram cheap,
+                      long ok, long badRequest, long tooManyRequests, long unavailable, long serverError, long failed,
+                      long unanswered, long timeouts, int pendingMax) {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    void print(PrintStream out) {
+        out.printf("%nRate %d requests/s for %s, operations %s, operand digits %s, seed %d%n",
+                options.rate(), options.duration(), options.operations(), options.digits(), options.seed());
+        out.printf("Sent %d, completed %d, throughput %.1f requests/s%n", sent, completed, throughput);
+        out.printf("Responses: 200 %d, 400 %d, 429 %d, 503 %d, other %d; client errors %d, unanswered %d%n",
+                ok, badRequest, tooManyRequests, unavailable, serverError, failed, unanswered);
+        out.printf("RequestResponseService timeouts %d, pending requests high-water mark %d%n", timeouts, pendingMax);
+        out.printf("%-12s %12s %12s %12s%n", "Latency", "corrected", "uncorrected",
+                "cheap (" + cheap.getTotalCount() + ")");
+        for (double percentile : PERCENTILES) {
+            out.printf("%-12s %12s %12s %12s%n", "p" + percentileName(percentile),
+                    millis(corrected.getValueAtPercentile(percentile)),
+                    millis(uncorrected.getValueAtPercentile(percentile)),
+                    millis(cheap.getValueAtPercentile(percentile)));
+        }
+        out.printf("%-12s %12s %12s %12s%n", "max", millis(corrected.getMaxValue()), millis(uncorrected.getMaxValue()),
+                millis(cheap.getMaxValue()));
+    }
+
+    /**
+     * @return One message per {@code --max-p*} threshold the corrected latency exceeds; empty if it passed.
+     */
+    List<String> violations() {
+        List<String> violations = new ArrayList<>();
+        check(violations, 50, options.maxP50());
+        check(violations, 99, options.maxP99());
+        check(violations, 99.9, options.maxP999());
+        if (unanswered > 0) {
+            violations.add(unanswered + " requests got no response within " + options.timeout());
+        }
+        return violations;
+    }
+
+    private void check(List<String> violations, double percentile, Duration threshold) {
+        long value = corrected.getValueAtPercentile(percentile);
+        if (threshold != null && value > threshold.toNanos()) {
+            violations.add("p" + percentileName(percentile) + " " + millis(value) + " above " + millis(threshold.toNanos()));
+        }
+    }
+
+    private static String percentileName(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+
+    static String millis(long nanos) {
+        return String.format("%.3f ms", nanos / 1e6);
+    }
+}
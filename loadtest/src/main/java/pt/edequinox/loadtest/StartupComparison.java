@@ -0,0 +1,190 @@
+package pt.edequinox.loadtest;
+
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Startup time and memory of the rest and calculator applications in the three ways they can be run, each started
+ * as its own process against an embedded Kafka broker (or {@code --kafka}):
+ * <ul>
+ *     <li>{@code jvm}: {@code java -jar} on the boot jar;</li>
+ *     <li>{@code aot+cds}: the extracted jar with the bean definitions generated at build time
+ *     ({@code -Dspring.aot.enabled=true}) and a class-data-sharing archive recorded by a training run first, as the
+ *     Dockerfiles do;</li>
+ *     <li>{@code native}: the GraalVM executable, when it has been built ({@code nativeCompile}).</li>
+ * </ul>
+ * Each run waits for the {@code Started ... (process running for N)} line, takes N as the startup time and the
+ * resident set size from {@code /proc/<pid>/status} at that moment (Linux only), then stops the process. The medians
+ * of {@code --runs} runs (default 5) are printed.
+ * <p>
+ * From the command line: {@code ./gradlew :loadtest:startupComparison --args="--runs=10"}; the task passes the jars
+ * and executables of the build ({@code --rest-jar}, {@code --rest-native}, {@code --calculator-jar},
+ * {@code --calculator-native}).
+ */
+public final class StartupComparison {
+
+    private static final String[] APPLICATIONS = {"rest", "calculator"};
+    private static final String[] TOPICS = {"operation-requests", "operation-requests-slow", "operation-results"};
+    private static final Pattern STARTED =
+            Pattern.compile("Started \\w+ in [\\d.]+ seconds \\(process running for ([\\d.]+)\\)");
+    private static final Pattern RSS = Pattern.compile("VmRSS:\\s+(\\d+) kB");
+    private static final long PROCESS_TIMEOUT_SECONDS = 120;
+
+    private StartupComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                System.err.println("Invalid option: " + arg);
+                System.err.println("Usage: StartupComparison [--runs=<n>] [--kafka=<bootstrap servers>] "
+                        + "[--rest-jar=<path>] [--rest-native=<path>] "
+                        + "[--calculator-jar=<path>] [--calculator-native=<path>]");
+                System.exit(2);
+                return;
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+        EmbeddedKafkaBroker broker = null;
+        String bootstrapServers = options.get("kafka");
+        if (bootstrapServers == null) {
+            broker = new EmbeddedKafkaKraftBroker(1, 1, TOPICS);
+            broker.afterPropertiesSet();
+            bootstrapServers = broker.getBrokersAsString();
+        }
+        List<String> applicationArgs =
+                List.of("--spring.kafka.bootstrap-servers=" + bootstrapServers, "--server.port=0");
+        Path workDirectory = Files.createTempDirectory("startup-comparison");
+
+        try {
+            System.out.printf("%-12s %-10s %12s %10s%n", "Application", "Mode", "Startup", "RSS");
+            for (String application : APPLICATIONS) {
+                String jar = options.get(application + "-jar");
+                if (jar == null || !Files.isRegularFile(Path.of(jar))) {
+                    System.out.printf("%-12s jar not found (%s), run ./gradlew :%s:bootJar%n",
+                            application, jar, application);
+                    continue;
+                }
+                print(application, "jvm", measure(runs, command(List.of(java, "-jar", jar), applicationArgs)));
+
+                Path extracted = prepareAotCds(java, Path.of(jar), workDirectory.resolve(application));
+                print(application, "aot+cds", measure(runs, command(List.of(java,
+                        "-XX:SharedArchiveFile=" + extracted.resolve("app.jsa"), "-Dspring.aot.enabled=true",
+                        "-jar", extracted.resolve(Path.of(jar).getFileName()).toString()), applicationArgs)));
+
+                String executable = options.get(application + "-native");
+                if (executable != null && Files.isExecutable(Path.of(executable))) {
+                    print(application, "native", measure(runs, command(List.of(executable), applicationArgs)));
+                } else {
+                    System.out.printf("%-12s %-10s not built, run ./gradlew :%s:nativeCompile on a GraalVM JDK%n",
+                            application, "native", application);
+                }
+            }
+        } finally {
+            if (broker != null) {
+                broker.destroy();
+            }
+        }
+    }
+
+    private static List<String> command(List<String> executable, List<String> applicationArgs) {
+        List<String> command = new ArrayList<>(executable);
+        command.addAll(applicationArgs);
+        return command;
+    }
+
+    /**
+     * Extracts the jar into {@code directory} and records {@code app.jsa} with a training run that refreshes the
+     * context and exits, as the Dockerfiles do.
+     */
+    private static Path prepareAotCds(String java, Path jar, Path directory) throws IOException, InterruptedException {
+        run(List.of(java, "-Djarmode=tools", "-jar", jar.toString(), "extract", "--destination", directory.toString()));
+        run(List.of(java, "-XX:ArchiveClassesAtExit=" + directory.resolve("app.jsa"), "-Dspring.aot.enabled=true",
+                "-Dspring.context.exit=onRefresh", "-jar", directory.resolve(jar.getFileName()).toString()));
+        return directory;
+    }
+
+    private static void run(List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        if (!process.waitFor(PROCESS_TIMEOUT_SECONDS, TimeUnit.SECONDS) || process.exitValue() != 0) {
+            process.destroyForcibly();
+            throw new IllegalStateException("Failed: " + String.join(" ", command));
+        }
+    }
+
+    /**
+     * @return The median startup time in seconds and the median resident set size in kB (-1 when unknown).
+     */
+    private static double[] measure(int runs, List<String> command) throws IOException, InterruptedException {
+        double[] startups = new double[runs];
+        double[] rss = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            try (BufferedReader output = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                Matcher started = null;
+                String line;
+                while ((line = output.readLine()) != null) {
+                    Matcher matcher = STARTED.matcher(line);
+                    if (matcher.find()) {
+                        started = matcher;
+                        break;
+                    }
+                }
+                if (started == null) {
+                    throw new IllegalStateException("Exited without starting: " + String.join(" ", command));
+                }
+                startups[i] = Double.parseDouble(started.group(1));
+                rss[i] = residentSetKb(process.pid());
+            } finally {
+                process.destroy();
+                if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            }
+        }
+        return new double[] {median(startups), median(rss)};
+    }
+
+    private static long residentSetKb(long pid) {
+        try {
+            Matcher matcher = RSS.matcher(Files.readString(Path.of("/proc", Long.toString(pid), "status")));
+            return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static void print(String application, String mode, double[] result) {
+        System.out.printf("%-12s %-10s %10.3f s %10s%n", application, mode, result[0],
+                result[1] < 0 ? "n/a" : String.format("%.0f MB", result[1] / 1024));
+    }
+}
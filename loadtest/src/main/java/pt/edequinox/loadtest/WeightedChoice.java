@@ -0,0 +1,71 @@
+package pt.edequinox.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * A discrete distribution given as {@code value:weight} pairs, e.g. {@code 1:90,30:9,1000:1} for operand sizes or
+ * {@code add:1,divide:1} for the operation mix. Weights are relative and need not add up to anything.
+ */
+final class WeightedChoice<T> {
+
+    private final List<T> values;
+    private final long[] cumulativeWeights;
+
+    private WeightedChoice(List<T> values, long[] cumulativeWeights) {
+        this.values = values;
+        this.cumulativeWeights = cumulativeWeights;
+    }
+
+    static <T> WeightedChoice<T> parse(String spec, Function<String, T> parseValue) {
+        List<T> values = new ArrayList<>();
+        List<Long> weights = new ArrayList<>();
+        for (String pair : spec.split(",")) {
+            String[] parts = pair.trim().split(":");
+            if (parts.length > 2 || parts[0].isEmpty()) {
+                throw new IllegalArgumentException("Expected value:weight, got \"" + pair + "\" in \"" + spec + "\"");
+            }
+            long weight = parts.length == 2 ? Long.parseLong(parts[1].trim()) : 1;
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in \"" + spec + "\"");
+            }
+            if (weight > 0) {
+                values.add(parseValue.apply(parts[0].trim()));
+                weights.add(weight);
+            }
+        }
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("No value with a positive weight in \"" + spec + "\"");
+        }
+        long[] cumulative = new long[weights.size()];
+        long total = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            total += weights.get(i);
+            cumulative[i] = total;
+        }
+        return new WeightedChoice<>(List.copyOf(values), cumulative);
+    }
+
+    T next(Random random) {
+        long point = (long) (random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (point < cumulativeWeights[i]) {
+                return values.get(i);
+            }
+        }
+        return values.get(values.size() - 1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        long previous = 0;
+        for (int i = 0; i < values.size(); i++) {
+            builder.append(i == 0 ? "" : ",").append(values.get(i)).append(':').append(cumulativeWeights[i] - previous);
+            previous = cumulativeWeights[i];
+        }
+        return builder.toString();
+    }
+}
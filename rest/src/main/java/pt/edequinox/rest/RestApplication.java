@@ -3,7 +3,8 @@ package pt.edequinox.rest;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
-@SpringBootApplication
+// CalculatorService of the shared core module, used by the local and hybrid execution modes
+@SpringBootApplication(scanBasePackages = {"pt.edequinox.rest", "pt.edequinox.core"})
 public class RestApplication {
 
     public static void main(String[] args) {
@@ -1,38 +1,85 @@
 package pt.edequinox.rest.components;
 
+import pt.edequinox.api.filters.FiltersContext;
+import pt.edequinox.api.metrics.TimestampHeaders;
 import pt.edequinox.api.models.OperationResult;
 import pt.edequinox.rest.services.RequestResponseService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.kafka.annotation.TopicPartition;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 @Component
 public class ResultConsumer {
 
     public static final Logger logger = LoggerFactory.getLogger(ResultConsumer.class);
     private final RequestResponseService requestResponseService;
+    private final Timer replyLegTimer;
+    private final Timer roundTripTimer;
 
-    public ResultConsumer(RequestResponseService requestResponseService) {
+    public ResultConsumer(RequestResponseService requestResponseService, MeterRegistry meterRegistry) {
         this.requestResponseService = requestResponseService;
+        this.replyLegTimer = latencyTimer(meterRegistry, "reply");
+        this.roundTripTimer = latencyTimer(meterRegistry, "round-trip");
+    }
+
+    private static Timer latencyTimer(MeterRegistry meterRegistry, String leg) {
+        return Timer.builder("calculator.kafka.latency")
+                .description("Latency between services, from the timestamps carried in the Kafka headers")
+                .tag("leg", leg)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
-    @KafkaListener(topics = "${app.kafka.topic.results}", groupId = "rest-group")
-    public void handleOperationResult(
-        OperationResult result, 
-        @Header("kafka_receivedMessageKey") String requestId) {
-        logger.info("Received operation result: {}", result);
-        
+    /**
+     * Listens only on this instance's reply partition (manual assignment, no group rebalancing),
+     * so every result reaches the instance holding its pending future.
+     * The reply leg (calculator publish to here) and the Kafka round trip (request publish to here) are
+     * recorded from the {@link TimestampHeaders} of the record.
+     * Late replies, whose request already timed out, are counted and dropped before any other work.
+     * Not started when no request goes through Kafka ({@code app.execution.mode=local} or {@code app.transport=http}),
+     * so the service then runs without a broker; decided at startup, so an AOT-processed build honours it too.
+     */
+    @KafkaListener(groupId = "rest-group", topicPartitions = @TopicPartition(
+        topic = "${app.kafka.topic.results}", partitions = "${app.kafka.reply.partition}"),
+        autoStartup = "#{${spring.kafka.listener.auto-startup:true}"
+                + " and !'${app.execution.mode}'.trim().equalsIgnoreCase('local')"
+                + " and '${app.transport}'.trim().equalsIgnoreCase('kafka')}")
+    public void handleOperationResult(ConsumerRecord<String, OperationResult> consumerRecord) {
+        String requestId = consumerRecord.key();
+        if (requestResponseService.dropIfLate(requestId)) {
+            return;
+        }
+        OperationResult result = consumerRecord.value();
+        record(replyLegTimer, TimestampHeaders.elapsedSince(consumerRecord.headers(), TimestampHeaders.RESULT_SENT_AT));
+        record(roundTripTimer, TimestampHeaders.elapsedSince(consumerRecord.headers(), TimestampHeaders.REQUEST_SENT_AT));
+
         try {
+            FiltersContext.put(requestId);
+            logger.debug("Received operation result: {}", result);
+
             if (result.getError() != null) {
-                requestResponseService.completeRequestExceptionally(requestId, 
+                requestResponseService.completeRequestExceptionally(requestId,
                     new Exception("Operation error: " + result.getError()));
             } else {
                 requestResponseService.completeRequest(requestId, result);
             }
         } catch (Exception e) {
             logger.error("Error completing request for ID {}: {}", requestId, e.getMessage());
+        } finally {
+            FiltersContext.remove();
+        }
+    }
+
+    private static void record(Timer timer, Duration latency) {
+        if (latency != null) {
+            timer.record(latency);
         }
     }
-}
\ No newline at end of file
+}
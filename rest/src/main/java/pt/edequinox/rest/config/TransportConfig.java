@@ -0,0 +1,50 @@
+package pt.edequinox.rest.config;
+
+import pt.edequinox.rest.services.HttpOperationTransport;
+import pt.edequinox.rest.services.OperationProducer;
+import pt.edequinox.rest.services.OperationTransport;
+import pt.edequinox.rest.services.RequestResponseService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+@Configuration
+public class TransportConfig {
+
+    public enum Transport {
+        KAFKA,
+        HTTP
+    }
+
+    /**
+     * The transport {@link RequestResponseService} sends requests to the calculator with, by {@code app.transport}.
+     * Chosen at startup rather than with a condition, so an AOT-processed build still honours the property.
+     */
+    @Bean
+    @Primary
+    public OperationTransport operationTransport(@Value("${app.transport}") String transport,
+                                                 ObjectProvider<OperationProducer> operationProducer,
+                                                 ObjectProvider<RequestResponseService> requestResponseService,
+                                                 @Value("${app.transport.http.targets}") List<URI> targets,
+                                                 @Value("${app.transport.http.connections}") int connections,
+                                                 @Value("${app.transport.http.max-streams}") int maxStreams,
+                                                 @Value("${app.transport.http.retry-after}") Duration retryAfter,
+                                                 @Value("${app.transport.http.refresh-interval}") Duration refreshInterval,
+                                                 @Value("${app.requests.timeout}") Duration timeout,
+                                                 MeterRegistry meterRegistry) {
+        return switch (Transport.valueOf(transport.trim().toUpperCase(Locale.ROOT))) {
+            case KAFKA -> operationProducer.getObject();
+            case HTTP -> new HttpOperationTransport(targets, connections, maxStreams, timeout, retryAfter,
+                    refreshInterval, requestResponseService::getObject, meterRegistry);
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package pt.edequinox.rest.config;
+
+import pt.edequinox.rest.controllers.OperationStreamHandler;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final OperationStreamHandler operationStreamHandler;
+
+    public WebSocketConfig(OperationStreamHandler operationStreamHandler) {
+        this.operationStreamHandler = operationStreamHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // Same origin as the CORS mapping; clients without an Origin header (non-browser) are always accepted
+        registry.addHandler(operationStreamHandler, "/stream")
+                .setAllowedOrigins("http://localhost:3000");
+    }
+
+    // Largest message a client can send, e.g. a BATCH of app.batch.max-items operations (the container default is 8 KB)
+    @Bean
+    public ServletServerContainerFactoryBean webSocketContainer(
+            @Value("${app.stream.max-message-size}") DataSize maxMessageSize) {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize((int) maxMessageSize.toBytes());
+        return container;
+    }
+}
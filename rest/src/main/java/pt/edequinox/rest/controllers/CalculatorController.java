@@ -4,82 +4,201 @@ import pt.edequinox.api.filters.FiltersContext;
 import pt.edequinox.api.models.OperationRequest;
 import pt.edequinox.api.models.OperationResult;
 import pt.edequinox.api.models.OperationType;
+import pt.edequinox.rest.services.RequestRejectedException;
 import pt.edequinox.rest.services.RequestResponseService;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 
 @RestController
 public class CalculatorController {
 
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
     private final RequestResponseService requestResponseService;
+    private final ObjectReader operationRequestReader;
+    private final int maxBatchItems;
+    private final int maxExpressionLength;
 
-    public CalculatorController(RequestResponseService requestResponseService) {
+    public CalculatorController(RequestResponseService requestResponseService, ObjectMapper objectMapper,
+            @Value("${app.batch.max-items}") int maxBatchItems,
+            @Value("${app.expression.max-length}") int maxExpressionLength) {
         this.requestResponseService = requestResponseService;
+        this.operationRequestReader = objectMapper.readerFor(OperationRequest.class);
+        this.maxBatchItems = maxBatchItems;
+        this.maxExpressionLength = maxExpressionLength;
     }
 
-    private ResponseEntity<OperationResult> performOperation(OperationType type, String operand1Str, String operand2Str) {
+    private CompletableFuture<ResponseEntity<OperationResult>> performOperation(OperationType type, String operand1Str, String operand2Str) {
 
         String requestId = FiltersContext.get();
         if (requestId == null) {
-            return new ResponseEntity<>(
+            return CompletableFuture.completedFuture(new ResponseEntity<>(
                 new OperationResult(null, "Missing request id (request filter not applied)"),
-                HttpStatus.INTERNAL_SERVER_ERROR);
+                HttpStatus.INTERNAL_SERVER_ERROR));
         }
 
         // `RequestIdFilter` already sets the `X-Request-ID` response header.
         // Do not set it again here to avoid duplicate headers.
 
+        OperationRequest request;
         try {
             BigDecimal operand1 = new BigDecimal(operand1Str);
             BigDecimal operand2 = new BigDecimal(operand2Str);
 
-            OperationRequest request = new OperationRequest(type, operand1, operand2);
+            request = new OperationRequest(type, operand1, operand2);
+        } catch (NumberFormatException e) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(
+                new OperationResult(requestId, "Invalid number format"), 
+                HttpStatus.BAD_REQUEST));
+        }
 
-            OperationResult result = requestResponseService.sendAndReceive(request, requestId);
+        return sendAndRespond(request, requestId);
+    }
 
-            if(result.getError() != null) {
-                return new ResponseEntity<>(result, HttpStatus.BAD_REQUEST);
-            }
+    private CompletableFuture<ResponseEntity<OperationResult>> performBatch(List<OperationRequest> items) {
 
-            return new ResponseEntity<>(result, HttpStatus.OK);
-        } catch (NumberFormatException e) {
-            return new ResponseEntity<>(
-                new OperationResult(requestId, "Invalid number format"), 
-                HttpStatus.BAD_REQUEST);
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            return new ResponseEntity<>(
-                new OperationResult(requestId, "Error processing request: " + e.getMessage()), 
-                HttpStatus.INTERNAL_SERVER_ERROR);
+        String requestId = FiltersContext.get();
+        if (requestId == null) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(
+                new OperationResult(null, "Missing request id (request filter not applied)"),
+                HttpStatus.INTERNAL_SERVER_ERROR));
+        }
+
+        if (items == null || items.isEmpty() || items.size() > maxBatchItems) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(
+                new OperationResult(requestId, "Batch must contain between 1 and " + maxBatchItems + " operations"),
+                HttpStatus.BAD_REQUEST));
         }
+
+        // The whole batch travels as one envelope and is correlated by the single request id.
+        return sendAndRespond(new OperationRequest(items), requestId);
+    }
+
+    private CompletableFuture<ResponseEntity<OperationResult>> performExpression(OperationRequest body) {
+
+        String requestId = FiltersContext.get();
+        if (requestId == null) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(
+                new OperationResult(null, "Missing request id (request filter not applied)"),
+                HttpStatus.INTERNAL_SERVER_ERROR));
+        }
+
+        String expression = body.getExpression();
+        if (expression == null || expression.isBlank() || expression.length() > maxExpressionLength) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(
+                new OperationResult(requestId, "Expression must contain between 1 and " + maxExpressionLength + " characters"),
+                HttpStatus.BAD_REQUEST));
+        }
+
+        // Parsing, precision checks and evaluation happen on the calculator (or in-process, see LocalOperationExecutor);
+        // their errors come back as error replies.
+        return sendAndRespond(new OperationRequest(expression, body.getVariables(), body.getPrecision(),
+                body.getRoundingMode()), requestId);
+    }
+
+    private CompletableFuture<ResponseEntity<OperationResult>> sendAndRespond(OperationRequest request, String requestId) {
+        // The servlet thread is released here; the response is written once the reply (or the timeout) completes the future.
+        return requestResponseService.sendAndReceiveAsync(request, requestId)
+                .thenApply(result -> {
+                    if(result.getError() != null) {
+                        return new ResponseEntity<>(result, HttpStatus.BAD_REQUEST);
+                    }
+                    return new ResponseEntity<>(result, HttpStatus.OK);
+                })
+                .exceptionally(e -> errorResponse(requestId, e));
+    }
+
+    private static ResponseEntity<OperationResult> errorResponse(String requestId, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof RequestRejectedException rejected) {
+            // Shed before publishing: 429 when this instance has too many pending requests, 503 when the calculator is saturated
+            HttpStatus status = rejected.getReason() == RequestRejectedException.Reason.CAPACITY
+                    ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE;
+            return ResponseEntity.status(status)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(new OperationResult(requestId, rejected.getMessage()));
+        }
+        return new ResponseEntity<>(
+            new OperationResult(requestId, "Error processing request: " + e.getMessage()),
+            HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
     @GetMapping("/add")
-    public ResponseEntity<OperationResult> add(@RequestParam String operand1, @RequestParam String operand2) {
+    public CompletableFuture<ResponseEntity<OperationResult>> add(@RequestParam String operand1, @RequestParam String operand2) {
         return performOperation(OperationType.ADDITION, operand1, operand2);
     }
 
     @GetMapping("/subtract")
-    public ResponseEntity<OperationResult> subtract(@RequestParam String operand1, @RequestParam String operand2) {
+    public CompletableFuture<ResponseEntity<OperationResult>> subtract(@RequestParam String operand1, @RequestParam String operand2) {
         return performOperation(OperationType.SUBTRACTION, operand1, operand2);
     }
 
     @GetMapping("/multiply")
-    public ResponseEntity<OperationResult> multiply(@RequestParam String operand1, @RequestParam String operand2) {
+    public CompletableFuture<ResponseEntity<OperationResult>> multiply(@RequestParam String operand1, @RequestParam String operand2) {
         return performOperation(OperationType.MULTIPLICATION, operand1, operand2);
     }
 
     @GetMapping("/divide")
-    public ResponseEntity<OperationResult> divide(@RequestParam String operand1, @RequestParam String operand2) {
+    public CompletableFuture<ResponseEntity<OperationResult>> divide(@RequestParam String operand1, @RequestParam String operand2) {
         return performOperation(OperationType.DIVISION, operand1, operand2);
     }
+
+    /**
+     * Evaluates a JSON array of {@code {operationType, operand1, operand2}} items in a single round trip.
+     * The reply carries one entry per item, in order, each with either a result or an error.
+     */
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<OperationResult>> batch(@RequestBody List<OperationRequest> items) {
+        return performBatch(items);
+    }
+
+    /**
+     * Evaluates {@code {expression, variables, precision, roundingMode}} in a single round trip, e.g.
+     * {@code {"expression": "(a + b) * c / d", "variables": {"a": 1, "b": 2, "c": 3, "d": 7}, "precision": 10}}.
+     * Precision (significant digits, 0 = exact) and rounding mode are optional and default to DECIMAL128.
+     */
+    @PostMapping(path = "/evaluate", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<OperationResult>> evaluate(@RequestBody OperationRequest body) {
+        return performExpression(body);
+    }
+
+    /**
+     * Same as {@link #batch(List)} for newline-delimited JSON bodies, one operation per line.
+     */
+    @PostMapping(path = "/batch", consumes = NDJSON_VALUE)
+    public CompletableFuture<ResponseEntity<OperationResult>> batchNdjson(InputStream body) throws IOException {
+        List<OperationRequest> items = new ArrayList<>();
+        try (MappingIterator<OperationRequest> lines = operationRequestReader.readValues(body)) {
+            while (lines.hasNextValue() && items.size() <= maxBatchItems) {
+                items.add(lines.nextValue());
+            }
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(
+                new OperationResult(FiltersContext.get(), "Invalid batch line: " + e.getOriginalMessage()),
+                HttpStatus.BAD_REQUEST));
+        }
+        return performBatch(items);
+    }
 }
@@ -0,0 +1,212 @@
+package pt.edequinox.rest.controllers;
+
+import pt.edequinox.api.filters.FiltersContext;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.rest.services.RequestIdGenerator;
+import pt.edequinox.rest.services.RequestResponseService;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WebSocket endpoint ({@code /stream}) for clients sending many operations over one connection.
+ * <ul>
+ *     <li>Each text message is an {@link OperationRequest} with a client-assigned {@code id}, e.g.
+ *     {@code {"id": "42", "operationType": "ADDITION", "operand1": 1, "operand2": 2}}; BATCH and EXPRESSION
+ *     requests are accepted too.</li>
+ *     <li>Each request gets exactly one {@link OperationResult} message whose {@code requestId} is the client's id.
+ *     Results are sent as soon as they complete, so they can arrive out of order.</li>
+ *     <li>Flow control: on connect the server sends {@code {"credits": N}}. Every request takes one credit and its
+ *     result gives it back, so at most N results per connection (plus those already in the send buffer) are ever
+ *     held for a client that reads slowly. A client sending a request without a credit left is disconnected
+ *     (1008, policy violation).</li>
+ * </ul>
+ * Each operation gets its own request id on Kafka from {@link RequestIdGenerator}, which is cheap enough per
+ * operation and keeps the compact binary key. Results are written on a separate pool, never on the reply consumer's thread; a client that
+ * stops reading for longer than the send time limit is disconnected.
+ */
+@Component
+public class OperationStreamHandler extends TextWebSocketHandler {
+
+    public static final Logger logger = LoggerFactory.getLogger(OperationStreamHandler.class);
+
+    private final RequestResponseService requestResponseService;
+    private final RequestIdGenerator requestIdGenerator;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader requestReader;
+    private final ObjectWriter resultWriter;
+    private final int credits;
+    private final int sendTimeLimitMillis;
+    private final int bufferSizeLimit;
+    private final int maxBatchItems;
+    private final int maxExpressionLength;
+
+    private final Map<String, Stream> streams = new ConcurrentHashMap<>();
+    private final ExecutorService sender = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "stream-sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public OperationStreamHandler(RequestResponseService requestResponseService,
+            RequestIdGenerator requestIdGenerator, ObjectMapper objectMapper,
+            @Value("${app.stream.credits}") int credits,
+            @Value("${app.stream.send-time-limit}") Duration sendTimeLimit,
+            @Value("${app.stream.buffer-size-limit}") DataSize bufferSizeLimit,
+            @Value("${app.batch.max-items}") int maxBatchItems,
+            @Value("${app.expression.max-length}") int maxExpressionLength,
+            MeterRegistry meterRegistry) {
+        this.requestResponseService = requestResponseService;
+        this.requestIdGenerator = requestIdGenerator;
+        this.objectMapper = objectMapper;
+        // The client's "id" travels in the same object as the request fields
+        this.requestReader = objectMapper.readerFor(OperationRequest.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.resultWriter = objectMapper.writerFor(OperationResult.class);
+        this.credits = credits;
+        this.sendTimeLimitMillis = (int) sendTimeLimit.toMillis();
+        this.bufferSizeLimit = (int) bufferSizeLimit.toBytes();
+        this.maxBatchItems = maxBatchItems;
+        this.maxExpressionLength = maxExpressionLength;
+        Gauge.builder("calculator.stream.sessions", streams, Map::size)
+                .description("Open /stream WebSocket connections")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws IOException {
+        Stream stream = new Stream(
+                new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMillis, bufferSizeLimit));
+        streams.put(session.getId(), stream);
+        stream.session.sendMessage(new TextMessage(
+                objectMapper.writeValueAsString(Map.of("credits", credits))));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        Stream stream = streams.get(session.getId());
+        if (stream.outstanding.incrementAndGet() > credits) {
+            logger.warn("Closing stream {}: request sent without a credit ({} outstanding)", session.getId(), credits);
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("No credits left"));
+            return;
+        }
+
+        String id;
+        OperationRequest request;
+        try {
+            JsonNode node = objectMapper.readTree(message.getPayload());
+            id = node.path("id").isValueNode() ? node.get("id").asText() : null;
+            request = requestReader.readValue(node);
+        } catch (IOException e) {
+            sender.execute(() -> reply(stream, new OperationResult(null, "Invalid message: " + e.getMessage())));
+            return;
+        }
+
+        String error = validate(id, request);
+        if (error != null) {
+            sender.execute(() -> reply(stream, new OperationResult(id, error)));
+            return;
+        }
+
+        String requestId = requestIdGenerator.next();
+        try {
+            FiltersContext.put(requestId);
+            requestResponseService.sendAndReceiveAsync(request, requestId)
+                    .whenCompleteAsync((result, e) -> reply(stream, e == null
+                            ? new OperationResult(id, result.getOperationType(), result.getResult(),
+                                    result.getError(), result.getItems())
+                            : new OperationResult(id, errorMessage(e))), sender);
+        } catch (RuntimeException e) {
+            // Answered like a failed reply, which gives the credit back and keeps the stream open
+            logger.error("Could not send request ID {} of stream {}: {}",
+                    requestId, session.getId(), e.getMessage());
+            sender.execute(() -> reply(stream, new OperationResult(id, errorMessage(e))));
+        } finally {
+            FiltersContext.remove();
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        // Results still on their way are discarded when they complete
+        streams.remove(session.getId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    private String validate(String id, OperationRequest request) {
+        if (id == null) {
+            return "Missing id";
+        }
+        if (request.getOperationType() == null) {
+            return "Missing operationType";
+        }
+        return switch (request.getOperationType()) {
+            case BATCH -> request.getItems() == null || request.getItems().isEmpty()
+                    || request.getItems().size() > maxBatchItems
+                    ? "Batch must contain between 1 and " + maxBatchItems + " operations" : null;
+            case EXPRESSION -> request.getExpression() == null || request.getExpression().isBlank()
+                    || request.getExpression().length() > maxExpressionLength
+                    ? "Expression must contain between 1 and " + maxExpressionLength + " characters" : null;
+            default -> request.getOperand1() == null || request.getOperand2() == null
+                    ? "Missing operand" : null;
+        };
+    }
+
+    private static String errorMessage(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause.getMessage();
+    }
+
+    private void reply(Stream stream, OperationResult result) {
+        // The credit is given back before the result can reach the client, which may reuse it at once
+        stream.outstanding.decrementAndGet();
+        try {
+            if (stream.session.isOpen()) {
+                stream.session.sendMessage(new TextMessage(resultWriter.writeValueAsString(result)));
+            }
+        } catch (Exception e) {
+            // Send time or buffer limit exceeded (the decorator closes the session) or connection gone
+            logger.debug("Dropping result for stream {}: {}", stream.session.getId(), e.getMessage());
+        }
+    }
+
+    private static final class Stream {
+        final WebSocketSession session;
+        // Requests received whose result has not been written yet
+        final AtomicInteger outstanding = new AtomicInteger();
+
+        Stream(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package pt.edequinox.rest.filters;
 
 import pt.edequinox.api.filters.FiltersContext;
+import pt.edequinox.rest.services.RequestIdGenerator;
 
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -10,11 +11,16 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.UUID;
 
 @Component
 public class RequestIdFilter extends OncePerRequestFilter {
 
+    private final RequestIdGenerator requestIdGenerator;
+
+    public RequestIdFilter(RequestIdGenerator requestIdGenerator) {
+        this.requestIdGenerator = requestIdGenerator;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
@@ -22,7 +28,7 @@ public class RequestIdFilter extends OncePerRequestFilter {
         try {
             String requestId = request.getHeader(FiltersContext.REQUEST_ID_HEADER);
             if (requestId == null || requestId.isEmpty()) {
-                requestId = UUID.randomUUID().toString();
+                requestId = requestIdGenerator.next();
             }
 
             FiltersContext.put(requestId);
@@ -0,0 +1,194 @@
+package pt.edequinox.rest.services;
+
+/**
+ * A concurrent map with primitive {@code long} keys: no boxing, and no {@code hashCode}/{@code equals} of the key.
+ * Keys are spread over independently locked stripes, each an open-addressing table with linear probing and
+ * backward-shift deletion, so threads only contend when they hit the same stripe at the same time.
+ * Null values are not allowed; values are compared by identity in {@link #remove(long, Object)}.
+ * @param <V> The value type.
+ */
+public final class ConcurrentLongMap<V> {
+
+    private final Stripe<V>[] stripes;
+    private final int stripeShift;
+
+    /**
+     * @param stripeCount Number of independently locked stripes, rounded up to a power of two (at least 2).
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongMap(int stripeCount) {
+        int count = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        this.stripeShift = 64 - Integer.numberOfTrailingZeros(count);
+    }
+
+    // Stripe from the high bits of the mixed key, slot from the low bits
+    private Stripe<V> stripe(long hash) {
+        return stripes[(int) (hash >>> stripeShift)];
+    }
+
+    public V get(long key) {
+        long hash = mix(key);
+        return stripe(hash).get(key, hash);
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return The value previously mapped to the key, or {@code null}.
+     */
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long hash = mix(key);
+        return stripe(hash).put(key, hash, value, false);
+    }
+
+    /**
+     * @return The value already mapped to the key, left in place, or {@code null} if this value was added.
+     */
+    public V putIfAbsent(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long hash = mix(key);
+        return stripe(hash).put(key, hash, value, true);
+    }
+
+    /**
+     * @return The value removed, or {@code null}.
+     */
+    public V remove(long key) {
+        long hash = mix(key);
+        return stripe(hash).remove(key, hash, null);
+    }
+
+    /**
+     * Removes the key only while it is mapped to this very value.
+     */
+    public boolean remove(long key, V value) {
+        long hash = mix(key);
+        return stripe(hash).remove(key, hash, value) != null;
+    }
+
+    /**
+     * Sum of the stripe sizes; like {@code ConcurrentHashMap.size()} it is only exact without concurrent updates.
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    // murmur3 finalizer: keys with few differing bits still spread over stripes and slots
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        return key ^ key >>> 33;
+    }
+
+    private static final class Stripe<V> {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Object[] values = new Object[INITIAL_CAPACITY];
+        // Written under the lock, read without it by size()
+        private volatile int size;
+
+        synchronized V get(long key, long hash) {
+            int mask = keys.length - 1;
+            for (int i = (int) hash & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return value(i);
+                }
+            }
+            return null;
+        }
+
+        synchronized V put(long key, long hash, V value, boolean onlyIfAbsent) {
+            int mask = keys.length - 1;
+            int i = (int) hash & mask;
+            for (; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    V previous = value(i);
+                    if (!onlyIfAbsent) {
+                        values[i] = value;
+                    }
+                    return previous;
+                }
+            }
+            keys[i] = key;
+            values[i] = value;
+            // At most half full, so probe sequences stay short
+            if (++size > keys.length >> 1) {
+                resize();
+            }
+            return null;
+        }
+
+        synchronized V remove(long key, long hash, V expected) {
+            int mask = keys.length - 1;
+            for (int i = (int) hash & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    V previous = value(i);
+                    if (expected != null && previous != expected) {
+                        return null;
+                    }
+                    delete(i, mask);
+                    size--;
+                    return previous;
+                }
+            }
+            return null;
+        }
+
+        // Backward-shift deletion: moves later entries of the probe sequence into the hole, no tombstones
+        private void delete(int hole, int mask) {
+            int i = hole;
+            for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = (int) mix(keys[j]) & mask;
+                // Entry j may move to the hole if its home slot is not cyclically within (hole, j]
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    i = j;
+                }
+            }
+            values[i] = null;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[oldKeys.length << 1];
+            values = new Object[oldValues.length << 1];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] != null) {
+                    int i = (int) mix(oldKeys[j]) & mask;
+                    while (values[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private V value(int i) {
+            return (V) values[i];
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package pt.edequinox.rest.services;
+
+import pt.edequinox.api.filters.FiltersContext;
+import pt.edequinox.api.metrics.TimestampHeaders;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.serialization.OperationWireFormat;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The {@code http} {@link OperationTransport}: each request is one {@code POST /rpc/operations} to the calculator in
+ * the binary wire format, and the response is the reply. Every address the targets resolve to is an endpoint with
+ * {@code connections} HTTP/2 connections of up to {@code max-streams} concurrent calls; endpoints are picked by the
+ * power of two choices and skipped for {@code retry-after} after an I/O error.
+ */
+public class HttpOperationTransport implements OperationTransport, AutoCloseable {
+
+    public static final Logger logger = LoggerFactory.getLogger(HttpOperationTransport.class);
+
+    static final String OPERATIONS_PATH = "/rpc/operations";
+    static final String PING_PATH = "/rpc/ping";
+    private static final String CONTENT_TYPE = "application/octet-stream";
+    private static final CompletableFuture<Void> SENT = CompletableFuture.completedFuture(null);
+
+    private final List<URI> targets;
+    private final int connections;
+    private final int maxStreams;
+    private final Duration timeout;
+    private final long retryAfterNanos;
+    private final Supplier<RequestResponseService> replies;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService refresher;
+    private volatile List<Endpoint> endpoints = List.of();
+
+    private final Timer successTimer;
+    private final Timer errorTimer;
+
+    /**
+     * @param targets         Base URIs of the calculator ({@code http://host:port}).
+     * @param connections     HTTP/2 connections per endpoint.
+     * @param maxStreams      Concurrent calls per connection; at most the server's {@code SETTINGS_MAX_CONCURRENT_STREAMS}.
+     * @param timeout         Time a call may take, normally the reply timeout of the {@link PendingRequestRegistry}.
+     * @param retryAfter      Time an endpoint is skipped after an I/O error.
+     * @param refreshInterval Time between two resolutions of the targets; zero resolves them only once.
+     * @param replies         The service the replies complete; looked up lazily, as it is built with this transport.
+     */
+    public HttpOperationTransport(List<URI> targets, int connections, int maxStreams, Duration timeout,
+                                  Duration retryAfter, Duration refreshInterval,
+                                  Supplier<RequestResponseService> replies, MeterRegistry meterRegistry) {
+        if (targets.isEmpty() || connections <= 0 || maxStreams <= 0) {
+            throw new IllegalArgumentException("targets, connections and max-streams must not be empty or zero");
+        }
+        this.targets = List.copyOf(targets);
+        this.connections = connections;
+        this.maxStreams = maxStreams;
+        this.timeout = timeout;
+        this.retryAfterNanos = retryAfter.toNanos();
+        this.replies = replies;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "calculator-rpc-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "calculator-rpc-resolver");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.successTimer = callTimer(meterRegistry, "success");
+        this.errorTimer = callTimer(meterRegistry, "error");
+        Gauge.builder("calculator.rpc.endpoints", this, transport -> transport.endpoints.size())
+                .description("Calculator endpoints resolved from app.transport.http.targets")
+                .register(meterRegistry);
+
+        refresh();
+        if (!refreshInterval.isZero()) {
+            refresher.scheduleWithFixedDelay(this::refresh, refreshInterval.toNanos(), refreshInterval.toNanos(),
+                    TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer callTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("calculator.rpc.call")
+                .description("Time of a call to the calculator over the http transport, queueing included")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return A completed future: the call has no acknowledgement of its own, its reply is the acknowledgement.
+     */
+    @Override
+    public CompletableFuture<Void> sendOperationRequest(OperationRequest request, String requestId,
+                                                        long receivedAtNanos) {
+        Endpoint endpoint = choose(endpoints);
+        if (endpoint == null) {
+            fail(requestId, new IOException("No calculator endpoint resolved from " + targets));
+            return SENT;
+        }
+        logger.debug("Sending operation request: {} to {} with request ID {}", request, endpoint.base, requestId);
+        endpoint.load.incrementAndGet();
+        endpoint.waiting.add(new Call(requestId, OperationWireFormat.encode(request), System.nanoTime(),
+                TimestampHeaders.nowMicros() + timeout.toNanos() / 1_000));
+        drain(endpoint);
+        return SENT;
+    }
+
+    /**
+     * Power of two choices among the endpoints that are up, or among all of them when none is.
+     */
+    static Endpoint choose(List<Endpoint> candidates) {
+        int size = candidates.size();
+        if (size == 0) {
+            return null;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Endpoint first = candidates.get(random.nextInt(size));
+        if (size == 1) {
+            return first;
+        }
+        Endpoint second = candidates.get(random.nextInt(size));
+        long now = System.nanoTime();
+        boolean firstUp = first.isUp(now);
+        boolean secondUp = second.isUp(now);
+        if (firstUp != secondUp) {
+            return firstUp ? first : second;
+        }
+        if (!firstUp) {
+            // Both down: any endpoint that is up beats them, the least recently failed otherwise
+            Endpoint best = first;
+            for (Endpoint candidate : candidates) {
+                if (candidate.isUp(now)) {
+                    return candidate;
+                }
+                if (candidate.downUntil - best.downUntil < 0) {
+                    best = candidate;
+                }
+            }
+            return best;
+        }
+        return first.load.get() <= second.load.get() ? first : second;
+    }
+
+    // Sends queued calls while a connection of the endpoint has a free stream
+    private void drain(Endpoint endpoint) {
+        Connection connection;
+        while ((connection = endpoint.acquire(maxStreams)) != null) {
+            Call call = endpoint.waiting.poll();
+            if (call == null) {
+                connection.streams.decrementAndGet();
+                // A call queued after the poll found every stream taken by this reservation: send it ourselves
+                if (endpoint.waiting.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            send(endpoint, connection, call);
+        }
+    }
+
+    private void send(Endpoint endpoint, Connection connection, Call call) {
+        HttpRequest httpRequest = HttpRequest.newBuilder(endpoint.operations)
+                .timeout(timeout)
+                .header(FiltersContext.REQUEST_ID_HEADER, call.requestId)
+                .header(TimestampHeaders.REQUEST_DEADLINE, Long.toString(call.deadline))
+                .header("Content-Type", CONTENT_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(call.body))
+                .build();
+        connection.upgraded()
+                .thenCompose(ignored -> connection.client.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray()))
+                .whenComplete((response, throwable) -> {
+                    connection.streams.decrementAndGet();
+                    endpoint.load.decrementAndGet();
+                    try {
+                        complete(endpoint, connection, call, response, throwable);
+                    } finally {
+                        drain(endpoint);
+                    }
+                });
+    }
+
+    private void complete(Endpoint endpoint, Connection connection, Call call, HttpResponse<byte[]> response,
+                          Throwable throwable) {
+        long elapsed = System.nanoTime() - call.start;
+        Throwable failure = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+        if (failure == null && response.statusCode() != 200) {
+            failure = new IOException("Calculator at " + endpoint.base + " answered " + response.statusCode());
+        }
+        if (failure != null) {
+            errorTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            if (failure instanceof HttpTimeoutException) {
+                logger.debug("Call for request ID {} to {} timed out", call.requestId, endpoint.base);
+                return;
+            }
+            if (failure instanceof IOException && response == null) {
+                endpoint.markDown(System.nanoTime() + retryAfterNanos);
+                connection.reset();
+                // e.g. a ConnectException without message
+                failure = new IOException("Call to calculator at " + endpoint.base + " failed: " + failure, failure);
+            }
+            logger.error("Call for request ID {} failed: {}", call.requestId, failure.getMessage());
+            fail(call.requestId, failure);
+            return;
+        }
+
+        OperationResult result;
+        try {
+            result = OperationWireFormat.decodeResult(response.body());
+        } catch (RuntimeException e) {
+            errorTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            logger.error("Unreadable reply for request ID {} from {}: {}", call.requestId, endpoint.base, e.getMessage());
+            fail(call.requestId, e);
+            return;
+        }
+        successTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        try {
+            if (result.getError() != null) {
+                replies.get().completeRequestExceptionally(call.requestId,
+                        new Exception("Operation error: " + result.getError()));
+            } else {
+                replies.get().completeRequest(call.requestId, result);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error completing request for ID {}: {}", call.requestId, e.getMessage());
+        }
+    }
+
+    private void fail(String requestId, Throwable failure) {
+        try {
+            replies.get().completeRequestExceptionally(requestId, failure);
+        } catch (RuntimeException e) {
+            logger.error("Error completing request for ID {}: {}", requestId, e.getMessage());
+        }
+    }
+
+    /**
+     * Resolves the targets again. Endpoints still resolved keep their connections, calls in flight on the others
+     * finish on theirs; a target that does not resolve keeps its previous endpoints.
+     */
+    void refresh() {
+        Map<URI, Endpoint> previous = new HashMap<>();
+        for (Endpoint endpoint : endpoints) {
+            previous.put(endpoint.base, endpoint);
+        }
+        List<Endpoint> next = new ArrayList<>();
+        for (URI target : targets) {
+            int port = target.getPort() >= 0 ? target.getPort() : 80;
+            try {
+                for (InetAddress address : InetAddress.getAllByName(target.getHost())) {
+                    URI base = new URI(target.getScheme(), null, address.getHostAddress(), port, null, null, null);
+                    Endpoint endpoint = previous.get(base);
+                    next.add(endpoint != null ? endpoint : new Endpoint(target, base, connections, timeout, executor));
+                }
+            } catch (UnknownHostException e) {
+                logger.warn("Could not resolve calculator target {}: {}", target, e.getMessage());
+                for (Endpoint endpoint : previous.values()) {
+                    if (endpoint.target.equals(target)) {
+                        next.add(endpoint);
+                    }
+                }
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException("Invalid calculator target: " + target, e);
+            }
+        }
+        if (!next.equals(endpoints)) {
+            logger.info("Calculator endpoints: {}", next.stream().map(endpoint -> endpoint.base).toList());
+        }
+        endpoints = List.copyOf(next);
+    }
+
+    List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    // deadline: epoch microseconds after which the call has timed out, for the calculator to skip it
+    private record Call(String requestId, byte[] body, long start, long deadline) {
+    }
+
+    static final class Endpoint {
+
+        final URI target;
+        final URI base;
+        final URI operations;
+        final URI ping;
+        final Connection[] connections;
+        // Calls queued for a stream
+        final Queue<Call> waiting = new ConcurrentLinkedQueue<>();
+        // Calls in flight or queued: what the power of two choices compares
+        final AtomicInteger load = new AtomicInteger();
+        volatile long downUntil = System.nanoTime();
+
+        Endpoint(URI target, URI base, int connections, Duration connectTimeout, ExecutorService executor) {
+            this.target = target;
+            this.base = base;
+            this.operations = base.resolve(OPERATIONS_PATH);
+            this.ping = base.resolve(PING_PATH);
+            this.connections = new Connection[connections];
+            for (int i = 0; i < connections; i++) {
+                this.connections[i] = new Connection(HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_2)
+                        .connectTimeout(connectTimeout)
+                        .executor(executor)
+                        .build(), ping, connectTimeout);
+            }
+        }
+
+        boolean isUp(long now) {
+            return now - downUntil >= 0;
+        }
+
+        void markDown(long until) {
+            downUntil = until;
+        }
+
+        /**
+         * Reserves a stream on the connection with the fewest in use.
+         * @return The connection, or {@code null} when all of them carry {@code maxStreams} calls.
+         */
+        Connection acquire(int maxStreams) {
+            while (true) {
+                Connection best = connections[0];
+                int bestStreams = best.streams.get();
+                for (int i = 1; i < connections.length; i++) {
+                    int streams = connections[i].streams.get();
+                    if (streams < bestStreams) {
+                        best = connections[i];
+                        bestStreams = streams;
+                    }
+                }
+                if (bestStreams >= maxStreams) {
+                    return null;
+                }
+                if (best.streams.compareAndSet(bestStreams, bestStreams + 1)) {
+                    return best;
+                }
+            }
+        }
+    }
+
+    static final class Connection {
+
+        final HttpClient client;
+        final AtomicInteger streams = new AtomicInteger();
+        private final HttpRequest pingRequest;
+        private volatile CompletableFuture<Void> upgraded;
+
+        Connection(HttpClient client, URI ping, Duration timeout) {
+            this.client = client;
+            this.pingRequest = HttpRequest.newBuilder(ping).timeout(timeout).GET().build();
+        }
+
+        /**
+         * Completes once the {@code h2c} upgrade was answered; until then concurrent calls would each open an
+         * HTTP/1.1 connection of their own.
+         */
+        CompletableFuture<Void> upgraded() {
+            CompletableFuture<Void> current = upgraded;
+            if (current == null) {
+                synchronized (this) {
+                    current = upgraded;
+                    if (current == null) {
+                        current = client.sendAsync(pingRequest, HttpResponse.BodyHandlers.discarding())
+                                .handle((response, throwable) -> null);
+                        upgraded = current;
+                    }
+                }
+            }
+            return current;
+        }
+
+        // After an I/O error the client drops the connection; upgrade the next one again
+        void reset() {
+            upgraded = null;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package pt.edequinox.rest.services;
+
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.core.services.CalculatorService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Evaluates requests in-process with {@link CalculatorService} instead of sending them to the calculator, according
+ * to {@code app.execution.mode}: never ({@code kafka}), always ({@code local}) or when no number has more than
+ * {@code hybrid.max-digits} digits ({@code hybrid}). Results and errors are reported as calculator replies are.
+ */
+@Component
+public class LocalOperationExecutor {
+
+    public static final Logger logger = LoggerFactory.getLogger(LocalOperationExecutor.class);
+
+    public enum Mode {
+        KAFKA,
+        LOCAL,
+        HYBRID
+    }
+
+    private final Mode mode;
+    private final int maxDigits;
+    private final int maxBatchItems;
+    private final CalculatorService calculatorService;
+
+    private final Timer successTimer;
+    private final Timer errorTimer;
+
+    @Autowired
+    public LocalOperationExecutor(@Value("${app.execution.mode}") String mode,
+                                  @Value("${app.execution.hybrid.max-digits}") int maxDigits,
+                                  @Value("${app.execution.hybrid.max-batch-items}") int maxBatchItems,
+                                  CalculatorService calculatorService, MeterRegistry meterRegistry) {
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.maxDigits = maxDigits;
+        this.maxBatchItems = maxBatchItems;
+        this.calculatorService = calculatorService;
+        this.successTimer = localTimer(meterRegistry, "success");
+        this.errorTimer = localTimer(meterRegistry, "error");
+        logger.info("Execution mode: {}", this.mode);
+    }
+
+    private static Timer localTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("calculator.local.operation")
+                .description("Evaluation time of requests executed in-process (local and hybrid execution modes)")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return {@code true} if the request should be evaluated in-process rather than sent to the calculator.
+     */
+    public boolean isLocal(OperationRequest request) {
+        return switch (mode) {
+            case KAFKA -> false;
+            case LOCAL -> true;
+            case HYBRID -> isCheap(request);
+        };
+    }
+
+    /**
+     * Evaluates the request on the calling thread.
+     * @param request   The operation request.
+     * @param requestId The id set on the result.
+     * @return A completed future: the result, or an operation error as the reply consumer reports it.
+     */
+    public CompletableFuture<OperationResult> execute(OperationRequest request, String requestId) {
+        long start = System.nanoTime();
+        try {
+            OperationResult result = request.getOperationType() == OperationType.BATCH
+                    ? new OperationResult(requestId, calculatorService.performBatch(request))
+                    : new OperationResult(requestId, request.getOperationType(), calculatorService.performOperation(request));
+            successTimer.record(System.nanoTime() - start, NANOSECONDS);
+            return CompletableFuture.completedFuture(result);
+        } catch (RuntimeException e) {
+            errorTimer.record(System.nanoTime() - start, NANOSECONDS);
+            logger.debug("Error performing operation locally for request ID {}: {}", requestId, e.getMessage());
+            return CompletableFuture.failedFuture(new Exception("Operation error: " + e.getMessage()));
+        }
+    }
+
+    private boolean isCheap(OperationRequest request) {
+        OperationType type = request.getOperationType();
+        if (type == OperationType.BATCH) {
+            if (request.getItems() == null || request.getItems().size() > maxBatchItems) {
+                return false;
+            }
+            for (OperationRequest item : request.getItems()) {
+                if (!isCheap(item)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (type == OperationType.EXPRESSION) {
+            // Every intermediate result is rounded to the precision: it bounds the size of the numbers, unless 0 (exact)
+            int precision = request.getPrecision() != null
+                    ? request.getPrecision() : CalculatorService.DEFAULT_EXPRESSION_CONTEXT.getPrecision();
+            if (precision <= 0 || precision > maxDigits) {
+                return false;
+            }
+            Map<String, BigDecimal> variables = request.getVariables();
+            if (variables != null) {
+                for (BigDecimal value : variables.values()) {
+                    if (!isSmall(value)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return isSmall(request.getOperand1()) && isSmall(request.getOperand2());
+    }
+
+    private boolean isSmall(BigDecimal value) {
+        // Digits of the unscaled value plus those implied by the scale (e.g. 1E+500 or 1E-500)
+        return value == null || value.precision() + Math.abs(value.scale()) <= maxDigits;
+    }
+}
@@ -0,0 +1,26 @@
+package pt.edequinox.rest.services;
+
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationType;
+
+import java.math.BigDecimal;
+
+/**
+ * Identity of a single binary operation, used to share results between identical requests.
+ * Operands compare by unscaled value and scale ({@link BigDecimal#equals}), not numerically: {@code 5.0 / 2}
+ * and {@code 5 / 2} are different operations ({@code 2.5} vs {@code 3}) and so are {@code 2.0 + 3} and
+ * {@code 2 + 3} ({@code 5.0} vs {@code 5}).
+ */
+record OperationKey(OperationType operationType, BigDecimal operand1, BigDecimal operand2) {
+
+    /**
+     * @return The key of the request, or {@code null} if it is not a single binary operation (e.g. a batch).
+     */
+    static OperationKey of(OperationRequest request) {
+        if (request.getOperationType() == null || request.getOperationType() == OperationType.BATCH
+                || request.getOperand1() == null || request.getOperand2() == null) {
+            return null;
+        }
+        return new OperationKey(request.getOperationType(), request.getOperand1(), request.getOperand2());
+    }
+}
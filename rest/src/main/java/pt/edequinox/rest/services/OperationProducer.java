@@ -2,25 +2,82 @@ package pt.edequinox.rest.services;
 
 import pt.edequinox.api.models.OperationRequest;
 import pt.edequinox.api.filters.FiltersContext;
+import pt.edequinox.api.metrics.TimestampHeaders;
+import pt.edequinox.core.services.OperationCost;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * The {@code kafka} {@link OperationTransport}: requests are published to the requests topics and their replies come
+ * back on this instance's partition of the results topic ({@code ResultConsumer}).
+ */
 @Service
-public class OperationProducer {
+public class OperationProducer implements OperationTransport {
 
     public static final Logger logger = LoggerFactory.getLogger(OperationProducer.class);
     private final KafkaTemplate<String, OperationRequest> kafkaTemplate;
     private final String requestTopic;
+    private final String slowRequestTopic;
+    private final long slowLaneMinCost;
+    private final byte[] replyTopic;
+    private final byte[] replyPartition;
+    private final long requestTimeoutMicros;
+    private final Timer sendSuccessTimer;
+    private final Timer sendFailureTimer;
+    private final Counter fastLaneCounter;
+    private final Counter slowLaneCounter;
 
+    @Autowired
     public OperationProducer(KafkaTemplate<String, OperationRequest> kafkaTemplate, 
-    @org.springframework.beans.factory.annotation.Value("${app.kafka.topic.requests}") String requestTopic) {
+    @org.springframework.beans.factory.annotation.Value("${app.kafka.topic.requests}") String requestTopic,
+    @org.springframework.beans.factory.annotation.Value("${app.kafka.topic.requests-slow}") String slowRequestTopic,
+    @org.springframework.beans.factory.annotation.Value("${app.lanes.slow.min-cost}") long slowLaneMinCost,
+    @org.springframework.beans.factory.annotation.Value("${app.kafka.topic.results}") String replyTopic,
+    @org.springframework.beans.factory.annotation.Value("${app.kafka.reply.partition}") int replyPartition,
+    @org.springframework.beans.factory.annotation.Value("${app.requests.timeout}") Duration requestTimeout,
+    MeterRegistry meterRegistry) {
         this.kafkaTemplate = kafkaTemplate;
         this.requestTopic = requestTopic;
+        this.slowRequestTopic = slowRequestTopic;
+        this.slowLaneMinCost = slowLaneMinCost > 0 ? slowLaneMinCost : Long.MAX_VALUE;
+        this.replyTopic = replyTopic.getBytes(StandardCharsets.UTF_8);
+        this.replyPartition = ByteBuffer.allocate(Integer.BYTES).putInt(replyPartition).array();
+        this.requestTimeoutMicros = requestTimeout.toNanos() / 1_000;
+        this.sendSuccessTimer = sendTimer(meterRegistry, "success");
+        this.sendFailureTimer = sendTimer(meterRegistry, "failure");
+        this.fastLaneCounter = laneCounter(meterRegistry, "fast");
+        this.slowLaneCounter = laneCounter(meterRegistry, "slow");
+    }
+
+    private static Counter laneCounter(MeterRegistry meterRegistry, String lane) {
+        return Counter.builder("calculator.request.lane")
+                .description("Requests published to each lane of the calculator, by estimated cost")
+                .tag("lane", lane)
+                .register(meterRegistry);
+    }
+
+    private static Timer sendTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("calculator.request.send")
+                .description("Time from the request entering the service until Kafka acknowledges it")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     /**
@@ -32,17 +89,61 @@ public class OperationProducer {
         if (requestId == null) {
             requestId = "N/A";
         }
-        return sendOperationRequest(request, requestId);
+        return sendOperationRequest(request, requestId, System.nanoTime());
     }
 
-    public CompletableFuture<Void> sendOperationRequest(OperationRequest request, String requestId) {
-        logger.info("Sending operation request: {} to topic: {} with key {}", request, requestTopic, requestId);
-        return kafkaTemplate.send(requestTopic, requestId, request)
-                .thenAccept(result -> logger.info("Operation request sent successfully with ID: {}", requestId))
+    /**
+     * Sends an operation request tagged with this instance's reply address and the send time and deadline headers,
+     * to the slow lane's topic when its {@link OperationCost} reaches {@code app.lanes.slow.min-cost}.
+     * @param request   The operation request to be sent.
+     * @param requestId The unique identifier for the request.
+     * @param receivedAtNanos {@link System#nanoTime()} when the request entered the service.
+     */
+    @Override
+    public CompletableFuture<Void> sendOperationRequest(OperationRequest request, String requestId,
+                                                        long receivedAtNanos) {
+        String topic = topic(request);
+        logger.debug("Sending operation request: {} to topic: {} with key {}", request, topic, requestId);
+        ProducerRecord<String, OperationRequest> producerRecord = new ProducerRecord<>(topic, requestId, request);
+        producerRecord.headers()
+                .add(KafkaHeaders.REPLY_TOPIC, replyTopic)
+                .add(KafkaHeaders.REPLY_PARTITION, replyPartition);
+        long sentAt = TimestampHeaders.nowMicros();
+        TimestampHeaders.put(producerRecord.headers(), TimestampHeaders.REQUEST_SENT_AT, sentAt);
+        if (requestTimeoutMicros > 0) {
+            TimestampHeaders.put(producerRecord.headers(), TimestampHeaders.REQUEST_DEADLINE, sentAt + requestTimeoutMicros);
+        }
+        // The callbacks run on the producer's I/O thread, which has no request id in its MDC
+        return kafkaTemplate.send(producerRecord)
+                .thenAccept(result -> {
+                    sendSuccessTimer.record(System.nanoTime() - receivedAtNanos, TimeUnit.NANOSECONDS);
+                    if (logger.isDebugEnabled()) {
+                        FiltersContext.put(requestId);
+                        try {
+                            logger.debug("Operation request sent successfully with ID: {}", requestId);
+                        } finally {
+                            FiltersContext.remove();
+                        }
+                    }
+                })
                 .exceptionally(ex -> {
-                    logger.error("Failed to send operation request: {}", request, ex);
+                    sendFailureTimer.record(System.nanoTime() - receivedAtNanos, TimeUnit.NANOSECONDS);
+                    FiltersContext.put(requestId);
+                    try {
+                        logger.error("Failed to send operation request: {}", request, ex);
+                    } finally {
+                        FiltersContext.remove();
+                    }
                     return null;
                 });
     }
-}
 
+    private String topic(OperationRequest request) {
+        if (slowLaneMinCost != Long.MAX_VALUE && OperationCost.estimate(request) >= slowLaneMinCost) {
+            slowLaneCounter.increment();
+            return slowRequestTopic;
+        }
+        fastLaneCounter.increment();
+        return requestTopic;
+    }
+}
@@ -0,0 +1,66 @@
+package pt.edequinox.rest.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounded in-memory cache of successful operation results, so repeated identical operations skip the Kafka round
+ * trip. Eviction is Caffeine's size-bounded W-TinyLFU with an optional time-to-live; hit/miss/eviction counts are
+ * published as the {@code cache.*} meters tagged {@code cache=operation-results}.
+ * Error results are never cached.
+ */
+@Component
+public class OperationResultCache {
+
+    public static final String CACHE_NAME = "operation-results";
+
+    private final Cache<OperationKey, OperationResult> cache;
+
+    public OperationResultCache(@Value("${app.cache.enabled}") boolean enabled,
+                                @Value("${app.cache.max-size}") long maxSize,
+                                @Value("${app.cache.ttl}") Duration ttl,
+                                MeterRegistry meterRegistry) {
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(maxSize).recordStats();
+        if (!ttl.isZero()) {
+            builder.expireAfterWrite(ttl);
+        }
+        this.cache = builder.build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * @param request   The operation request.
+     * @param requestId The id of the current request, set on the returned copy.
+     * @return The cached result re-issued for {@code requestId}, or {@code null} on a miss.
+     */
+    public OperationResult get(OperationRequest request, String requestId) {
+        OperationKey key = cache == null ? null : OperationKey.of(request);
+        if (key == null) {
+            return null;
+        }
+        OperationResult cached = cache.getIfPresent(key);
+        if (cached == null) {
+            return null;
+        }
+        return new OperationResult(requestId, cached.getOperationType(), cached.getResult());
+    }
+
+    public void put(OperationRequest request, OperationResult result) {
+        OperationKey key = cache == null ? null : OperationKey.of(request);
+        if (key != null && result != null && result.getError() == null && result.getResult() != null) {
+            cache.put(key, result);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package pt.edequinox.rest.services;
+
+import pt.edequinox.api.models.OperationRequest;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * How {@link RequestResponseService} gets a request to the calculator, chosen with {@code app.transport}:
+ * {@code kafka} ({@link OperationProducer}, the default) or {@code http} ({@link HttpOperationTransport}).
+ * The request is already registered as pending under its id when it is sent, and the reply completes it through
+ * {@link RequestResponseService#completeRequest} or {@link RequestResponseService#completeRequestExceptionally}:
+ * from the results topic ({@code ResultConsumer}) or from the transport's own response.
+ */
+public interface OperationTransport {
+
+    /**
+     * @param request   The operation request to be sent.
+     * @param requestId The unique identifier for the request.
+     * @param receivedAtNanos {@link System#nanoTime()} when the request entered the service.
+     * @return Completed once the request has been handed over, not when it is answered; it never fails, a request
+     *         that could not be sent is left to time out or is failed by the transport itself.
+     */
+    CompletableFuture<Void> sendOperationRequest(OperationRequest request, String requestId, long receivedAtNanos);
+}
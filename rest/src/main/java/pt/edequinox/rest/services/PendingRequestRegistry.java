@@ -0,0 +1,235 @@
+package pt.edequinox.rest.services;
+
+import pt.edequinox.api.ids.RequestIds;
+import pt.edequinox.api.models.OperationResult;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Requests published and waiting for their reply, bounded and self-cleaning. Beyond {@code max-pending} requests
+ * {@link #register} is rejected ({@link RequestRejectedException.Reason#CAPACITY}); timeouts are kept in a hashed
+ * timer wheel advanced every tick (1/100 of the timeout); and while the moving average of reply latency is above
+ * {@code admission.max-latency} new requests are rejected ({@link RequestRejectedException.Reason#SATURATED}) but
+ * for one probe per tick. An entry leaves the registry before its future is completed.
+ * <p>
+ * Entries are keyed by {@link RequestIds#correlationKey}. A request whose key is already held by a different id (e.g.
+ * client-supplied version 1 UUIDs from one host, which share their lower half) is kept by its full id instead.
+ */
+@Component
+public class PendingRequestRegistry {
+
+    // Weight of the newest sample in the latency average, as a shift: 1/8
+    private static final int EWMA_SHIFT = 3;
+    private static final int STRIPES = 64;
+
+    private final ConcurrentLongMap<Pending> pending = new ConcurrentLongMap<>(STRIPES);
+    // Requests whose correlation key was taken by another id when they were registered
+    private final ConcurrentHashMap<String, Pending> colliding = new ConcurrentHashMap<>();
+    private final int maxPending;
+    private final long timeoutNanos;
+    private final long maxLatencyNanos;
+
+    private final long tickNanos;
+    private final long origin = System.nanoTime();
+    private final Set<Pending>[] wheel;
+    private final int mask;
+    private final ScheduledExecutorService timer;
+    // Only touched by the timer thread
+    private long expiredTick = -1;
+
+    // Racy read-modify-write: a lost sample only nudges the average, not worth a CAS loop on every reply
+    private volatile long latencyAverageNanos;
+    private final AtomicLong lastProbe = new AtomicLong(System.nanoTime());
+
+    @Autowired
+    @SuppressWarnings("unchecked")
+    public PendingRequestRegistry(@Value("${app.requests.max-pending}") int maxPending,
+                                  @Value("${app.requests.timeout}") Duration timeout,
+                                  @Value("${app.requests.admission.max-latency}") Duration maxLatency) {
+        if (maxPending <= 0 || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("max-pending and timeout must be positive");
+        }
+        this.maxPending = maxPending;
+        this.timeoutNanos = timeout.toNanos();
+        this.maxLatencyNanos = maxLatency.toNanos();
+        this.tickNanos = Math.max(timeoutNanos / 100, TimeUnit.MILLISECONDS.toNanos(1));
+
+        int buckets = Integer.highestOneBit((int) (timeoutNanos / tickNanos) + 1) << 1;
+        this.wheel = new Set[buckets];
+        for (int i = 0; i < buckets; i++) {
+            wheel[i] = ConcurrentHashMap.newKeySet();
+        }
+        this.mask = buckets - 1;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pending-request-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(this::expire, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Registers a request about to be published.
+     * @param requestId The id its reply is correlated by.
+     * @return The future completed by {@link #complete}/{@link #completeExceptionally}, or with a
+     *         {@link TimeoutException} once the timeout elapses.
+     * @throws RequestRejectedException If the registry is full or the calculator is saturated.
+     */
+    public CompletableFuture<OperationResult> register(String requestId) {
+        if (isSaturated()) {
+            throw new RequestRejectedException(RequestRejectedException.Reason.SATURATED,
+                    "Calculator is saturated, reply latency above " + Duration.ofNanos(maxLatencyNanos).toMillis() + " ms");
+        }
+        if (size() >= maxPending) {
+            throw new RequestRejectedException(RequestRejectedException.Reason.CAPACITY,
+                    "Too many pending requests (" + maxPending + ")");
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + timeoutNanos;
+        Pending entry = new Pending(requestId, RequestIds.correlationKey(requestId), new CompletableFuture<>(),
+                deadline, wheel[(int) (tickOf(deadline + tickNanos - 1) & mask)]);
+        entry.future.whenComplete((result, throwable) -> recordLatency(System.nanoTime() - start));
+        // Into the wheel before the entry can be completed, so completing always finds it there
+        entry.bucket.add(entry);
+        Pending replaced = insert(entry);
+        if (replaced != null) {
+            replaced.bucket.remove(replaced);
+            replaced.future.completeExceptionally(new IllegalStateException("Request id reused: " + requestId));
+        }
+        return entry.future;
+    }
+
+    /**
+     * @return {@code false} if no request is pending under this id (e.g. a late reply after the timeout).
+     */
+    public boolean complete(String requestId, OperationResult result) {
+        Pending entry = remove(requestId);
+        return entry != null && entry.future.complete(result);
+    }
+
+    /**
+     * @return {@code false} if no request is pending under this id (e.g. a late reply after the timeout).
+     */
+    public boolean completeExceptionally(String requestId, Throwable ex) {
+        Pending entry = remove(requestId);
+        return entry != null && entry.future.completeExceptionally(ex);
+    }
+
+    public boolean isPending(String requestId) {
+        Pending entry = pending.get(RequestIds.correlationKey(requestId));
+        return entry != null && entry.requestId.equals(requestId) || colliding.containsKey(requestId);
+    }
+
+    public int size() {
+        return pending.size() + colliding.size();
+    }
+
+    public Duration latencyAverage() {
+        return Duration.ofNanos(latencyAverageNanos);
+    }
+
+    /**
+     * @return The entry previously registered under the same id, or {@code null}.
+     */
+    private Pending insert(Pending entry) {
+        Pending existing = pending.putIfAbsent(entry.key, entry);
+        if (existing == null) {
+            return null;
+        }
+        if (!existing.requestId.equals(entry.requestId)) {
+            return colliding.put(entry.requestId, entry);
+        }
+        return pending.put(entry.key, entry);
+    }
+
+    private Pending remove(String requestId) {
+        long key = RequestIds.correlationKey(requestId);
+        Pending entry = pending.get(key);
+        if (entry == null || !entry.requestId.equals(requestId) || !pending.remove(key, entry)) {
+            entry = colliding.isEmpty() ? null : colliding.remove(requestId);
+            if (entry == null) {
+                return null;
+            }
+        }
+        entry.bucket.remove(entry);
+        return entry;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private boolean isSaturated() {
+        if (maxLatencyNanos <= 0 || latencyAverageNanos <= maxLatencyNanos) {
+            return false;
+        }
+        long now = System.nanoTime();
+        long last = lastProbe.get();
+        return now - last < tickNanos || !lastProbe.compareAndSet(last, now);
+    }
+
+    private void recordLatency(long nanos) {
+        if (maxLatencyNanos > 0) {
+            long average = latencyAverageNanos;
+            latencyAverageNanos = average + ((nanos - average) >> EWMA_SHIFT);
+        }
+    }
+
+    private void expire() {
+        long now = System.nanoTime();
+        long currentTick = tickOf(now);
+        while (expiredTick < currentTick) {
+            expiredTick++;
+            // Entries whose deadline is further away (visited a rotation early because the timer fell behind)
+            // stay in the bucket for its next turn
+            Set<Pending> bucket = wheel[(int) (expiredTick & mask)];
+            for (Pending entry : bucket) {
+                if (entry.deadline - now <= 0) {
+                    bucket.remove(entry);
+                    if (!pending.remove(entry.key, entry)) {
+                        colliding.remove(entry.requestId, entry);
+                    }
+                    entry.future.completeExceptionally(new TimeoutException(
+                            "No reply within " + Duration.ofNanos(timeoutNanos).toMillis() + " ms"));
+                }
+            }
+        }
+    }
+
+    private long tickOf(long nanos) {
+        return (nanos - origin) / tickNanos;
+    }
+
+    // Identity equality: one entry per registration, even when a request id is reused
+    private static final class Pending {
+        final String requestId;
+        final long key;
+        final CompletableFuture<OperationResult> future;
+        final long deadline;
+        // Wheel bucket of the deadline tick
+        final Set<Pending> bucket;
+
+        Pending(String requestId, long key, CompletableFuture<OperationResult> future, long deadline,
+                Set<Pending> bucket) {
+            this.requestId = requestId;
+            this.key = key;
+            this.future = future;
+            this.deadline = deadline;
+            this.bucket = bucket;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package pt.edequinox.rest.services;
+
+import pt.edequinox.api.ids.RequestIds;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Request ids of this instance ({@link RequestIds}): time-ordered, with this instance's {@code app.request-id.node}
+ * in them, generated without any shared lock.
+ */
+@Component
+public class RequestIdGenerator {
+
+    private final int node;
+
+    public RequestIdGenerator(@Value("${app.request-id.node}") int node) {
+        if (node < 0 || node > RequestIds.MAX_NODE) {
+            throw new IllegalArgumentException("app.request-id.node must be between 0 and " + RequestIds.MAX_NODE);
+        }
+        this.node = node;
+    }
+
+    public String next() {
+        return RequestIds.generate(node);
+    }
+}
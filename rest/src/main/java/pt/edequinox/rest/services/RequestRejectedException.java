@@ -0,0 +1,27 @@
+package pt.edequinox.rest.services;
+
+/**
+ * A request refused by the {@link PendingRequestRegistry} before it was published, so the caller can fail fast
+ * instead of waiting for a timeout.
+ */
+public class RequestRejectedException extends RuntimeException {
+
+    public enum Reason {
+        // The registry already holds its maximum number of pending requests
+        CAPACITY,
+        // Recent reply latency shows the calculator is saturated
+        SATURATED
+    }
+
+    private final Reason reason;
+
+    public RequestRejectedException(Reason reason, String message) {
+        // Rejections are expected under load: no stack trace to fill in
+        super(message, null, false, false);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
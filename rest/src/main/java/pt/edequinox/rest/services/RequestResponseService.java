@@ -2,55 +2,198 @@ package pt.edequinox.rest.services;
 
 import pt.edequinox.api.models.OperationRequest;
 import pt.edequinox.api.models.OperationResult;
-import pt.edequinox.rest.services.OperationProducer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
 
-import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 @Service
 public class RequestResponseService {
 
-    private final OperationProducer operationProducer;
-    private final Map<String, CompletableFuture<OperationResult>> pendingRequests = new ConcurrentHashMap<>();
+    private final OperationTransport transport;
+    private final OperationResultCache resultCache;
+    private final PendingRequestRegistry pendingRequests;
+    private final LocalOperationExecutor localExecutor;
+    private final Map<OperationKey, CompletableFuture<OperationResult>> inFlightOperations = new ConcurrentHashMap<>();
+
+    private final Timer replySuccessTimer;
+    private final Timer replyErrorTimer;
+    private final Timer replyTimeoutTimer;
+    private final Counter timeoutCounter;
+    private final Counter orphanedReplyCounter;
+    private final Counter coalescedCounter;
+    private final Counter capacityRejectedCounter;
+    private final Counter saturatedRejectedCounter;
+
+    @Autowired
+    public RequestResponseService(OperationTransport transport, OperationResultCache resultCache,
+                                  PendingRequestRegistry pendingRequests, LocalOperationExecutor localExecutor,
+                                  MeterRegistry meterRegistry) {
+        this.transport = transport;
+        this.resultCache = resultCache;
+        this.pendingRequests = pendingRequests;
+        this.localExecutor = localExecutor;
 
-    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+        this.replySuccessTimer = replyTimer(meterRegistry, "success");
+        this.replyErrorTimer = replyTimer(meterRegistry, "error");
+        this.replyTimeoutTimer = replyTimer(meterRegistry, "timeout");
+        this.timeoutCounter = Counter.builder("calculator.request.timeouts")
+                .description("Requests that got no reply within the timeout")
+                .register(meterRegistry);
+        this.orphanedReplyCounter = Counter.builder("calculator.reply.orphaned")
+                .description("Replies with no pending request, e.g. arriving after the request timed out")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("calculator.request.coalesced")
+                .description("Requests attached to an identical operation already in flight")
+                .register(meterRegistry);
+        this.capacityRejectedCounter = rejectedCounter(meterRegistry, "capacity");
+        this.saturatedRejectedCounter = rejectedCounter(meterRegistry, "saturated");
+        Gauge.builder("calculator.requests.pending", pendingRequests, PendingRequestRegistry::size)
+                .description("Requests published and waiting for their reply")
+                .register(meterRegistry);
+        Gauge.builder("calculator.reply.latency.average", pendingRequests,
+                        registry -> registry.latencyAverage().toNanos() / 1e6)
+                .description("Moving average of reply latency used for admission, in milliseconds")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("calculator.requests.inflight.operations", inFlightOperations, Map::size)
+                .description("Distinct operations waiting for a reply (after coalescing)")
+                .register(meterRegistry);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("calculator.request.rejected")
+                .description("Requests rejected before publishing: registry full (capacity) or calculator saturated")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
 
-    public RequestResponseService(OperationProducer operationProducer) {
-        this.operationProducer = operationProducer;
+    private static Timer replyTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("calculator.reply.wait")
+                .description("Time from publishing a request until its reply is matched to the pending future")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
-    public OperationResult sendAndReceive(OperationRequest request, String requestId)
-            throws ExecutionException, InterruptedException, TimeoutException {
-        CompletableFuture<OperationResult> futureResponse = new CompletableFuture<>();
-        pendingRequests.put(requestId, futureResponse);
+    /**
+     * Evaluates the request in-process when the {@link LocalOperationExecutor} takes it, answers it from the
+     * {@link OperationResultCache}, attaches it to an identical request in flight, or else registers it in the
+     * {@link PendingRequestRegistry} and sends it through the {@link OperationTransport}. The returned future fails
+     * at once with a {@link RequestRejectedException} when the registry refuses the request.
+     * @param request   The operation request to be sent.
+     * @param requestId The unique identifier used to correlate the reply, also set on the result returned to
+     *                  callers attached to another request's reply.
+     */
+    public CompletableFuture<OperationResult> sendAndReceiveAsync(OperationRequest request, String requestId) {
+        long receivedAt = System.nanoTime();
+        if (localExecutor.isLocal(request)) {
+            return localExecutor.execute(request, requestId);
+        }
+
+        OperationResult cached = resultCache.get(request, requestId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        OperationKey key = OperationKey.of(request);
+        if (key == null) {
+            return send(request, requestId, receivedAt);
+        }
+
+        CompletableFuture<OperationResult> leader = new CompletableFuture<>();
+        CompletableFuture<OperationResult> inFlight = inFlightOperations.putIfAbsent(key, leader);
+        if (inFlight != null) {
+            coalescedCounter.increment();
+            return inFlight.thenApply(result -> new OperationResult(requestId, result.getOperationType(),
+                    result.getResult(), result.getError(), result.getItems()));
+        }
+
+        send(request, requestId, receivedAt).whenComplete((result, throwable) -> {
+            inFlightOperations.remove(key, leader);
+            if (throwable != null) {
+                leader.completeExceptionally(throwable);
+            } else {
+                leader.complete(result);
+            }
+        });
+        return leader;
+    }
+
+    private CompletableFuture<OperationResult> send(OperationRequest request, String requestId, long receivedAt) {
+        CompletableFuture<OperationResult> futureResponse;
+        try {
+            futureResponse = pendingRequests.register(requestId);
+        } catch (RequestRejectedException e) {
+            (e.getReason() == RequestRejectedException.Reason.CAPACITY
+                    ? capacityRejectedCounter : saturatedRejectedCounter).increment();
+            return CompletableFuture.failedFuture(e);
+        }
+        long start = System.nanoTime();
+        futureResponse.whenComplete((result, throwable) -> recordReply(System.nanoTime() - start, throwable));
 
         try {
-            operationProducer.sendOperationRequest(request, requestId);
-            // wait synchronously for result or timeout
-            return futureResponse.get(REQUEST_TIMEOUT.toSeconds(), SECONDS);
-        } finally {
-            pendingRequests.remove(requestId);
+            transport.sendOperationRequest(request, requestId, receivedAt);
+        } catch (RuntimeException e) {
+            // e.g. a serialization error or a max.block.ms timeout, thrown by the producer before sending
+            pendingRequests.completeExceptionally(requestId, e);
+        }
+        return futureResponse
+                .thenApply(result -> {
+                    resultCache.put(request, result);
+                    return result;
+                });
+    }
+
+    private void recordReply(long elapsedNanos, Throwable throwable) {
+        if (throwable == null) {
+            replySuccessTimer.record(elapsedNanos, NANOSECONDS);
+        } else if (throwable instanceof TimeoutException) {
+            replyTimeoutTimer.record(elapsedNanos, NANOSECONDS);
+            timeoutCounter.increment();
+        } else {
+            replyErrorTimer.record(elapsedNanos, NANOSECONDS);
         }
     }
 
     public void completeRequest(String requestId, OperationResult result) {
-        CompletableFuture<OperationResult> futureResponse = pendingRequests.get(requestId);
-        if (futureResponse != null) {
-            futureResponse.complete(result);
+        if (!pendingRequests.complete(requestId, result)) {
+            orphanedReplyCounter.increment();
         }
     }
 
     public void completeRequestExceptionally(String requestId, Throwable ex) {
-        CompletableFuture<OperationResult> futureResponse = pendingRequests.get(requestId);
-        if (futureResponse != null) {
-            futureResponse.completeExceptionally(ex);
+        if (!pendingRequests.completeExceptionally(requestId, ex)) {
+            orphanedReplyCounter.increment();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Counts a reply that has no pending request, e.g. one arriving after its request timed out.
+     * @return {@code true} if the reply is late and should be dropped.
+     */
+    public boolean dropIfLate(String requestId) {
+        if (pendingRequests.isPending(requestId)) {
+            return false;
+        }
+        orphanedReplyCounter.increment();
+        return true;
+    }
+
+    public int pendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    public int inFlightOperationCount() {
+        return inFlightOperations.size();
+    }
+}
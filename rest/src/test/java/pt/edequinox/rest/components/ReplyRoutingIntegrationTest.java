@@ -0,0 +1,108 @@
+package pt.edequinox.rest.components;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.api.serialization.OperationRequestDeserializer;
+import pt.edequinox.api.serialization.OperationResultSerializer;
+import pt.edequinox.api.serialization.RequestIdDeserializer;
+import pt.edequinox.api.serialization.RequestIdSerializer;
+import pt.edequinox.calculator.CalculatorApplication;
+import pt.edequinox.rest.RestApplication;
+import pt.edequinox.rest.services.RequestResponseService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs two rest instances sharing one consumer group and a calculator against embedded Kafka, and checks that every
+ * reply reaches the instance that sent the request: the calculator's {@code ResultProducer} publishes each result to
+ * the reply topic and partition of its request.
+ */
+@EmbeddedKafka(partitions = 1, topics = {ReplyRoutingIntegrationTest.REQUEST_TOPIC,
+        ReplyRoutingIntegrationTest.SLOW_REQUEST_TOPIC})
+class ReplyRoutingIntegrationTest {
+
+    static final String REQUEST_TOPIC = "operation-requests";
+    static final String SLOW_REQUEST_TOPIC = "operation-requests-slow";
+    private static final String RESULT_TOPIC = "operation-results";
+    private static final int INSTANCES = 2;
+    private static final int REQUESTS_PER_INSTANCE = 25;
+
+    private final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+    private ConfigurableApplicationContext calculator;
+
+    @AfterEach
+    void tearDown() {
+        instances.forEach(ConfigurableApplicationContext::close);
+        if (calculator != null) {
+            calculator.close();
+        }
+    }
+
+    @Test
+    void repliesAreRoutedToTheRequestingInstance(EmbeddedKafkaBroker broker) throws Exception {
+        broker.addTopics(new org.apache.kafka.clients.admin.NewTopic(RESULT_TOPIC, INSTANCES, (short) 1));
+        calculator = startCalculator(broker);
+
+        for (int partition = 0; partition < INSTANCES; partition++) {
+            instances.add(new SpringApplicationBuilder(RestApplication.class).run(
+                    "--server.port=0",
+                    "--spring.kafka.consumer.bootstrap-servers=" + broker.getBrokersAsString(),
+                    "--spring.kafka.producer.bootstrap-servers=" + broker.getBrokersAsString(),
+                    "--spring.kafka.consumer.auto-offset-reset=earliest",
+                    "--app.kafka.reply.partition=" + partition));
+        }
+
+        List<CompletableFuture<OperationResult>> futures = new ArrayList<>();
+        for (int i = 0; i < REQUESTS_PER_INSTANCE; i++) {
+            for (int instance = 0; instance < INSTANCES; instance++) {
+                RequestResponseService service = instances.get(instance).getBean(RequestResponseService.class);
+                OperationRequest request = new OperationRequest(OperationType.ADDITION,
+                        BigDecimal.valueOf(i), BigDecimal.valueOf(instance));
+                futures.add(service.sendAndReceiveAsync(request, "instance-" + instance + "-req-" + i));
+            }
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            OperationResult result = futures.get(i).get(20, TimeUnit.SECONDS);
+            assertNull(result.getError());
+            // Requests alternate between the instances: i / INSTANCES + instance
+            assertEquals(BigDecimal.valueOf(i / INSTANCES + i % INSTANCES), result.getResult());
+        }
+        for (ConfigurableApplicationContext instance : instances) {
+            assertEquals(0, instance.getBean(RequestResponseService.class).pendingRequestCount());
+        }
+    }
+
+    // The calculator's application.properties is shadowed by rest's on this classpath, so its settings are given here
+    private static ConfigurableApplicationContext startCalculator(EmbeddedKafkaBroker broker) {
+        return new SpringApplicationBuilder(CalculatorApplication.class).run(
+                "--spring.config.name=reply-routing-calculator",
+                "--server.port=0",
+                "--spring.kafka.consumer.bootstrap-servers=" + broker.getBrokersAsString(),
+                "--spring.kafka.consumer.group-id=calculator-group",
+                "--spring.kafka.consumer.auto-offset-reset=earliest",
+                "--spring.kafka.consumer.key-deserializer=" + RequestIdDeserializer.class.getName(),
+                "--spring.kafka.consumer.value-deserializer=" + OperationRequestDeserializer.class.getName(),
+                "--spring.kafka.listener.ack-mode=batch",
+                "--spring.kafka.producer.bootstrap-servers=" + broker.getBrokersAsString(),
+                "--spring.kafka.producer.key-serializer=" + RequestIdSerializer.class.getName(),
+                "--spring.kafka.producer.value-serializer=" + OperationResultSerializer.class.getName(),
+                "--app.kafka.topic.requests=" + REQUEST_TOPIC,
+                "--app.kafka.topic.requests-slow=" + SLOW_REQUEST_TOPIC,
+                "--app.kafka.topic.results=" + RESULT_TOPIC,
+                "--app.expression.cache.max-size=0");
+    }
+}
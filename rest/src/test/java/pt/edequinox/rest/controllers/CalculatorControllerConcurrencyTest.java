@@ -0,0 +1,78 @@
+package pt.edequinox.rest.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import pt.edequinox.api.filters.FiltersContext;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.rest.services.OperationProducer;
+import pt.edequinox.rest.services.RequestResponseService;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load test for the asynchronous reply path: with only {@value #TOMCAT_THREADS} Tomcat workers, many more
+ * requests must be able to wait for their Kafka reply at the same time.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.tomcat.threads.max=" + CalculatorControllerConcurrencyTest.TOMCAT_THREADS,
+        "spring.kafka.listener.auto-startup=false"
+})
+class CalculatorControllerConcurrencyTest {
+
+    static final int TOMCAT_THREADS = 4;
+    private static final int IN_FLIGHT = 64;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private RequestResponseService requestResponseService;
+
+    @MockitoBean
+    private OperationProducer operationProducer;
+
+    @Test
+    void inFlightRequests_AreNotBoundByTomcatThreads() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            HttpRequest request = HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + port + "/add?operand1=" + i + "&operand2=1"))
+                    .header(FiltersContext.REQUEST_ID_HEADER, "req-" + i)
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+
+        // A thread-per-request design would stall at TOMCAT_THREADS pending entries.
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (requestResponseService.pendingRequestCount() < IN_FLIGHT && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(IN_FLIGHT, requestResponseService.pendingRequestCount());
+
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            requestResponseService.completeRequest("req-" + i,
+                    new OperationResult("req-" + i, OperationType.ADDITION, BigDecimal.valueOf(i + 1L)));
+        }
+
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            HttpResponse<String> response = responses.get(i).get();
+            assertEquals(200, response.statusCode());
+            assertEquals("req-" + i, response.headers().firstValue(FiltersContext.REQUEST_ID_HEADER).orElse(null));
+        }
+        assertEquals(0, requestResponseService.pendingRequestCount());
+    }
+}
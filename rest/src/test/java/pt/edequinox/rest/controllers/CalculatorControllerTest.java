@@ -0,0 +1,180 @@
+package pt.edequinox.rest.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.core.expressions.ExpressionCache;
+import pt.edequinox.core.services.CalculatorService;
+import pt.edequinox.rest.services.RequestResponseService;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * The request bodies of {@code /batch} (JSON array and NDJSON) and {@code /evaluate} through the servlet stack; the
+ * reply is computed in-process by {@link CalculatorService} in place of the calculator.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.kafka.listener.auto-startup=false",
+        "app.batch.max-items=" + CalculatorControllerTest.MAX_BATCH_ITEMS,
+        "app.expression.max-length=" + CalculatorControllerTest.MAX_EXPRESSION_LENGTH
+})
+class CalculatorControllerTest {
+
+    static final int MAX_BATCH_ITEMS = 3;
+    static final int MAX_EXPRESSION_LENGTH = 40;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final CalculatorService calculatorService =
+            new CalculatorService(new ExpressionCache(0, new SimpleMeterRegistry()));
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private RequestResponseService requestResponseService;
+
+    @BeforeEach
+    void setUp() {
+        when(requestResponseService.sendAndReceiveAsync(any(), anyString())).thenAnswer(invocation -> {
+            OperationRequest request = invocation.getArgument(0);
+            String requestId = invocation.getArgument(1);
+            try {
+                OperationResult result = request.getOperationType() == OperationType.BATCH
+                        ? new OperationResult(requestId, calculatorService.performBatch(request))
+                        : new OperationResult(requestId, request.getOperationType(), calculatorService.performOperation(request));
+                return CompletableFuture.completedFuture(result);
+            } catch (RuntimeException e) {
+                // As the calculator does, failed operations come back as error replies
+                return CompletableFuture.completedFuture(new OperationResult(requestId, e.getMessage()));
+            }
+        });
+    }
+
+    @Test
+    void batch_SendsOneEnvelopeAndAnswersEveryItem() throws Exception {
+        HttpResponse<String> response = post("/batch", "application/json", """
+                [{"operationType": "ADDITION", "operand1": 2, "operand2": 3},
+                 {"operationType": "DIVISION", "operand1": 1, "operand2": 0}]""");
+
+        assertEquals(200, response.statusCode());
+        JsonNode items = objectMapper.readTree(response.body()).get("items");
+        assertEquals(2, items.size());
+        assertEquals(0, new BigDecimal(items.get(0).get("result").asText()).compareTo(new BigDecimal("5")));
+        assertTrue(items.get(1).hasNonNull("error"));
+
+        ArgumentCaptor<OperationRequest> sent = ArgumentCaptor.forClass(OperationRequest.class);
+        verify(requestResponseService).sendAndReceiveAsync(sent.capture(), anyString());
+        assertEquals(OperationType.BATCH, sent.getValue().getOperationType());
+        assertEquals(2, sent.getValue().getItems().size());
+    }
+
+    @Test
+    void batchNdjson_ReadsOneOperationPerLine() throws Exception {
+        HttpResponse<String> response = post("/batch", CalculatorController.NDJSON_VALUE, """
+                {"operationType": "MULTIPLICATION", "operand1": 6, "operand2": 7}
+                {"operationType": "SUBTRACTION", "operand1": 1, "operand2": 3}
+                """);
+
+        assertEquals(200, response.statusCode());
+        JsonNode items = objectMapper.readTree(response.body()).get("items");
+        assertEquals(2, items.size());
+        assertEquals(0, new BigDecimal(items.get(0).get("result").asText()).compareTo(new BigDecimal("42")));
+        assertEquals(0, new BigDecimal(items.get(1).get("result").asText()).compareTo(new BigDecimal("-2")));
+    }
+
+    @Test
+    void batchNdjson_RejectsMalformedLine() throws Exception {
+        HttpResponse<String> response = post("/batch", CalculatorController.NDJSON_VALUE, """
+                {"operationType": "ADDITION", "operand1": 2, "operand2": 3}
+                {"operationType": "ADDITION", "operand1":
+                """);
+
+        assertEquals(400, response.statusCode());
+        verifyNoInteractions(requestResponseService);
+    }
+
+    @Test
+    void batch_RejectsEmptyAndOversizedBatches() throws Exception {
+        String item = "{\"operationType\": \"ADDITION\", \"operand1\": 1, \"operand2\": 1}\n";
+
+        assertEquals(400, post("/batch", "application/json", "[]").statusCode());
+        assertEquals(400, post("/batch", CalculatorController.NDJSON_VALUE,
+                item.repeat(MAX_BATCH_ITEMS + 1)).statusCode());
+        verifyNoInteractions(requestResponseService);
+    }
+
+    @Test
+    void evaluate_SendsTheExpressionWithItsMathContext() throws Exception {
+        HttpResponse<String> response = post("/evaluate", "application/json", """
+                {"expression": "(a + b) * c / d", "variables": {"a": 1, "b": 2, "c": 3, "d": 7},
+                 "precision": 5, "roundingMode": "DOWN"}""");
+
+        assertEquals(200, response.statusCode());
+        JsonNode result = objectMapper.readTree(response.body());
+        assertEquals(0, new BigDecimal(result.get("result").asText()).compareTo(new BigDecimal("1.2857")));
+
+        ArgumentCaptor<OperationRequest> sent = ArgumentCaptor.forClass(OperationRequest.class);
+        verify(requestResponseService).sendAndReceiveAsync(sent.capture(), anyString());
+        assertEquals(OperationType.EXPRESSION, sent.getValue().getOperationType());
+        assertEquals(5, sent.getValue().getPrecision());
+        assertEquals(RoundingMode.DOWN, sent.getValue().getRoundingMode());
+    }
+
+    @Test
+    void evaluate_RejectsMissingAndOverlongExpressions() throws Exception {
+        assertEquals(400, post("/evaluate", "application/json", "{\"variables\": {\"a\": 1}}").statusCode());
+        assertEquals(400, post("/evaluate", "application/json", "{\"expression\": \" \"}").statusCode());
+        assertEquals(400, post("/evaluate", "application/json",
+                "{\"expression\": \"" + "1+".repeat(MAX_EXPRESSION_LENGTH / 2) + "1\"}").statusCode());
+        verifyNoInteractions(requestResponseService);
+    }
+
+    @Test
+    void evaluate_AnswersInvalidPrecisionsAndUnboundedExactResultsWithAnError() throws Exception {
+        HttpResponse<String> negative = post("/evaluate", "application/json",
+                "{\"expression\": \"1 / 3\", \"precision\": -1}");
+        HttpResponse<String> exact = post("/evaluate", "application/json",
+                "{\"expression\": \"a * a\", \"variables\": {\"a\": 1e600}, \"precision\": 0}");
+        HttpResponse<String> nonTerminating = post("/evaluate", "application/json",
+                "{\"expression\": \"1 / 3\", \"precision\": 0}");
+
+        assertEquals(400, negative.statusCode());
+        assertEquals("Precision must be between 0 and " + CalculatorService.MAX_EXPRESSION_PRECISION,
+                objectMapper.readTree(negative.body()).get("error").asText());
+        assertEquals(400, exact.statusCode());
+        assertTrue(objectMapper.readTree(exact.body()).get("error").asText().startsWith("Exact evaluation is limited"));
+        assertEquals(400, nonTerminating.statusCode());
+    }
+
+    private HttpResponse<String> post(String path, String contentType, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
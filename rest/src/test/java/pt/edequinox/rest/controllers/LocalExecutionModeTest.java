@@ -0,0 +1,52 @@
+package pt.edequinox.rest.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import pt.edequinox.api.filters.FiltersContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@code app.execution.mode=local} with no broker reachable: the results listener is never started and requests are
+ * answered in-process.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "app.execution.mode=local",
+        "spring.kafka.producer.bootstrap-servers=localhost:1",
+        "spring.kafka.consumer.bootstrap-servers=localhost:1"
+})
+class LocalExecutionModeTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Test
+    void localMode_RunsWithoutKafka() throws Exception {
+        assertFalse(listenerRegistry.getListenerContainers().isEmpty());
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            assertFalse(container.isRunning());
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + port + "/multiply?operand1=6&operand2=7"))
+                .header(FiltersContext.REQUEST_ID_HEADER, "req-local")
+                .build();
+        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("42"), response.body());
+        assertEquals("req-local", response.headers().firstValue(FiltersContext.REQUEST_ID_HEADER).orElse(null));
+    }
+}
@@ -0,0 +1,153 @@
+package pt.edequinox.rest.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.rest.services.OperationProducer;
+import pt.edequinox.rest.services.RequestResponseService;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "app.stream.credits=2",
+        "spring.kafka.listener.auto-startup=false"
+})
+class OperationStreamHandlerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @LocalServerPort
+    private int port;
+
+    @MockitoSpyBean
+    private RequestResponseService requestResponseService;
+
+    @MockitoBean
+    private OperationProducer operationProducer;
+
+    @Test
+    void results_ArriveAsTheyCompleteWithTheClientIds() throws Exception {
+        StreamClient client = connect();
+        assertEquals(2, client.next().get("credits").asInt());
+
+        client.send("{\"id\": \"a\", \"operationType\": \"ADDITION\", \"operand1\": 1, \"operand2\": 2}");
+        client.send("{\"id\": \"b\", \"operationType\": \"ADDITION\", \"operand1\": 3, \"operand2\": 4}");
+        ArgumentCaptor<String> requestIds = ArgumentCaptor.forClass(String.class);
+        verify(operationProducer, timeout(5_000).times(2))
+                .sendOperationRequest(any(OperationRequest.class), requestIds.capture(), anyLong());
+        List<String> ids = requestIds.getAllValues();
+
+        requestResponseService.completeRequest(ids.get(1), new OperationResult(ids.get(1), OperationType.ADDITION, new BigDecimal("7")));
+        JsonNode second = client.next();
+        assertEquals("b", second.get("requestId").asText());
+        assertEquals(0, new BigDecimal("7").compareTo(second.get("result").decimalValue()));
+
+        requestResponseService.completeRequest(ids.get(0), new OperationResult(ids.get(0), OperationType.ADDITION, new BigDecimal("3")));
+        assertEquals("a", client.next().get("requestId").asText());
+
+        // Invalid requests are answered at once and give their credit back too
+        client.send("{\"id\": \"c\", \"operationType\": \"ADDITION\", \"operand1\": 1}");
+        JsonNode invalid = client.next();
+        assertEquals("c", invalid.get("requestId").asText());
+        assertEquals("Missing operand", invalid.get("error").asText());
+        client.webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "").get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void requestWithoutCredit_ClosesTheConnection() throws Exception {
+        StreamClient client = connect();
+        client.next();
+
+        for (int i = 0; i < 3; i++) {
+            client.send("{\"id\": \"" + i + "\", \"operationType\": \"MULTIPLICATION\", \"operand1\": " + (i + 100)
+                    + ", \"operand2\": 2}");
+        }
+
+        assertEquals(1008, client.closeStatus.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void requestThatCannotBeSent_IsAnsweredWithAnError_AndGivesItsCreditBack() throws Exception {
+        doThrow(new IllegalStateException("Producer closed"))
+                .when(requestResponseService).sendAndReceiveAsync(any(), anyString());
+        StreamClient client = connect();
+        client.next();
+
+        // More requests than credits: each must be answered and its credit returned
+        for (int i = 0; i < 3; i++) {
+            client.send("{\"id\": \"" + i + "\", \"operationType\": \"ADDITION\", \"operand1\": 1, \"operand2\": 2}");
+            JsonNode error = client.next();
+            assertEquals(String.valueOf(i), error.get("requestId").asText());
+            assertEquals("Producer closed", error.get("error").asText());
+        }
+        assertFalse(client.closeStatus.isDone());
+        client.webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "").get(5, TimeUnit.SECONDS);
+    }
+
+    private StreamClient connect() throws Exception {
+        StreamClient client = new StreamClient();
+        client.webSocket = HttpClient.newHttpClient().newWebSocketBuilder()
+                .buildAsync(URI.create("ws://localhost:" + port + "/stream"), client)
+                .get(5, TimeUnit.SECONDS);
+        return client;
+    }
+
+    private class StreamClient implements WebSocket.Listener {
+        final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+        final CompletableFuture<Integer> closeStatus = new CompletableFuture<>();
+        final StringBuilder partial = new StringBuilder();
+        WebSocket webSocket;
+
+        void send(String text) throws Exception {
+            webSocket.sendText(text, true).get(5, TimeUnit.SECONDS);
+        }
+
+        JsonNode next() throws Exception {
+            String message = messages.poll(5, TimeUnit.SECONDS);
+            assertNotNull(message, "No message within 5 s");
+            return objectMapper.readTree(message);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                messages.add(partial.toString());
+                partial.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            closeStatus.complete(statusCode);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package pt.edequinox.rest.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentLongMapTest {
+
+    @Test
+    void operations_MatchAHashMap() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>(4);
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 200_000; i++) {
+            // Few distinct keys, so puts replace and removes hit, growing and shrinking the stripes
+            long key = random.nextInt(2_000) * 0x1_0000_0000L;
+            String value = "v" + i;
+            switch (random.nextInt(4)) {
+                case 0 -> assertEquals(expected.put(key, value), map.put(key, value));
+                case 1 -> assertEquals(expected.remove(key), map.remove(key));
+                case 2 -> assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+                default -> assertEquals(expected.get(key), map.get(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Long, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    void removeWithValue_OnlyRemovesThatVeryValue() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>(2);
+        String value = new String("a");
+        map.put(1L, value);
+
+        assertFalse(map.remove(1L, new String("a")));
+        assertTrue(map.containsKey(1L));
+        assertTrue(map.remove(1L, value));
+        assertFalse(map.containsKey(1L));
+        assertThrows(NullPointerException.class, () -> map.put(2L, null));
+    }
+
+    @Test
+    void concurrentPutsAndRemoves_LoseNoEntry() throws Exception {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(8);
+        int threads = 8;
+        int perThread = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<?>[] futures = new Future<?>[threads];
+        for (int t = 0; t < threads; t++) {
+            long base = (long) t * perThread;
+            futures[t] = executor.submit(() -> {
+                start.await();
+                for (long key = base; key < base + perThread; key++) {
+                    map.put(key, key);
+                    // Every other key is removed again
+                    if ((key & 1) == 0) {
+                        assertEquals(key, map.remove(key));
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(threads * perThread / 2, map.size());
+        for (long key = 0; key < (long) threads * perThread; key++) {
+            assertEquals((key & 1) == 0 ? null : key, map.get(key));
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package pt.edequinox.rest.services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pt.edequinox.api.filters.FiltersContext;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.api.serialization.OperationWireFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class HttpOperationTransportTest {
+
+    private static final OperationRequest ADDITION =
+            new OperationRequest(OperationType.ADDITION, new BigDecimal("2"), new BigDecimal("3"));
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final ExecutorService serverExecutor = Executors.newCachedThreadPool();
+    private final BlockingQueue<Object> replies = new LinkedBlockingQueue<>();
+    private RequestResponseService requestResponseService;
+    private HttpOperationTransport transport;
+
+    @BeforeEach
+    void setUp() {
+        requestResponseService = mock(RequestResponseService.class);
+        doAnswer(invocation -> replies.add(invocation.getArgument(1)))
+                .when(requestResponseService).completeRequest(anyString(), any());
+        doAnswer(invocation -> replies.add(invocation.getArgument(1)))
+                .when(requestResponseService).completeRequestExceptionally(anyString(), any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (transport != null) {
+            transport.close();
+        }
+        servers.forEach(server -> server.stop(0));
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void sendOperationRequest_CompletesRequestWithDecodedResult() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        transport = transport(1, 100, uri(server(calls)));
+
+        transport.sendOperationRequest(ADDITION, "req-1", System.nanoTime());
+
+        OperationResult result = assertInstanceOf(OperationResult.class, replies.poll(5, TimeUnit.SECONDS));
+        assertEquals("req-1", result.getRequestId());
+        assertEquals(new BigDecimal("5"), result.getResult());
+        verify(requestResponseService).completeRequest(eq("req-1"), any());
+    }
+
+    @Test
+    void sendOperationRequest_FailsRequestOnOperationError() throws Exception {
+        HttpServer server = startServer(exchange -> respond(exchange,
+                new OperationResult(exchange.getRequestHeaders().getFirst(FiltersContext.REQUEST_ID_HEADER),
+                        "Division by zero")));
+        transport = transport(1, 100, uri(server));
+
+        transport.sendOperationRequest(ADDITION, "req-2", System.nanoTime());
+
+        Exception error = assertInstanceOf(Exception.class, replies.poll(5, TimeUnit.SECONDS));
+        assertEquals("Operation error: Division by zero", error.getMessage());
+    }
+
+    @Test
+    void sendOperationRequest_BalancesOverEndpoints() throws Exception {
+        AtomicInteger firstCalls = new AtomicInteger();
+        AtomicInteger secondCalls = new AtomicInteger();
+        transport = transport(2, 100, uri(server(firstCalls)), uri(server(secondCalls)));
+        assertEquals(2, transport.endpoints().size());
+
+        for (int i = 0; i < 200; i++) {
+            transport.sendOperationRequest(ADDITION, "req-" + i, System.nanoTime());
+        }
+        for (int i = 0; i < 200; i++) {
+            assertInstanceOf(OperationResult.class, replies.poll(5, TimeUnit.SECONDS));
+        }
+        assertTrue(firstCalls.get() > 20, "first endpoint got " + firstCalls.get());
+        assertTrue(secondCalls.get() > 20, "second endpoint got " + secondCalls.get());
+    }
+
+    @Test
+    void sendOperationRequest_SkipsEndpointAfterConnectionFailure() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        transport = transport(1, 100, uri(server(calls)), URI.create("http://127.0.0.1:" + unusedPort()));
+
+        int failures = 0;
+        for (int i = 0; i < 50; i++) {
+            transport.sendOperationRequest(ADDITION, "req-" + i, System.nanoTime());
+            if (replies.poll(5, TimeUnit.SECONDS) instanceof IOException) {
+                failures++;
+            }
+        }
+        // Only the first call routed to the closed port fails, later ones go to the endpoint that is up
+        assertTrue(failures <= 1, failures + " failures");
+        assertEquals(50 - failures, calls.get());
+    }
+
+    @Test
+    void sendOperationRequest_QueuesCallsBeyondMaxStreams() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        HttpServer server = startServer(exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            respond(exchange, sum(exchange));
+        });
+        transport = transport(1, 2, uri(server));
+
+        for (int i = 0; i < 6; i++) {
+            transport.sendOperationRequest(ADDITION, "req-" + i, System.nanoTime());
+        }
+        Thread.sleep(200);
+        release.countDown();
+        for (int i = 0; i < 6; i++) {
+            assertInstanceOf(OperationResult.class, replies.poll(5, TimeUnit.SECONDS));
+        }
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    void sendOperationRequest_FailsRequestWithoutEndpoints() throws Exception {
+        transport = transport(1, 100, URI.create("http://calculator.invalid:8081"));
+
+        transport.sendOperationRequest(ADDITION, "req-3", System.nanoTime());
+
+        assertInstanceOf(IOException.class, replies.poll(5, TimeUnit.SECONDS));
+        verify(requestResponseService).completeRequestExceptionally(eq("req-3"), any());
+    }
+
+    private HttpOperationTransport transport(int connections, int maxStreams, URI... targets) {
+        return new HttpOperationTransport(List.of(targets), connections, maxStreams, Duration.ofSeconds(5),
+                Duration.ofMinutes(1), Duration.ZERO, () -> requestResponseService, new SimpleMeterRegistry());
+    }
+
+    // Answers every operation with its sum and counts the calls
+    private HttpServer server(AtomicInteger calls) throws IOException {
+        return startServer(exchange -> {
+            calls.incrementAndGet();
+            respond(exchange, sum(exchange));
+        });
+    }
+
+    private HttpServer startServer(HttpHandler handler) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(HttpOperationTransport.PING_PATH, exchange -> {
+            // Unread request bytes would be taken for the start of the connection's next request
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.createContext(HttpOperationTransport.OPERATIONS_PATH, handler);
+        server.setExecutor(serverExecutor);
+        server.start();
+        servers.add(server);
+        return server;
+    }
+
+    private static OperationResult sum(HttpExchange exchange) throws IOException {
+        OperationRequest request = OperationWireFormat.decodeRequest(exchange.getRequestBody().readAllBytes());
+        return new OperationResult(exchange.getRequestHeaders().getFirst(FiltersContext.REQUEST_ID_HEADER),
+                request.getOperationType(), request.getOperand1().add(request.getOperand2()));
+    }
+
+    private static void respond(HttpExchange exchange, OperationResult result) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] body = OperationWireFormat.encode(result);
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private static URI uri(HttpServer server) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package pt.edequinox.rest.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import pt.edequinox.api.filters.FiltersContext;
+import pt.edequinox.api.metrics.TimestampHeaders;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.api.serialization.OperationRequestDeserializer;
+import pt.edequinox.api.serialization.OperationResultSerializer;
+import pt.edequinox.api.serialization.OperationWireFormat;
+import pt.edequinox.api.serialization.RequestIdDeserializer;
+import pt.edequinox.api.serialization.RequestIdSerializer;
+import pt.edequinox.calculator.CalculatorApplication;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * The {@code http} transport against the real calculator on Tomcat: calls are upgraded to cleartext HTTP/2 and run
+ * as concurrent streams of one connection. The calculator holds each call until {@link #CONCURRENT_CALLS} are in
+ * flight, so they only all complete if they were sent side by side.
+ */
+@EmbeddedKafka(partitions = 1, topics = {"operation-requests", "operation-requests-slow"})
+class HttpTransportIntegrationTest {
+
+    private static final int CONCURRENT_CALLS = 8;
+
+    private final StreamRecorder recorder = new StreamRecorder();
+    private final BlockingQueue<Object> replies = new LinkedBlockingQueue<>();
+    private ConfigurableApplicationContext calculator;
+    private URI base;
+    private HttpOperationTransport transport;
+
+    @BeforeEach
+    void setUp(EmbeddedKafkaBroker broker) {
+        calculator = new SpringApplicationBuilder(CalculatorApplication.class)
+                .initializers(context -> context.getBeanFactory().registerSingleton("streamRecorder", recorder))
+                .run(
+                        "--spring.config.name=http-transport-calculator",
+                        "--server.port=0",
+                        "--server.http2.enabled=true",
+                        "--spring.kafka.consumer.bootstrap-servers=" + broker.getBrokersAsString(),
+                        "--spring.kafka.consumer.group-id=calculator-group",
+                        "--spring.kafka.consumer.key-deserializer=" + RequestIdDeserializer.class.getName(),
+                        "--spring.kafka.consumer.value-deserializer=" + OperationRequestDeserializer.class.getName(),
+                        "--spring.kafka.listener.ack-mode=batch",
+                        "--spring.kafka.producer.bootstrap-servers=" + broker.getBrokersAsString(),
+                        "--spring.kafka.producer.key-serializer=" + RequestIdSerializer.class.getName(),
+                        "--spring.kafka.producer.value-serializer=" + OperationResultSerializer.class.getName(),
+                        "--app.kafka.topic.requests=operation-requests",
+                        "--app.kafka.topic.requests-slow=operation-requests-slow",
+                        "--app.kafka.topic.results=operation-results",
+                        "--app.expression.cache.max-size=0");
+        base = URI.create("http://localhost:" + calculator.getEnvironment().getProperty("local.server.port"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (transport != null) {
+            transport.close();
+        }
+        calculator.close();
+    }
+
+    @Test
+    void calls_AreConcurrentHttp2StreamsOfOneConnection() throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+        // The h2c upgrade, as the transport does before its first call
+        HttpResponse<Void> ping = client.send(HttpRequest.newBuilder(base.resolve(HttpOperationTransport.PING_PATH))
+                .GET().build(), HttpResponse.BodyHandlers.discarding());
+        assertEquals(204, ping.statusCode());
+        assertEquals(HttpClient.Version.HTTP_2, ping.version());
+
+        List<CompletableFuture<HttpResponse<byte[]>>> calls = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_CALLS; i++) {
+            OperationRequest request = new OperationRequest(OperationType.ADDITION, BigDecimal.valueOf(i), BigDecimal.ONE);
+            calls.add(client.sendAsync(HttpRequest.newBuilder(base.resolve(HttpOperationTransport.OPERATIONS_PATH))
+                    .header(FiltersContext.REQUEST_ID_HEADER, "req-" + i)
+                    .header("Content-Type", "application/octet-stream")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(OperationWireFormat.encode(request)))
+                    .build(), HttpResponse.BodyHandlers.ofByteArray()));
+        }
+
+        for (int i = 0; i < CONCURRENT_CALLS; i++) {
+            HttpResponse<byte[]> response = calls.get(i).get(10, TimeUnit.SECONDS);
+            assertEquals(200, response.statusCode());
+            assertEquals(HttpClient.Version.HTTP_2, response.version());
+            OperationResult result = OperationWireFormat.decodeResult(response.body());
+            assertEquals("req-" + i, result.getRequestId());
+            assertEquals(BigDecimal.valueOf(i + 1), result.getResult());
+        }
+        assertEquals(Set.of("HTTP/2.0"), recorder.protocols);
+        assertEquals(1, recorder.remotePorts.size(), "connections: " + recorder.remotePorts);
+        assertEquals(CONCURRENT_CALLS, recorder.maxInFlight.get());
+    }
+
+    @Test
+    void transport_SendsItsCallsAsStreamsOfOneConnectionWithTheirDeadline() throws Exception {
+        RequestResponseService requestResponseService = mock(RequestResponseService.class);
+        doAnswer(invocation -> replies.add(invocation.getArgument(1)))
+                .when(requestResponseService).completeRequest(anyString(), any());
+        doAnswer(invocation -> replies.add(invocation.getArgument(1)))
+                .when(requestResponseService).completeRequestExceptionally(anyString(), any());
+        transport = new HttpOperationTransport(List.of(base), 1, CONCURRENT_CALLS, Duration.ofSeconds(10),
+                Duration.ofMinutes(1), Duration.ZERO, () -> requestResponseService, new SimpleMeterRegistry());
+
+        for (int i = 0; i < CONCURRENT_CALLS; i++) {
+            transport.sendOperationRequest(new OperationRequest(OperationType.MULTIPLICATION,
+                    BigDecimal.valueOf(i), BigDecimal.TEN), "req-" + i, System.nanoTime());
+        }
+
+        for (int i = 0; i < CONCURRENT_CALLS; i++) {
+            OperationResult result = assertInstanceOf(OperationResult.class, replies.poll(10, TimeUnit.SECONDS));
+            assertNull(result.getError());
+        }
+        assertEquals(Set.of("HTTP/2.0"), recorder.protocols);
+        assertEquals(1, recorder.remotePorts.size(), "connections: " + recorder.remotePorts);
+        assertEquals(CONCURRENT_CALLS, recorder.maxInFlight.get());
+        assertEquals(CONCURRENT_CALLS, recorder.deadlines.get());
+    }
+
+    // Records how the calls to /rpc/operations arrive, holding each until CONCURRENT_CALLS are in flight
+    private static final class StreamRecorder implements Filter {
+
+        final Set<String> protocols = ConcurrentHashMap.newKeySet();
+        final Set<Integer> remotePorts = ConcurrentHashMap.newKeySet();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final AtomicInteger deadlines = new AtomicInteger();
+        private final CountDownLatch allArrived = new CountDownLatch(CONCURRENT_CALLS);
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+                throws IOException, ServletException {
+            HttpServletRequest httpRequest = (HttpServletRequest) request;
+            if (!httpRequest.getRequestURI().equals(HttpOperationTransport.OPERATIONS_PATH)) {
+                chain.doFilter(request, response);
+                return;
+            }
+            protocols.add(httpRequest.getProtocol());
+            remotePorts.add(httpRequest.getRemotePort());
+            if (httpRequest.getHeader(TimestampHeaders.REQUEST_DEADLINE) != null) {
+                deadlines.incrementAndGet();
+            }
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            allArrived.countDown();
+            try {
+                allArrived.await(5, TimeUnit.SECONDS);
+                chain.doFilter(request, response);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
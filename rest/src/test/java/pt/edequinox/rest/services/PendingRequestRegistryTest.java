@@ -0,0 +1,111 @@
+package pt.edequinox.rest.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PendingRequestRegistryTest {
+
+    private static final OperationResult REPLY = new OperationResult(null, OperationType.ADDITION, BigDecimal.ONE);
+
+    private PendingRequestRegistry registry;
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void fullRegistry_RejectsUntilARequestCompletes() {
+        registry = new PendingRequestRegistry(2, Duration.ofSeconds(10), Duration.ZERO);
+        registry.register("req-1");
+        registry.register("req-2");
+
+        RequestRejectedException rejected = assertThrows(RequestRejectedException.class, () -> registry.register("req-3"));
+        assertEquals(RequestRejectedException.Reason.CAPACITY, rejected.getReason());
+
+        assertTrue(registry.complete("req-1", REPLY));
+        assertEquals(1, registry.size());
+        assertFalse(registry.isPending("req-1"));
+        registry.register("req-3");
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    void idsSharingACorrelationKey_ArePendingSideBySide() throws Exception {
+        registry = new PendingRequestRegistry(10, Duration.ofMillis(200), Duration.ZERO);
+        // Version 1 UUIDs from one host: only the time fields differ, so both have the same lower half
+        String first = "c232ab00-9414-11ec-b3c8-9f6bdeced846";
+        String second = "d0e0f100-9414-11ec-b3c8-9f6bdeced846";
+        String third = "e1f20a00-9414-11ec-b3c8-9f6bdeced846";
+        CompletableFuture<OperationResult> firstFuture = registry.register(first);
+        CompletableFuture<OperationResult> secondFuture = registry.register(second);
+        CompletableFuture<OperationResult> expiring = registry.register(third);
+
+        assertFalse(firstFuture.isDone());
+        assertEquals(3, registry.size());
+        assertTrue(registry.complete(second, REPLY));
+        assertFalse(registry.isPending(second));
+        assertTrue(registry.isPending(first));
+        assertFalse(registry.complete(second, REPLY));
+        assertTrue(registry.complete(first, REPLY));
+        assertSame(REPLY, firstFuture.get());
+        assertSame(REPLY, secondFuture.get());
+
+        ExecutionException timeout = assertThrows(ExecutionException.class, () -> expiring.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, timeout.getCause());
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void expiredRequests_TimeOutAndLateRepliesAreRefused() throws Exception {
+        registry = new PendingRequestRegistry(10, Duration.ofMillis(100), Duration.ZERO);
+        CompletableFuture<OperationResult> expiring = registry.register("req-1");
+        CompletableFuture<OperationResult> answered = registry.register("req-2");
+        registry.complete("req-2", REPLY);
+
+        ExecutionException timeout = assertThrows(ExecutionException.class, () -> expiring.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, timeout.getCause());
+        assertSame(REPLY, answered.get());
+        assertEquals(0, registry.size());
+        assertFalse(registry.complete("req-1", REPLY));
+    }
+
+    @Test
+    void slowReplies_ShedNewRequestsExceptProbes_UntilLatencyRecovers() throws Exception {
+        // 10 ms ticks: at most one probe is admitted per 10 ms
+        registry = new PendingRequestRegistry(100, Duration.ofSeconds(1), Duration.ofMillis(5));
+        CompletableFuture<OperationResult> slow = registry.register("slow");
+        assertThrows(ExecutionException.class, () -> slow.get(5, TimeUnit.SECONDS));
+        assertTrue(registry.latencyAverage().compareTo(Duration.ofMillis(5)) > 0);
+
+        registry.register("probe-0");
+        RequestRejectedException rejected = assertThrows(RequestRejectedException.class, () -> registry.register("shed"));
+        assertEquals(RequestRejectedException.Reason.SATURATED, rejected.getReason());
+
+        // Fast probe replies bring the average back under the limit
+        registry.complete("probe-0", REPLY);
+        for (int i = 1; registry.latencyAverage().compareTo(Duration.ofMillis(5)) > 0 && i < 1000; i++) {
+            Thread.sleep(11);
+            try {
+                registry.register("probe-" + i);
+                registry.complete("probe-" + i, REPLY);
+            } catch (RequestRejectedException e) {
+                // Not this tick's probe
+            }
+        }
+        registry.register("admitted-1");
+        registry.register("admitted-2");
+        assertEquals(2, registry.size());
+    }
+}
@@ -0,0 +1,245 @@
+package pt.edequinox.rest.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import pt.edequinox.api.models.OperationRequest;
+import pt.edequinox.api.models.OperationResult;
+import pt.edequinox.api.models.OperationType;
+import pt.edequinox.core.expressions.ExpressionCache;
+import pt.edequinox.core.services.CalculatorService;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RequestResponseServiceTest {
+
+    private OperationProducer operationProducer;
+    private SimpleMeterRegistry meterRegistry;
+    private RequestResponseService service;
+    private final List<PendingRequestRegistry> registries = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        operationProducer = mock(OperationProducer.class);
+        meterRegistry = new SimpleMeterRegistry();
+        service = service(new OperationResultCache(true, 100, Duration.ZERO, meterRegistry), Integer.MAX_VALUE, "kafka");
+    }
+
+    @AfterEach
+    void tearDown() {
+        registries.forEach(PendingRequestRegistry::shutdown);
+    }
+
+    private RequestResponseService service(OperationResultCache resultCache, int maxPending, String executionMode) {
+        PendingRequestRegistry registry = new PendingRequestRegistry(maxPending, Duration.ofSeconds(10), Duration.ZERO);
+        registries.add(registry);
+        return new RequestResponseService(operationProducer, resultCache, registry,
+                new LocalOperationExecutor(executionMode, 20, 10,
+                        new CalculatorService(new ExpressionCache(0, meterRegistry)), meterRegistry), meterRegistry);
+    }
+
+    @Test
+    void repeatedOperation_IsAnsweredFromCacheWithItsOwnRequestId() throws Exception {
+        OperationRequest request = new OperationRequest(OperationType.ADDITION, new BigDecimal("2"), new BigDecimal("3"));
+
+        CompletableFuture<OperationResult> first = service.sendAndReceiveAsync(request, "req-1");
+        service.completeRequest("req-1", new OperationResult("req-1", OperationType.ADDITION, new BigDecimal("5")));
+        assertEquals(new BigDecimal("5"), first.get().getResult());
+
+        OperationRequest repeated = new OperationRequest(OperationType.ADDITION, new BigDecimal("2"), new BigDecimal("3"));
+        CompletableFuture<OperationResult> second = service.sendAndReceiveAsync(repeated, "req-2");
+
+        assertTrue(second.isDone());
+        assertEquals("req-2", second.get().getRequestId());
+        assertEquals(new BigDecimal("5"), second.get().getResult());
+        verify(operationProducer, times(1)).sendOperationRequest(any(), any(), anyLong());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void transport_GetsTheTimeTheRequestEntered() {
+        ArgumentCaptor<Long> receivedAt = ArgumentCaptor.forClass(Long.class);
+        long before = System.nanoTime();
+
+        service.sendAndReceiveAsync(new OperationRequest(OperationType.ADDITION, BigDecimal.ONE, BigDecimal.ONE), "req-1");
+
+        // The send timer starts there rather than at the hand-off to the producer
+        verify(operationProducer).sendOperationRequest(any(), eq("req-1"), receivedAt.capture());
+        assertTrue(receivedAt.getValue() - before >= 0);
+        assertTrue(System.nanoTime() - receivedAt.getValue() >= 0);
+    }
+
+    @Test
+    void operandScale_IsPartOfTheKey() {
+        service.sendAndReceiveAsync(new OperationRequest(OperationType.DIVISION, new BigDecimal("5"), new BigDecimal("2")), "req-1");
+        service.completeRequest("req-1", new OperationResult("req-1", OperationType.DIVISION, new BigDecimal("3")));
+
+        service.sendAndReceiveAsync(new OperationRequest(OperationType.DIVISION, new BigDecimal("5.0"), new BigDecimal("2")), "req-2");
+
+        verify(operationProducer).sendOperationRequest(any(), eq("req-2"), anyLong());
+    }
+
+    @Test
+    void errorResults_AreNotCached() {
+        OperationRequest request = new OperationRequest(OperationType.DIVISION, BigDecimal.ONE, BigDecimal.ZERO);
+
+        service.sendAndReceiveAsync(request, "req-1");
+        service.completeRequestExceptionally("req-1", new ArithmeticException("Division by zero"));
+        service.sendAndReceiveAsync(request, "req-2");
+
+        verify(operationProducer, times(2)).sendOperationRequest(any(), any(), anyLong());
+    }
+
+    @Test
+    void identicalInFlightOperations_ArePublishedOnce() throws Exception {
+        int callers = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<CompletableFuture<OperationResult>>> submitted = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                String requestId = "req-" + i;
+                submitted.add(executor.submit(() -> {
+                    start.await();
+                    return service.sendAndReceiveAsync(new OperationRequest(OperationType.MULTIPLICATION,
+                            new BigDecimal("6"), new BigDecimal("7")), requestId);
+                }));
+            }
+            start.countDown();
+            List<CompletableFuture<OperationResult>> futures = new ArrayList<>();
+            for (Future<CompletableFuture<OperationResult>> future : submitted) {
+                futures.add(future.get(5, TimeUnit.SECONDS));
+            }
+
+            ArgumentCaptor<String> published = ArgumentCaptor.forClass(String.class);
+            verify(operationProducer, times(1)).sendOperationRequest(any(), published.capture(), anyLong());
+            String leaderId = published.getValue();
+            assertEquals(1, service.pendingRequestCount());
+
+            service.completeRequest(leaderId, new OperationResult(leaderId, OperationType.MULTIPLICATION, new BigDecimal("42")));
+
+            for (int i = 0; i < callers; i++) {
+                OperationResult result = futures.get(i).get(5, TimeUnit.SECONDS);
+                assertEquals("req-" + i, result.getRequestId());
+                assertEquals(new BigDecimal("42"), result.getResult());
+            }
+            assertEquals(0, service.pendingRequestCount());
+            assertEquals(0, service.inFlightOperationCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void coalescedCallers_ShareTheFailure_AndTheEntryIsReleased() {
+        service = service(new OperationResultCache(false, 0, Duration.ZERO, meterRegistry), Integer.MAX_VALUE, "kafka");
+        OperationRequest request = new OperationRequest(OperationType.ADDITION, BigDecimal.ONE, BigDecimal.ONE);
+
+        CompletableFuture<OperationResult> leader = service.sendAndReceiveAsync(request, "req-1");
+        CompletableFuture<OperationResult> follower = service.sendAndReceiveAsync(request, "req-2");
+        service.completeRequestExceptionally("req-1", new IllegalStateException("boom"));
+
+        assertTrue(leader.isCompletedExceptionally());
+        assertTrue(follower.isCompletedExceptionally());
+        assertEquals(0, service.inFlightOperationCount());
+
+        service.sendAndReceiveAsync(request, "req-3");
+        verify(operationProducer, times(2)).sendOperationRequest(any(), any(), anyLong());
+    }
+
+    @Test
+    void transportThrowing_FailsTheRequest_AndReleasesItsEntries() {
+        OperationRequest request = new OperationRequest(OperationType.ADDITION, BigDecimal.ONE, BigDecimal.ONE);
+        doThrow(new IllegalStateException("Cannot perform operation after producer has been closed"))
+                .doReturn(CompletableFuture.completedFuture(null))
+                .when(operationProducer).sendOperationRequest(any(), any(), anyLong());
+
+        CompletableFuture<OperationResult> failed = service.sendAndReceiveAsync(request, "req-1");
+
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(0, service.pendingRequestCount());
+        assertEquals(0, service.inFlightOperationCount());
+
+        CompletableFuture<OperationResult> retried = service.sendAndReceiveAsync(request, "req-2");
+        service.completeRequest("req-2", new OperationResult("req-2", OperationType.ADDITION, new BigDecimal("2")));
+        assertEquals(new BigDecimal("2"), retried.join().getResult());
+    }
+
+    @Test
+    void pendingGauge_AndOrphanedReplies_AreRecorded() {
+        service.sendAndReceiveAsync(new OperationRequest(OperationType.ADDITION, BigDecimal.ONE, BigDecimal.TEN), "req-1");
+        assertEquals(1.0, meterRegistry.get("calculator.requests.pending").gauge().value());
+
+        service.completeRequest("req-1", new OperationResult("req-1", OperationType.ADDITION, new BigDecimal("11")));
+        service.completeRequest("req-1", new OperationResult("req-1", OperationType.ADDITION, new BigDecimal("11")));
+
+        assertEquals(0.0, meterRegistry.get("calculator.requests.pending").gauge().value());
+        assertEquals(1.0, meterRegistry.get("calculator.reply.orphaned").counter().count());
+        assertEquals(1, meterRegistry.get("calculator.reply.wait").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void requestsBeyondCapacity_FailFastWithoutPublishing() {
+        service = service(new OperationResultCache(false, 0, Duration.ZERO, meterRegistry), 1, "kafka");
+
+        service.sendAndReceiveAsync(new OperationRequest(OperationType.ADDITION, BigDecimal.ONE, BigDecimal.ONE), "req-1");
+        CompletableFuture<OperationResult> rejected =
+                service.sendAndReceiveAsync(new OperationRequest(OperationType.ADDITION, BigDecimal.ONE, BigDecimal.TEN), "req-2");
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RequestRejectedException.class, failure.getCause());
+        verify(operationProducer, times(1)).sendOperationRequest(any(), any(), anyLong());
+        assertEquals(1.0, meterRegistry.get("calculator.request.rejected").tag("reason", "capacity").counter().count());
+        // Only req-1 is left in flight: the rejected operation released its entry
+        assertEquals(1, service.inFlightOperationCount());
+    }
+
+    @Test
+    void hybridMode_EvaluatesSmallOperationsInProcess_AndOffloadsLargeOnes() throws Exception {
+        service = service(new OperationResultCache(false, 0, Duration.ZERO, meterRegistry), 10, "hybrid");
+
+        OperationResult local = service.sendAndReceiveAsync(
+                new OperationRequest(OperationType.MULTIPLICATION, new BigDecimal("12.5"), new BigDecimal("4")), "req-1").get();
+        assertEquals("req-1", local.getRequestId());
+        assertEquals(OperationType.MULTIPLICATION, local.getOperationType());
+        assertEquals(0, new BigDecimal("50").compareTo(local.getResult()));
+
+        OperationRequest large = new OperationRequest(OperationType.MULTIPLICATION,
+                new BigDecimal("123456789012345678901234567890"), new BigDecimal("4"));
+        CompletableFuture<OperationResult> offloaded = service.sendAndReceiveAsync(large, "req-2");
+        assertFalse(offloaded.isDone());
+        verify(operationProducer).sendOperationRequest(same(large), eq("req-2"), anyLong());
+        verifyNoMoreInteractions(operationProducer);
+        assertEquals(1, meterRegistry.get("calculator.local.operation").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void localMode_FailsOperationErrorsLikeErrorReplies() {
+        service = service(new OperationResultCache(false, 0, Duration.ZERO, meterRegistry), 10, "local");
+
+        CompletableFuture<OperationResult> divided =
+                service.sendAndReceiveAsync(new OperationRequest(OperationType.DIVISION, BigDecimal.ONE, BigDecimal.ZERO), "req-1");
+
+        ExecutionException failure = assertThrows(ExecutionException.class, divided::get);
+        assertEquals("Operation error: Division by zero is not allowed.", failure.getCause().getMessage());
+        verifyNoInteractions(operationProducer);
+        assertEquals(0, service.pendingRequestCount());
+    }
+}